@@ -11,25 +11,29 @@
 package org.eclipse.recommenders.calls;
 
 import static com.google.common.base.Optional.*;
-import static com.google.common.collect.Collections2.transform;
-import static com.google.common.collect.ImmutableSet.copyOf;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.eclipse.recommenders.utils.Checks.ensureIsNotNull;
+import static org.eclipse.recommenders.utils.Checks.ensureIsTrue;
 import static org.eclipse.recommenders.utils.Constants.*;
 import static org.eclipse.recommenders.utils.Recommendation.newRecommendation;
 
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.recommenders.commons.bayesnet.BayesianNetwork;
-import org.eclipse.recommenders.commons.bayesnet.Node;
-import org.eclipse.recommenders.jayes.BayesNet;
 import org.eclipse.recommenders.jayes.BayesNode;
 import org.eclipse.recommenders.jayes.inference.junctionTree.JunctionTreeAlgorithm;
+import org.eclipse.recommenders.calls.JayesCallNetwork.EvidenceKey;
 import org.eclipse.recommenders.utils.Constants;
 import org.eclipse.recommenders.utils.Recommendation;
+import org.eclipse.recommenders.utils.RecommendationsPipeline;
+import org.eclipse.recommenders.utils.RecommendationsPipeline.Sink;
 import org.eclipse.recommenders.utils.annotations.Nullable;
 import org.eclipse.recommenders.utils.names.IFieldName;
 import org.eclipse.recommenders.utils.names.IMethodName;
@@ -37,11 +41,12 @@ import org.eclipse.recommenders.utils.names.ITypeName;
 import org.eclipse.recommenders.utils.names.VmMethodName;
 
 import com.google.common.annotations.Beta;
-import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSet.Builder;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 /**
  * A thin wrapper around a {@link BayesianNetwork} for recommending method calls.
@@ -84,11 +89,26 @@ import com.google.common.collect.Lists;
 @Beta
 public class JayesCallModel implements ICallModel {
 
-    private final class StringToMethodNameFunction implements Function<String, IMethodName> {
-        @Override
-        public IMethodName apply(final String input) {
-            return VmMethodName.get(input);
-        }
+    /**
+     * How beliefs are computed.
+     */
+    public static enum InferenceMode {
+        /**
+         * Always uses exact inference with the junction tree algorithm.
+         */
+        EXACT,
+        /**
+         * Computes beliefs as a mixture over the most likely call groups. The call groups are pruned such that the
+         * absolute error of every belief is at most the configured maximum error. Only available if every node of the
+         * network depends on the callgroup node only, which is the structure of all call models we learn; otherwise,
+         * exact inference is used.
+         */
+        APPROXIMATE,
+        /**
+         * Uses exact inference as long as it meets the configured latency budget on this network, and approximate
+         * inference otherwise. While approximating, exact inference is measured again every now and then.
+         */
+        AUTO
     }
 
     /**
@@ -96,84 +116,115 @@ public class JayesCallModel implements ICallModel {
      */
     private static final String N_STATE_UNOBSERVED = null;
 
-    private BayesNet net;
-    private BayesNode callgroupNode;
-    private BayesNode overridesNode;
-    private BayesNode definedByNode;
-    private BayesNode defTypeNode;
+    /**
+     * Sorts recommended definitions by decreasing probability.
+     */
+    private static final RecommendationsPipeline<IMethodName> DEFINITIONS = RecommendationsPipeline
+            .<IMethodName> newBuilder().build();
+
+    private final JayesCallNetwork network;
+    private final BayesNode callgroupNode;
+    private final BayesNode overridesNode;
+    private final BayesNode definedByNode;
+    private final BayesNode defTypeNode;
+    private final ITypeName typeName;
+    private final Map<IMethodName, BayesNode> callNodes;
+    private final Map<String, BayesNode> callNodesBySignature;
+    private final BayesNode noMethodNode;
+
+    /**
+     * The evidence of this model. Mirrored into {@link #junctionTree} once that exists.
+     */
+    private final Map<BayesNode, String> evidence = new HashMap<BayesNode, String>();
+    /**
+     * Created on first exact inference only. Until then, neither the junction tree nor the complete network are built.
+     */
     private JunctionTreeAlgorithm junctionTree;
+    /**
+     * The call nodes set to {@link Constants#N_STATE_TRUE} by the last invocation of
+     * {@link #setObservedCalls(Set)}.
+     */
+    private Set<BayesNode> observedCallNodes = Collections.emptySet();
 
-    private ITypeName typeName;
-    private HashMap<IMethodName, BayesNode> callNodes;
+    private InferenceMode inferenceMode = InferenceMode.EXACT;
+    private double maxApproximationError = 0.01d;
+    private long latencyBudgetNanos = MILLISECONDS.toNanos(5);
 
     public JayesCallModel(final ITypeName name, final BayesianNetwork network) {
-        initalizeIndexes(name);
-        initializeNetwork(network);
-    }
-
-    private void initalizeIndexes(final ITypeName name) {
-        typeName = name;
-        callNodes = new HashMap<IMethodName, BayesNode>();
+        this(new JayesCallNetwork(name, network));
     }
 
-    private void initializeNetwork(final BayesianNetwork network) {
-        net = new BayesNet();
-        initializeNodes(network);
-        initializeArcs(network);
-        initializeProbabilities(network);
-
-        junctionTree = new JunctionTreeAlgorithm();
-        junctionTree.setNetwork(net);
+    /**
+     * Creates a new model on top of the given - possibly shared - network. Only the evidence and the beliefs are
+     * specific to this model.
+     */
+    public JayesCallModel(final JayesCallNetwork network) {
+        this.network = network;
+        typeName = network.typeName;
+        callgroupNode = network.callgroupNode;
+        overridesNode = network.overridesNode;
+        definedByNode = network.definedByNode;
+        defTypeNode = network.defTypeNode;
+        callNodes = network.callNodes;
+        callNodesBySignature = network.callNodesBySignature;
+        noMethodNode = network.noMethodNode;
     }
 
-    private void initializeNodes(final BayesianNetwork network) {
-        Collection<Node> nodes = network.getNodes();
-        for (Node node : nodes) {
-            BayesNode bayesNode = new BayesNode(node.getIdentifier());
-            String[] states = node.getStates();
-            for (int i = 0; i < states.length; i++) {
-                bayesNode.addOutcome(states[i]);
-            }
-            net.addNode(bayesNode);
-
-            if (node.getIdentifier().equals(N_NODEID_CONTEXT)) {
-                overridesNode = bayesNode;
-            } else if (node.getIdentifier().equals(N_NODEID_CALL_GROUPS)) {
-                callgroupNode = bayesNode;
-            } else if (node.getIdentifier().equals(N_NODEID_DEF_KIND)) {
-                defTypeNode = bayesNode;
-            } else if (node.getIdentifier().equals(N_NODEID_DEF)) {
-                definedByNode = bayesNode;
-            } else {
-                VmMethodName vmMethodName = VmMethodName.get(node.getIdentifier());
-                callNodes.put(vmMethodName, bayesNode);
+    private JunctionTreeAlgorithm getJunctionTree() {
+        if (junctionTree == null) {
+            junctionTree = new JunctionTreeAlgorithm();
+            junctionTree.setNetwork(network.getNet());
+            for (Entry<BayesNode, String> observation : evidence.entrySet()) {
+                junctionTree.addEvidence(observation.getKey(), observation.getValue());
             }
         }
+        return junctionTree;
     }
 
-    private void initializeArcs(final BayesianNetwork network) {
-        Collection<Node> nodes = network.getNodes();
-        for (Node node : nodes) {
-            Node[] parents = node.getParents();
-            BayesNode children = net.getNode(node.getIdentifier());
-            List<BayesNode> bnParents = Lists.newLinkedList();
-            for (int i = 0; i < parents.length; i++) {
-                bnParents.add(net.getNode(parents[i].getIdentifier()));
-            }
-            children.setParents(bnParents);
+    private void addEvidence(final BayesNode node, final String state) {
+        evidence.put(node, state);
+        if (junctionTree != null) {
+            junctionTree.addEvidence(node, state);
         }
     }
 
-    private void initializeProbabilities(final BayesianNetwork network) {
-        Collection<Node> nodes = network.getNodes();
-        for (Node node : nodes) {
-            BayesNode bayesNode = net.getNode(node.getIdentifier());
-            bayesNode.setProbabilities(node.getProbabilities());
+    private void removeEvidence(final BayesNode node) {
+        evidence.remove(node);
+        if (junctionTree != null) {
+            junctionTree.removeEvidence(node);
         }
     }
 
+    public void setInferenceMode(final InferenceMode mode) {
+        inferenceMode = ensureIsNotNull(mode);
+    }
+
+    /**
+     * Sets the maximum absolute error of any belief computed with {@link InferenceMode#APPROXIMATE approximate}
+     * inference. Defaults to 0.01.
+     */
+    public void setMaxApproximationError(final double maxError) {
+        ensureIsTrue(maxError >= 0d && maxError < 1d, "max error must be in [0,1) but was %s", maxError);
+        maxApproximationError = maxError;
+    }
+
+    /**
+     * Sets the time a single request for recommendations may take before {@link InferenceMode#AUTO} switches to
+     * approximate inference. Defaults to 5 milliseconds.
+     */
+    public void setLatencyBudget(final long duration, final TimeUnit unit) {
+        latencyBudgetNanos = unit.toNanos(duration);
+    }
+
+    /**
+     * Returns the network this model performs inference on.
+     */
+    public JayesCallNetwork getNetwork() {
+        return network;
+    }
+
     private Optional<IMethodName> computeMethodNameFromState(final BayesNode node) {
-        String stateId = junctionTree.getEvidence().get(node);
+        String stateId = evidence.get(node);
         if (stateId == null) {
             return absent();
         }
@@ -182,24 +233,29 @@ public class JayesCallModel implements ICallModel {
 
     @Override
     public ImmutableSet<IMethodName> getKnownCalls() {
-        return ImmutableSet.<IMethodName> builder().addAll(callNodes.keySet()).build();
+        return network.getKnownCalls();
+    }
+
+    /**
+     * Returns the known calls whose method name starts with the given prefix, ignoring case, sorted by name.
+     */
+    public ImmutableList<IMethodName> getKnownCalls(final String prefix) {
+        return network.getKnownCalls(prefix);
     }
 
     @Override
     public ImmutableSet<IMethodName> getKnownOverrideContexts() {
-        Collection<IMethodName> tmp = transform(overridesNode.getOutcomes(), new StringToMethodNameFunction());
-        return copyOf(tmp);
+        return network.getKnownOverrideContexts();
     }
 
     @Override
     public ImmutableSet<String> getKnownPatterns() {
-        return copyOf(callgroupNode.getOutcomes());
+        return network.getKnownPatterns();
     }
 
     @Override
     public ImmutableSet<IMethodName> getObservedCalls() {
         Builder<IMethodName> builder = ImmutableSet.<IMethodName> builder();
-        Map<BayesNode, String> evidence = junctionTree.getEvidence();
         for (Entry<IMethodName, BayesNode> pair : callNodes.entrySet()) {
             BayesNode node = pair.getValue();
             IMethodName method = pair.getKey();
@@ -225,33 +281,53 @@ public class JayesCallModel implements ICallModel {
 
     @Override
     public Optional<DefinitionType> getObservedDefinitionType() {
-        String stateId = junctionTree.getEvidence().get(defTypeNode);
+        String stateId = evidence.get(defTypeNode);
         if (stateId == null) {
             return absent();
         }
         return of(DefinitionType.valueOf(stateId));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned list is immutable. Results of exact inference are memorized per evidence in the shared
+     * {@link JayesCallNetwork}; if the same evidence is queried again - by this or any other model on the same network
+     * - the memorized result is returned without running inference, independent of the {@link InferenceMode}.
+     */
     @Override
-    public List<Recommendation<IMethodName>> getRecommendedCalls() {
-        List<Recommendation<IMethodName>> recs = Lists.newLinkedList();
+    public ImmutableList<Recommendation<IMethodName>> getRecommendedCalls() {
+        EvidenceKey key = new EvidenceKey(evidence);
+        ImmutableList<Recommendation<IMethodName>> cached = network.getCachedRecommendedCalls(key);
+        if (cached != null) {
+            return cached;
+        }
+        ImmutableList.Builder<Recommendation<IMethodName>> recs = ImmutableList.builder();
+        Inference inference = newInference();
         for (IMethodName method : callNodes.keySet()) {
             BayesNode bayesNode = callNodes.get(method);
-            boolean isAlreadyUsedAsEvidence = junctionTree.getEvidence().containsKey(bayesNode);
+            boolean isAlreadyUsedAsEvidence = evidence.containsKey(bayesNode);
             if (!isAlreadyUsedAsEvidence) {
                 int indexForTrue = bayesNode.getOutcomeIndex(N_STATE_TRUE);
-                double[] probabilities = junctionTree.getBeliefs(bayesNode);
+                double[] probabilities = inference.getBeliefs(bayesNode);
                 double probability = probabilities[indexForTrue];
                 recs.add(newRecommendation(method, probability));
             }
         }
-        return recs;
+        inference.finish();
+        ImmutableList<Recommendation<IMethodName>> res = recs.build();
+        if (inference.isExact()) {
+            network.cacheRecommendedCalls(key, res);
+        }
+        return res;
     }
 
     @Override
     public List<Recommendation<IMethodName>> getRecommendedDefinitions() {
-        List<Recommendation<IMethodName>> recs = Lists.newLinkedList();
-        double[] beliefs = junctionTree.getBeliefs(definedByNode);
+        Inference inference = newInference();
+        double[] beliefs = inference.getBeliefs(definedByNode);
+        inference.finish();
+        Sink<IMethodName> sink = DEFINITIONS.newSink(definedByNode.getOutcomeCount());
         for (int i = definedByNode.getOutcomeCount(); i-- > 0;) {
             if (beliefs[i] > 0.01d) {
                 String outcomeName = definedByNode.getOutcomeName(i);
@@ -261,18 +337,18 @@ public class JayesCallModel implements ICallModel {
                 if (outcomeName.equals(UNKNOWN_METHOD.getIdentifier())) {
                     continue;
                 }
-                VmMethodName definition = VmMethodName.get(outcomeName);
-                Recommendation<IMethodName> r = newRecommendation(definition, beliefs[i]);
-                recs.add(r);
+                sink.accept(VmMethodName.get(outcomeName), beliefs[i]);
             }
         }
-        return recs;
+        return sink.finish();
     }
 
     @Override
     public List<Recommendation<String>> getRecommendedPatterns() {
         List<Recommendation<String>> recs = Lists.newLinkedList();
-        double[] probs = junctionTree.getBeliefs(callgroupNode);
+        Inference inference = newInference();
+        double[] probs = inference.getBeliefs(callgroupNode);
+        inference.finish();
         for (String outcome : callgroupNode.getOutcomes()) {
             int probIndex = callgroupNode.getOutcomeIndex(outcome);
             double p = probs[probIndex];
@@ -281,6 +357,141 @@ public class JayesCallModel implements ICallModel {
         return recs;
     }
 
+    private Inference newInference() {
+        if (network.mixtureTables == null || inferenceMode == InferenceMode.EXACT) {
+            return new Inference(null);
+        }
+        if (inferenceMode == InferenceMode.AUTO) {
+            long estimate = network.getExactInferenceNanos();
+            if (estimate < 0 || estimate <= latencyBudgetNanos || network.resampleExactInference()) {
+                return new Inference(null);
+            }
+        }
+        return new Inference(computePrunedCallgroupPosterior());
+    }
+
+    /**
+     * Computes the posterior of the callgroup node given the current evidence and sets the least likely call groups
+     * to zero such that their total mass does not exceed {@link #maxApproximationError}. Returns <code>null</code> if
+     * the evidence is impossible under every call group.
+     */
+    @Nullable
+    private double[] computePrunedCallgroupPosterior() {
+        Map<BayesNode, double[]> tables = network.mixtureTables;
+        double[] posterior;
+        String observedPattern = evidence.get(callgroupNode);
+        if (observedPattern != null) {
+            posterior = new double[callgroupNode.getOutcomeCount()];
+            posterior[callgroupNode.getOutcomeIndex(observedPattern)] = 1d;
+            return posterior;
+        }
+        posterior = tables.get(callgroupNode).clone();
+        for (Entry<BayesNode, String> observation : evidence.entrySet()) {
+            BayesNode node = observation.getKey();
+            int outcomes = node.getOutcomeCount();
+            int outcome = node.getOutcomeIndex(observation.getValue());
+            double[] table = tables.get(node);
+            for (int p = 0; p < posterior.length; p++) {
+                posterior[p] *= table[p * outcomes + outcome];
+            }
+        }
+        double sum = 0d;
+        for (double p : posterior) {
+            sum += p;
+        }
+        if (sum <= 0d) {
+            return null;
+        }
+        for (int p = 0; p < posterior.length; p++) {
+            posterior[p] /= sum;
+        }
+
+        double[] sorted = posterior.clone();
+        Arrays.sort(sorted);
+        double pruned = 0d;
+        int count = 0;
+        while (count < sorted.length && pruned + sorted[count] <= maxApproximationError) {
+            pruned += sorted[count++];
+        }
+        if (count > 0) {
+            double threshold = sorted[count - 1];
+            int ties = 0;
+            for (int i = count; i-- > 0 && sorted[i] == threshold;) {
+                ties++;
+            }
+            for (int p = 0; p < posterior.length; p++) {
+                if (posterior[p] < threshold || posterior[p] == threshold && ties-- > 0) {
+                    posterior[p] = 0d;
+                }
+            }
+        }
+        return posterior;
+    }
+
+    /**
+     * Computes the beliefs for a single request, either exactly or as a mixture over call groups.
+     */
+    private final class Inference {
+
+        /**
+         * The pruned callgroup posterior, or <code>null</code> for exact inference.
+         */
+        private final double[] posterior;
+        private final long start;
+
+        private Inference(@Nullable final double[] posterior) {
+            this.posterior = posterior;
+            if (posterior == null) {
+                // building the junction tree is a one-time cost per model and must not count as inference time
+                getJunctionTree();
+            }
+            start = System.nanoTime();
+        }
+
+        private double[] getBeliefs(final BayesNode node) {
+            if (posterior == null) {
+                return getJunctionTree().getBeliefs(node);
+            }
+            double[] res = new double[node.getOutcomeCount()];
+            String observed = evidence.get(node);
+            if (observed != null) {
+                res[node.getOutcomeIndex(observed)] = 1d;
+            } else if (node == callgroupNode) {
+                System.arraycopy(posterior, 0, res, 0, res.length);
+            } else {
+                double[] table = network.mixtureTables.get(node);
+                for (int p = 0; p < posterior.length; p++) {
+                    double weight = posterior[p];
+                    if (weight == 0d) {
+                        continue;
+                    }
+                    for (int o = 0, offset = p * res.length; o < res.length; o++) {
+                        res[o] += weight * table[offset + o];
+                    }
+                }
+            }
+            return res;
+        }
+
+        private boolean isExact() {
+            return posterior == null;
+        }
+
+        private void finish() {
+            if (posterior == null) {
+                network.recordExactInference(System.nanoTime() - start);
+            }
+        }
+    }
+
+    double[] getExactBeliefs(final BayesNode node) {
+        return getJunctionTree().getBeliefs(node);
+    }
+
+    void observe(final BayesNode node, final String state) {
+        addEvidence(node, state);
+    }
+
     @Override
     public ITypeName getReceiverType() {
         return typeName;
@@ -288,36 +499,70 @@ public class JayesCallModel implements ICallModel {
 
     @Override
     public void reset() {
-        junctionTree.getEvidence().clear();
+        if (junctionTree != null) {
+            // clearing the evidence map of the junction tree directly would leave its memorized beliefs valid
+            for (BayesNode node : evidence.keySet()) {
+                junctionTree.removeEvidence(node);
+            }
+        }
+        evidence.clear();
+        observedCallNodes = Collections.emptySet();
     }
 
+    /**
+     * Updates the call evidence incrementally: only calls that were not observed before are added and only calls
+     * that are no longer observed are removed. Evidence that does not change is left untouched.
+     */
     @Override
     public boolean setObservedCalls(final Set<IMethodName> calls) {
-        for (IMethodName m : getObservedCalls()) {
-            // clear previously called methods by setting observation state to NULL
-            setCalled(m, null);
-        }
-
+        Set<BayesNode> newObservedCallNodes = Sets.newHashSetWithExpectedSize(calls.size());
         boolean pass = true;
         for (IMethodName m : calls) {
-            pass &= setCalled(m, N_STATE_TRUE);
+            BayesNode node = callNodesBySignature.get(m.getSignature());
+            if (node == null) {
+                pass = false;
+                continue;
+            }
+            if (node == noMethodNode) {
+                // set to false below anyway
+                continue;
+            }
+            newObservedCallNodes.add(node);
+            addEvidenceIfChanged(node, N_STATE_TRUE);
+        }
+        for (BayesNode node : observedCallNodes) {
+            // clear previously called methods that are no longer called
+            if (!newObservedCallNodes.contains(node) && N_STATE_TRUE.equals(evidence.get(node))) {
+                removeEvidence(node);
+            }
         }
+        observedCallNodes = newObservedCallNodes;
+
         // explicitly set the "no-method" used node to false:
-        pass &= setCalled(Constants.NO_METHOD, N_STATE_FALSE);
+        if (noMethodNode == null) {
+            return false;
+        }
+        addEvidenceIfChanged(noMethodNode, N_STATE_FALSE);
         return pass;
     }
 
+    private void addEvidenceIfChanged(final BayesNode node, final String state) {
+        if (!state.equals(evidence.get(node))) {
+            addEvidence(node, state);
+        }
+    }
+
     @Override
     public boolean setObservedDefiningMethod(@Nullable final IMethodName newDefinition) {
         if (newDefinition == null) {
-            junctionTree.removeEvidence(definedByNode);
+            removeEvidence(definedByNode);
             return true;
         }
         // else:
         String identifier = newDefinition.getIdentifier();
         boolean contains = definedByNode.getOutcomes().contains(identifier);
         if (contains) {
-            junctionTree.addEvidence(definedByNode, identifier);
+            addEvidence(definedByNode, identifier);
         }
         return contains;
     }
@@ -325,14 +570,14 @@ public class JayesCallModel implements ICallModel {
     @Override
     public boolean setObservedOverrideContext(@Nullable final IMethodName newEnclosingMethod) {
         if (newEnclosingMethod == null) {
-            junctionTree.removeEvidence(overridesNode);
+            removeEvidence(overridesNode);
             return true;
         }
         // else:
         String id = newEnclosingMethod.getIdentifier();
         boolean contains = overridesNode.getOutcomes().contains(id);
         if (contains) {
-            junctionTree.addEvidence(overridesNode, id);
+            addEvidence(overridesNode, id);
         }
         return contains;
     }
@@ -340,14 +585,14 @@ public class JayesCallModel implements ICallModel {
     @Override
     public boolean setObservedDefinitionType(@Nullable final DefinitionType newDef) {
         if (newDef == null) {
-            junctionTree.removeEvidence(defTypeNode);
+            removeEvidence(defTypeNode);
             return true;
         }
         // else:
         String identifier = newDef.toString();
         boolean contains = defTypeNode.getOutcomes().contains(identifier);
         if (contains) {
-            junctionTree.addEvidence(defTypeNode, identifier);
+            addEvidence(defTypeNode, identifier);
         }
         return contains;
     }
@@ -355,30 +600,15 @@ public class JayesCallModel implements ICallModel {
     @Override
     public boolean setObservedPattern(@Nullable final String patternName) {
         if (patternName == null) {
-            junctionTree.removeEvidence(callgroupNode);
+            removeEvidence(callgroupNode);
             return true;
         }
         // else:
         boolean contains = callgroupNode.getOutcomes().contains(patternName);
         if (contains) {
-            junctionTree.addEvidence(callgroupNode, patternName);
+            addEvidence(callgroupNode, patternName);
         }
         return contains;
     }
 
-    private boolean setCalled(final IMethodName m, @Nullable final String state) {
-        IMethodName rebased = VmMethodName.rebase(typeName, m);
-        BayesNode node = net.getNode(rebased.getIdentifier());
-        if (node == null) {
-            return false;
-        }
-
-        if (state == null) {
-            junctionTree.removeEvidence(node);
-        } else {
-            junctionTree.addEvidence(node, state);
-        }
-        return true;
-    }
-
 }
@@ -0,0 +1,445 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.calls;
+
+import static com.google.common.collect.Collections2.transform;
+import static org.eclipse.recommenders.utils.Constants.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.recommenders.commons.bayesnet.BayesianNetwork;
+import org.eclipse.recommenders.commons.bayesnet.Node;
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.utils.Recommendation;
+import org.eclipse.recommenders.utils.annotations.Nullable;
+import org.eclipse.recommenders.utils.names.IMethodName;
+import org.eclipse.recommenders.utils.names.ITypeName;
+import org.eclipse.recommenders.utils.names.VmMethodName;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * The structure and the conditional probability tables of a call model, compiled into a {@link BayesNet} once.
+ * <p>
+ * Only the nodes and their outcomes are created eagerly, which is all that is needed to list the known calls,
+ * patterns, or contexts. Arcs and probabilities are wired on the first exact inference on any of the models.
+ * <p>
+ * Apart from that, a {@link JayesCallNetwork} is never modified after construction and may thus be shared between
+ * threads. All state
+ * that changes during inference, i.e., evidence and beliefs, lives in the {@link JayesCallModel}s created by
+ * {@link #newModel()}. Each of these models must still be used by a single recommender at a time.
+ * 
+ * @see JayesCallModel for the expected structure of the network
+ */
+@Beta
+public final class JayesCallNetwork {
+
+    /**
+     * Outcome names repeat a lot, both within and across networks, e.g., "true" and "false" or the names of common
+     * override contexts.
+     */
+    private static final Interner<String> OUTCOMES = Interners.newWeakInterner();
+    private static final int EXACT_INFERENCE_RESAMPLING_INTERVAL = 64;
+
+    final ITypeName typeName;
+    private final BayesNet net;
+    /**
+     * The network to take arcs and probabilities from, or <code>null</code> once these have been wired.
+     */
+    private BayesianNetwork source;
+    private volatile boolean wired;
+    final BayesNode callgroupNode;
+    final BayesNode overridesNode;
+    final BayesNode definedByNode;
+    final BayesNode defTypeNode;
+    final Map<IMethodName, BayesNode> callNodes;
+    /**
+     * Call nodes indexed by the signature of their method. Observed calls are resolved through this map instead of
+     * rebasing every call onto {@link #typeName} and looking it up by its identifier.
+     */
+    final Map<String, BayesNode> callNodesBySignature;
+    final BayesNode noMethodNode;
+    /**
+     * The conditional probability tables of all nodes if every node except the callgroup node has the callgroup node
+     * as its only parent, <code>null</code> otherwise. Only then can beliefs be computed as a mixture over call
+     * groups.
+     * 
+     * @see JayesCallModel.InferenceMode#APPROXIMATE
+     */
+    final Map<BayesNode, double[]> mixtureTables;
+    /**
+     * A moving average of the time exact inference took on this network, or <code>-1</code> if unknown. Shared by all
+     * models so that new models can pick the inference mode right away.
+     */
+    private volatile long exactInferenceNanos = -1;
+    /**
+     * The number of requests that used approximate inference since exact inference was last measured.
+     */
+    private volatile int approximateInferences;
+    /**
+     * Recommended calls computed with exact inference, indexed by the evidence they were computed for.
+     */
+    private final Cache<EvidenceKey, ImmutableList<Recommendation<IMethodName>>> recommendedCalls = CacheBuilder
+            .newBuilder().maximumSize(128).build();
+
+    private final ImmutableSet<IMethodName> knownCalls;
+    private final ImmutableSet<String> knownPatterns;
+    /**
+     * Computed on first request since {@link VmMethodName#get(String)} synchronizes globally.
+     */
+    private final Supplier<ImmutableSet<IMethodName>> knownOverrideContexts = Suppliers
+            .memoize(new Supplier<ImmutableSet<IMethodName>>() {
+
+                @Override
+                public ImmutableSet<IMethodName> get() {
+                    if (overridesNode == null) {
+                        return ImmutableSet.of();
+                    }
+                    return ImmutableSet.copyOf(transform(overridesNode.getOutcomes(),
+                            new StringToMethodNameFunction()));
+                }
+            });
+    /**
+     * The known calls sorted by their lower-cased method name, and these names, for prefix searches.
+     */
+    private final ImmutableList<IMethodName> callsByName;
+    private final String[] callNames;
+
+    public JayesCallNetwork(final ITypeName name, final BayesianNetwork network) {
+        typeName = name;
+        net = new BayesNet();
+        HashMap<IMethodName, BayesNode> calls = new HashMap<IMethodName, BayesNode>();
+        HashMap<String, BayesNode> callsBySignature = new HashMap<String, BayesNode>();
+        BayesNode callgroup = null;
+        BayesNode overrides = null;
+        BayesNode definedBy = null;
+        BayesNode defType = null;
+
+        for (Node node : network.getNodes()) {
+            BayesNode bayesNode = new BayesNode(node.getIdentifier());
+            String[] states = node.getStates();
+            for (int i = 0; i < states.length; i++) {
+                bayesNode.addOutcome(OUTCOMES.intern(states[i]));
+            }
+            net.addNode(bayesNode);
+
+            if (node.getIdentifier().equals(N_NODEID_CONTEXT)) {
+                overrides = bayesNode;
+            } else if (node.getIdentifier().equals(N_NODEID_CALL_GROUPS)) {
+                callgroup = bayesNode;
+            } else if (node.getIdentifier().equals(N_NODEID_DEF_KIND)) {
+                defType = bayesNode;
+            } else if (node.getIdentifier().equals(N_NODEID_DEF)) {
+                definedBy = bayesNode;
+            } else {
+                VmMethodName vmMethodName = VmMethodName.get(node.getIdentifier());
+                calls.put(vmMethodName, bayesNode);
+                if (vmMethodName.getDeclaringType().getIdentifier().equals(name.getIdentifier())) {
+                    callsBySignature.put(vmMethodName.getSignature(), bayesNode);
+                }
+            }
+        }
+        source = network;
+
+        callgroupNode = callgroup;
+        overridesNode = overrides;
+        definedByNode = definedBy;
+        defTypeNode = defType;
+        callNodes = Collections.unmodifiableMap(calls);
+        callNodesBySignature = Collections.unmodifiableMap(callsBySignature);
+        noMethodNode = callsBySignature.get(NO_METHOD.getSignature());
+        knownCalls = ImmutableSet.copyOf(calls.keySet());
+        knownPatterns = callgroup == null ? ImmutableSet.<String> of() : ImmutableSet.copyOf(callgroup.getOutcomes());
+        callsByName = sortByName(calls.keySet());
+        callNames = new String[callsByName.size()];
+        for (int i = 0; i < callNames.length; i++) {
+            callNames[i] = toSearchKey(callsByName.get(i).getName());
+        }
+        mixtureTables = isMixture(network) ? computeMixtureTables(network) : null;
+    }
+
+    private boolean isMixture(final BayesianNetwork network) {
+        if (callgroupNode == null) {
+            return false;
+        }
+        for (Node node : network.getNodes()) {
+            Node[] parents = node.getParents();
+            if (node.getIdentifier().equals(N_NODEID_CALL_GROUPS)) {
+                if (parents.length != 0) {
+                    return false;
+                }
+            } else if (parents.length != 1 || !parents[0].getIdentifier().equals(N_NODEID_CALL_GROUPS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<BayesNode, double[]> computeMixtureTables(final BayesianNetwork network) {
+        HashMap<BayesNode, double[]> res = new HashMap<BayesNode, double[]>();
+        for (Node node : network.getNodes()) {
+            res.put(net.getNode(node.getIdentifier()), node.getProbabilities());
+        }
+        return Collections.unmodifiableMap(res);
+    }
+
+    long getExactInferenceNanos() {
+        return exactInferenceNanos;
+    }
+
+    void recordExactInference(final long nanos) {
+        // races between models may lose a sample, which is fine for an estimate
+        long old = exactInferenceNanos;
+        exactInferenceNanos = old < 0 ? nanos : (7 * old + nanos) / 8;
+    }
+
+    /**
+     * Returns whether a request that would use approximate inference because exact inference exceeded the latency
+     * budget should use exact inference nevertheless. Every {@value #EXACT_INFERENCE_RESAMPLING_INTERVAL}th such
+     * request does, so that the estimate recovers once exact inference has become faster, e.g., after the JIT compiled
+     * it.
+     */
+    boolean resampleExactInference() {
+        // races between models may skip or repeat a sample, which is fine for an estimate
+        int count = approximateInferences + 1;
+        if (count >= EXACT_INFERENCE_RESAMPLING_INTERVAL) {
+            approximateInferences = 0;
+            return true;
+        }
+        approximateInferences = count;
+        return false;
+    }
+
+    /**
+     * Returns the complete network, wiring arcs and probabilities if not done yet.
+     */
+    BayesNet getNet() {
+        if (!wired) {
+            synchronized (this) {
+                if (!wired) {
+                    initializeArcs(source);
+                    initializeProbabilities(source);
+                    source = null;
+                    wired = true;
+                }
+            }
+        }
+        return net;
+    }
+
+    private void initializeArcs(final BayesianNetwork network) {
+        Collection<Node> nodes = network.getNodes();
+        for (Node node : nodes) {
+            Node[] parents = node.getParents();
+            BayesNode children = net.getNode(node.getIdentifier());
+            BayesNode[] bnParents = new BayesNode[parents.length];
+            for (int i = 0; i < parents.length; i++) {
+                bnParents[i] = net.getNode(parents[i].getIdentifier());
+            }
+            children.setParents(Arrays.asList(bnParents));
+        }
+    }
+
+    private void initializeProbabilities(final BayesianNetwork network) {
+        Collection<Node> nodes = network.getNodes();
+        for (Node node : nodes) {
+            BayesNode bayesNode = net.getNode(node.getIdentifier());
+            bayesNode.setProbabilities(node.getProbabilities());
+        }
+    }
+
+    @Nullable
+    ImmutableList<Recommendation<IMethodName>> getCachedRecommendedCalls(final EvidenceKey key) {
+        return recommendedCalls.getIfPresent(key);
+    }
+
+    void cacheRecommendedCalls(final EvidenceKey key, final ImmutableList<Recommendation<IMethodName>> recs) {
+        recommendedCalls.put(key, recs);
+    }
+
+    /**
+     * Precomputes the recommended calls for the most frequent queries, so that these queries do not need to run
+     * inference at all. Frequent queries are those without any observed calls and with any combination of none or
+     * one of the <code>n</code> most likely definition kinds and override contexts. Usually called once after a
+     * network has been loaded.
+     */
+    public void precompute(final int n) {
+        JayesCallModel model = newModel();
+        int[] kinds = mostLikelyOutcomes(model, defTypeNode, n);
+        int[] contexts = mostLikelyOutcomes(model, overridesNode, n);
+        for (int kind = -1; kind < kinds.length; kind++) {
+            for (int context = -1; context < contexts.length; context++) {
+                model.reset();
+                model.setObservedCalls(Collections.<IMethodName> emptySet());
+                if (kind >= 0) {
+                    model.observe(defTypeNode, defTypeNode.getOutcomeName(kinds[kind]));
+                }
+                if (context >= 0) {
+                    model.observe(overridesNode, overridesNode.getOutcomeName(contexts[context]));
+                }
+                model.getRecommendedCalls();
+            }
+        }
+    }
+
+    private static int[] mostLikelyOutcomes(final JayesCallModel model, @Nullable final BayesNode node, final int n) {
+        if (node == null) {
+            return new int[0];
+        }
+        final double[] beliefs = model.getExactBeliefs(node);
+        Integer[] outcomes = new Integer[beliefs.length];
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = i;
+        }
+        Arrays.sort(outcomes, new Comparator<Integer>() {
+
+            @Override
+            public int compare(final Integer o1, final Integer o2) {
+                return Double.compare(beliefs[o2], beliefs[o1]);
+            }
+        });
+        int[] res = new int[Math.min(n, outcomes.length)];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = outcomes[i];
+        }
+        return res;
+    }
+
+    private static ImmutableList<IMethodName> sortByName(final Collection<IMethodName> calls) {
+        IMethodName[] res = calls.toArray(new IMethodName[calls.size()]);
+        Arrays.sort(res, new Comparator<IMethodName>() {
+
+            @Override
+            public int compare(final IMethodName o1, final IMethodName o2) {
+                int res = toSearchKey(o1.getName()).compareTo(toSearchKey(o2.getName()));
+                return res != 0 ? res : o1.getIdentifier().compareTo(o2.getIdentifier());
+            }
+        });
+        return ImmutableList.copyOf(res);
+    }
+
+    private static String toSearchKey(final String name) {
+        return name.toLowerCase(Locale.ENGLISH);
+    }
+
+    public ImmutableSet<IMethodName> getKnownCalls() {
+        return knownCalls;
+    }
+
+    /**
+     * Returns the known calls whose method name starts with the given prefix, ignoring case, sorted by name.
+     */
+    public ImmutableList<IMethodName> getKnownCalls(final String prefix) {
+        String key = toSearchKey(prefix);
+        int from = lowerBound(key);
+        int to = from;
+        while (to < callNames.length && callNames[to].startsWith(key)) {
+            to++;
+        }
+        return callsByName.subList(from, to);
+    }
+
+    private int lowerBound(final String key) {
+        int low = 0;
+        int high = callNames.length;
+        while (low < high) {
+            int mid = low + high >>> 1;
+            if (callNames[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public ImmutableSet<IMethodName> getKnownOverrideContexts() {
+        return knownOverrideContexts.get();
+    }
+
+    public ImmutableSet<String> getKnownPatterns() {
+        return knownPatterns;
+    }
+
+    public ITypeName getReceiverType() {
+        return typeName;
+    }
+
+    /**
+     * Creates a new model that performs inference on this network. The model starts without any evidence.
+     */
+    public JayesCallModel newModel() {
+        return new JayesCallModel(this);
+    }
+
+    private static final class StringToMethodNameFunction implements Function<String, IMethodName> {
+        @Override
+        public IMethodName apply(final String input) {
+            return VmMethodName.get(input);
+        }
+    }
+
+    /**
+     * A compact, order-independent fingerprint of the evidence of a model, i.e., of the observed (node, outcome)
+     * pairs.
+     */
+    static final class EvidenceKey {
+
+        private final long[] observations;
+        private final int hash;
+
+        EvidenceKey(final Map<BayesNode, String> evidence) {
+            observations = new long[evidence.size()];
+            int i = 0;
+            for (Entry<BayesNode, String> observation : evidence.entrySet()) {
+                BayesNode node = observation.getKey();
+                int outcome = node.getOutcomeIndex(observation.getValue());
+                observations[i++] = (long) node.getId() << 32 | outcome & 0xFFFFFFFFL;
+            }
+            Arrays.sort(observations);
+            hash = Arrays.hashCode(observations);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof EvidenceKey)) {
+                return false;
+            }
+            EvidenceKey other = (EvidenceKey) obj;
+            return hash == other.hash && Arrays.equals(observations, other.observations);
+        }
+    }
+}
@@ -1,68 +1,166 @@
 package org.eclipse.recommenders.calls;
 
+import static com.google.common.base.Optional.absent;
 import static com.google.common.base.Optional.of;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static org.eclipse.recommenders.utils.IOUtils.closeQuietly;
-import static org.eclipse.recommenders.utils.Zips.closeQuietly;
-import static org.eclipse.recommenders.utils.Zips.readFully;
+import static org.eclipse.recommenders.utils.Zips.openArchive;
+import static org.eclipse.recommenders.utils.Zips.warmup;
+import static org.eclipse.recommenders.utils.Zips.warmupInBackground;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.recommenders.commons.bayesnet.BayesianNetwork;
 import org.eclipse.recommenders.models.BasedTypeName;
+import org.eclipse.recommenders.utils.IZipArchive;
 import org.eclipse.recommenders.utils.Openable;
 import org.eclipse.recommenders.utils.Zips;
+import org.eclipse.recommenders.utils.annotations.Nullable;
 import org.eclipse.recommenders.utils.names.ITypeName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Optional;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Sets;
 
 /**
  * A model provider that uses a single zip file to resolve and load call models from.
  * <p>
- * Note that this provider does not implement any pooling behavior, i.e., calls to {@link #acquireModel(BasedTypeName)}
- * may return the <b>same</b> {@link ICallModel} independent of whether {@link #releaseModel(ICallModel)} was called or
- * not. Thus, these <b>models should not be shared between and used by several recommenders at the same time</b>.
+ * The compiled {@link JayesCallNetwork}s are cached and shared. Every call to {@link #acquireModel(BasedTypeName)}
+ * returns a model that is not in use by anyone else - either a fresh one or one that was handed back via
+ * {@link #releaseModel(ICallModel)}. Thus, several recommenders may use models for the same type at the same time, as
+ * long as they release them when done.
+ * <p>
+ * Optionally, the recommended calls for the most frequent queries of a network are computed in the background once
+ * the network has been loaded, so that these queries are answered without inference later on. See
+ * {@link #setPrecomputeExecutor(Executor)}.
  */
 @Beta
 public class OneZipCallModelProvider implements ICallModelProvider, Openable {
 
+    /**
+     * The number of most likely definition kinds and override contexts whose recommendations are precomputed after a
+     * network has been loaded.
+     *
+     * @see JayesCallNetwork#precompute(int)
+     */
+    private static final int PRECOMPUTED_OUTCOMES = 2;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
     private final File models;
-    private ZipFile zip;
-    private final LoadingCache<ITypeName, ICallModel> cache = CacheBuilder.newBuilder()
+    private final boolean warmupInBackground;
+    private final boolean inMemory;
+    private IZipArchive zip;
+    private Future<Long> warmup;
+    private final AtomicBoolean warmupFailureLogged = new AtomicBoolean();
+    private volatile Executor precomputeExecutor;
+    private final LoadingCache<ITypeName, Optional<CachedNetwork>> cache = CacheBuilder.newBuilder()
             .expireAfterAccess(3, TimeUnit.MINUTES)
             .maximumSize(30)
             .build(new CallNetCacheLoader());
 
     public OneZipCallModelProvider(File models) {
+        this(models, false);
+    }
+
+    /**
+     * @param warmupInBackground if <code>true</code>, {@link #open()} does not wait until the model archive has been
+     *            pulled into the OS page cache
+     */
+    public OneZipCallModelProvider(File models, boolean warmupInBackground) {
+        this(models, warmupInBackground, false);
+    }
+
+    /**
+     * @param warmupInBackground if <code>true</code>, {@link #open()} does not wait until the model archive has been
+     *            pulled into the OS page cache
+     * @param inMemory if <code>true</code>, {@link #open()} loads the complete model archive into memory. No warmup
+     *            is performed in this case
+     */
+    public OneZipCallModelProvider(File models, boolean warmupInBackground, boolean inMemory) {
         this.models = models;
+        this.warmupInBackground = warmupInBackground;
+        this.inMemory = inMemory;
+    }
+
+    /**
+     * Sets the executor to precompute the recommended calls for the most frequent queries of every network on, once
+     * the network has been loaded. Precomputation builds the complete network and runs several exact inferences;
+     * hence, it is not done by default and never on the thread that requests a model. Pass <code>null</code> to
+     * disable it again.
+     *
+     * @see JayesCallNetwork#precompute(int)
+     */
+    public void setPrecomputeExecutor(@Nullable Executor executor) {
+        precomputeExecutor = executor;
     }
 
     @Override
     public void open() throws IOException {
-        readFully(models);
-        zip = new ZipFile(models);
+        if (!inMemory) {
+            warmup = warmupInBackground ? warmupInBackground(models) : immediateFuture(warmup(models));
+        }
+        zip = openArchive(models, inMemory);
     }
 
     @Override
     public void close() throws IOException {
+        if (warmup != null) {
+            warmup.cancel(true);
+        }
         closeQuietly(zip);
     }
 
+    /**
+     * Returns the time in milliseconds it took to pull the model archive into the OS page cache - if the warmup has
+     * completed successfully already. A failed warmup is logged once and otherwise ignored; the models are then simply
+     * read from disk.
+     */
+    public Optional<Long> getWarmupTime() {
+        if (warmup == null || !warmup.isDone() || warmup.isCancelled()) {
+            return absent();
+        }
+        try {
+            return of(warmup.get());
+        } catch (ExecutionException e) {
+            if (warmupFailureLogged.compareAndSet(false, true)) {
+                log.warn("Failed to warm up model archive " + models, e.getCause());
+            }
+            return absent();
+        } catch (CancellationException e) {
+            // cancelled by close() after the check above
+            return absent();
+        } catch (InterruptedException e) {
+            // cannot happen for a completed future, but keep the interrupt for the caller anyway
+            Thread.currentThread().interrupt();
+            return absent();
+        }
+    }
+
     @Override
     public Optional<ICallModel> acquireModel(BasedTypeName key) {
         try {
-            ICallModel net = cache.get(key.getName());
-            net.reset();
-            return of(net);
+            Optional<CachedNetwork> network = cache.get(key.getName());
+            if (!network.isPresent()) {
+                return Optional.<ICallModel> of(NullCallModel.NULL_MODEL);
+            }
+            return Optional.<ICallModel> of(network.get().acquire());
         } catch (ExecutionException e) {
             e.printStackTrace();
             return Optional.absent();
@@ -71,28 +169,105 @@ public class OneZipCallModelProvider implements ICallModelProvider, Openable {
 
     @Override
     public void releaseModel(ICallModel value) {
+        if (!(value instanceof JayesCallModel)) {
+            return;
+        }
+        JayesCallModel model = (JayesCallModel) value;
+        Optional<CachedNetwork> network = cache.getIfPresent(model.getReceiverType());
+        // models of evicted networks are simply dropped
+        if (network != null && network.isPresent() && network.get().network == model.getNetwork()) {
+            network.get().release(model);
+        }
+    }
+
+    /**
+     * A shared network together with the models on top of it. Models are handed out to one caller at a time; releasing
+     * a model that is not currently handed out (e.g., releasing it twice) has no effect. At most
+     * {@link #MAX_IDLE_MODELS} released models are kept for reuse, the others are left to the garbage collector.
+     */
+    private static final class CachedNetwork {
 
+        private static final int MAX_IDLE_MODELS = 4;
+
+        private final JayesCallNetwork network;
+        // guarded by this
+        private final Set<JayesCallModel> inUse = Sets.newIdentityHashSet();
+        private final Deque<JayesCallModel> idle = new ArrayDeque<JayesCallModel>(MAX_IDLE_MODELS);
+
+        private CachedNetwork(JayesCallNetwork network) {
+            this.network = network;
+        }
+
+        private JayesCallModel acquire() {
+            JayesCallModel model;
+            synchronized (this) {
+                model = idle.poll();
+            }
+            if (model == null) {
+                model = network.newModel();
+            }
+            synchronized (this) {
+                inUse.add(model);
+            }
+            return model;
+        }
+
+        private void release(JayesCallModel model) {
+            synchronized (this) {
+                if (!inUse.remove(model)) {
+                    return;
+                }
+            }
+            model.reset();
+            synchronized (this) {
+                if (idle.size() < MAX_IDLE_MODELS) {
+                    idle.push(model);
+                }
+            }
+        }
     }
 
-    private final class CallNetCacheLoader extends CacheLoader<ITypeName, ICallModel> {
+    private final class CallNetCacheLoader extends CacheLoader<ITypeName, Optional<CachedNetwork>> {
         @Override
-        public ICallModel load(ITypeName type) throws Exception {
+        public Optional<CachedNetwork> load(ITypeName type) throws Exception {
             String path = Zips.path(type, ".data");
-            ZipEntry entry = zip.getEntry(path);
-            if (entry == null) {
-                return NullCallModel.NULL_MODEL;
+            if (!zip.containsEntry(path)) {
+                return absent();
             }
             InputStream is = null;
             try {
-                is = zip.getInputStream(entry);
+                is = zip.getInputStream(path).get();
                 BayesianNetwork bayesNet = BayesianNetwork.read(is);
-                return new JayesCallModel(type, bayesNet);
+                JayesCallNetwork network = new JayesCallNetwork(type, bayesNet);
+                Executor executor = precomputeExecutor;
+                if (executor != null) {
+                    executor.execute(new Precomputation(network));
+                }
+                return of(new CachedNetwork(network));
             } catch (Exception e) {
                 e.printStackTrace();
-                return NullCallModel.NULL_MODEL;
+                return absent();
             } finally {
                 closeQuietly(is);
             }
         }
     }
+
+    private final class Precomputation implements Runnable {
+
+        private final JayesCallNetwork network;
+
+        private Precomputation(JayesCallNetwork network) {
+            this.network = network;
+        }
+
+        @Override
+        public void run() {
+            try {
+                network.precompute(PRECOMPUTED_OUTCOMES);
+            } catch (RuntimeException e) {
+                log.warn("Failed to precompute recommendations for " + network.typeName, e);
+            }
+        }
+    }
 }
@@ -4,14 +4,13 @@ import static com.google.common.base.Optional.*;
 import static org.eclipse.recommenders.utils.IOUtils.closeQuietly;
 
 import java.io.InputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import org.eclipse.recommenders.commons.bayesnet.BayesianNetwork;
 import org.eclipse.recommenders.models.BasedTypeName;
 import org.eclipse.recommenders.models.IModelProvider;
 import org.eclipse.recommenders.models.ModelRepository;
 import org.eclipse.recommenders.models.SimpleModelProvider;
+import org.eclipse.recommenders.utils.IZipArchive;
 import org.eclipse.recommenders.utils.Zips;
 import org.eclipse.recommenders.utils.names.ITypeName;
 
@@ -32,15 +31,18 @@ ICallModelProvider {
         super(cache, modelType);
     }
 
+    public SimpleCallModelProvider(ModelRepository cache, String modelType, boolean inMemory) {
+        super(cache, modelType, inMemory);
+    }
+
     @Override
-    protected Optional<ICallModel> loadModel(ZipFile zip, BasedTypeName key) throws Exception {
+    protected Optional<ICallModel> loadModel(IZipArchive zip, BasedTypeName key) throws Exception {
         ITypeName type = key.getName();
         String path = Zips.path(type, ".data");
-        ZipEntry entry = zip.getEntry(path);
-        if (entry == null) {
+        InputStream is = zip.getInputStream(path).orNull();
+        if (is == null) {
             return absent();
         }
-        InputStream is = zip.getInputStream(entry);
         BayesianNetwork bayesNet = BayesianNetwork.read(is);
         ICallModel net = new JayesCallModel(type, bayesNet);
         closeQuietly(is);
@@ -0,0 +1,290 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.calls.evaluation;
+
+import static org.eclipse.recommenders.utils.Checks.ensureIsNotNull;
+import static org.eclipse.recommenders.utils.Checks.ensureIsTrue;
+import static org.eclipse.recommenders.utils.Constants.UNKNOWN_METHOD;
+import static org.eclipse.recommenders.utils.Recommendations.top;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.recommenders.calls.ICallModel;
+import org.eclipse.recommenders.calls.ICallModel.DefinitionType;
+import org.eclipse.recommenders.calls.ICallModelProvider;
+import org.eclipse.recommenders.calls.NullCallModel;
+import org.eclipse.recommenders.internal.utils.codestructs.DefinitionSite.Kind;
+import org.eclipse.recommenders.internal.utils.codestructs.ObjectUsage;
+import org.eclipse.recommenders.internal.utils.codestructs.ObjectUsageTable;
+import org.eclipse.recommenders.models.BasedTypeName;
+import org.eclipse.recommenders.models.ProjectCoordinate;
+import org.eclipse.recommenders.utils.Recommendation;
+import org.eclipse.recommenders.utils.names.IMethodName;
+import org.eclipse.recommenders.utils.names.ITypeName;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.Sets;
+
+/**
+ * Evaluates the call recommendations of an {@link ICallModelProvider} against a corpus of {@link ObjectUsage}s and
+ * reports precision and recall at <i>k</i> as well as query latency percentiles.
+ * <p>
+ * For every usage with at least one call, the calls are ordered by the hash code of their identifiers and split into
+ * two halves: the first half (possibly empty) is set as observed together with the usage's override context and
+ * definition; the second half is expected to show up in the top-<i>k</i> call recommendations. The split depends on
+ * the method names only, so results of different runs, corpora, and model releases are comparable.
+ * <p>
+ * A query that fails with an exception is counted as failed and does not contribute to precision and recall.
+ * <p>
+ * Usages are collected into an {@link ObjectUsageTable}, deduplicated, and grouped by receiver type. Each type is
+ * evaluated by a single worker that acquires the model once, runs all queries of that type, and releases the model
+ * again. Types are processed in parallel, largest first. The given provider thus has to support concurrent calls to
+ * {@link ICallModelProvider#acquireModel(BasedTypeName)} for <b>different</b> types.
+ */
+@Beta
+public class CallModelEvaluator {
+
+    /**
+     * The default number of usages read from an iterator before they are evaluated.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 100000;
+
+    /**
+     * Orders calls by the hash code of their identifiers; ties are broken by the identifiers themselves.
+     */
+    private static final Comparator<IMethodName> BY_NAME_HASH = new Comparator<IMethodName>() {
+
+        @Override
+        public int compare(IMethodName o1, IMethodName o2) {
+            String id1 = o1.getIdentifier();
+            String id2 = o2.getIdentifier();
+            int h1 = id1.hashCode();
+            int h2 = id2.hashCode();
+            if (h1 != h2) {
+                return h1 < h2 ? -1 : 1;
+            }
+            return id1.compareTo(id2);
+        }
+    };
+
+    private final ICallModelProvider provider;
+    private final ProjectCoordinate base;
+    private final int k;
+    private final int threads;
+
+    public CallModelEvaluator(ICallModelProvider provider, ProjectCoordinate base, int k) {
+        this(provider, base, k, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param base
+     *            the project coordinate used to qualify the receiver types of all usages. May be <code>null</code> if
+     *            the provider does not need it.
+     */
+    public CallModelEvaluator(ICallModelProvider provider, ProjectCoordinate base, int k, int threads) {
+        ensureIsTrue(k > 0, "k must be positive but was %d", k);
+        ensureIsTrue(threads > 0, "threads must be positive but was %d", threads);
+        this.provider = ensureIsNotNull(provider);
+        this.base = base;
+        this.k = k;
+        this.threads = threads;
+    }
+
+    /**
+     * Evaluates the given usages in chunks of {@link #DEFAULT_CHUNK_SIZE}.
+     *
+     * @see #evaluate(Iterator, int)
+     */
+    public EvaluationResult evaluate(Iterator<ObjectUsage> usages) throws IOException {
+        return evaluate(usages, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Evaluates the given usages in chunks of at most <code>chunkSize</code> usages. At most one chunk is kept in
+     * memory, so the iterator may be backed by a stream of arbitrary length. Duplicates are only detected within a
+     * chunk; this affects the number of executed queries but not the results.
+     */
+    public EvaluationResult evaluate(Iterator<ObjectUsage> usages, int chunkSize) throws IOException {
+        ensureIsTrue(chunkSize > 0, "chunk size must be positive but was %d", chunkSize);
+        EvaluationResult res = new EvaluationResult(k);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            while (usages.hasNext()) {
+                ObjectUsageTable chunk = new ObjectUsageTable(chunkSize);
+                while (chunk.size() < chunkSize && usages.hasNext()) {
+                    chunk.add(usages.next());
+                }
+                res.merge(evaluate(chunk, pool));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return res;
+    }
+
+    public EvaluationResult evaluate(ObjectUsageTable usages) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            return evaluate(usages, pool);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private EvaluationResult evaluate(ObjectUsageTable usages, ExecutorService pool) throws IOException {
+        ObjectUsageTable distinct = usages.deduplicate();
+        List<TypeEvaluation> tasks = new ArrayList<TypeEvaluation>();
+        for (Entry<ITypeName, int[]> group : distinct.groupByType().entrySet()) {
+            if (group.getKey() != null) {
+                tasks.add(new TypeEvaluation(distinct, group.getKey(), group.getValue()));
+            }
+        }
+        // schedule large types first to keep the workers busy until the very end
+        Collections.sort(tasks, new Comparator<TypeEvaluation>() {
+
+            @Override
+            public int compare(TypeEvaluation o1, TypeEvaluation o2) {
+                return o2.rows.length - o1.rows.length;
+            }
+        });
+
+        EvaluationResult res = new EvaluationResult(k);
+        List<Future<EvaluationResult>> futures = new ArrayList<Future<EvaluationResult>>(tasks.size());
+        try {
+            for (TypeEvaluation task : tasks) {
+                futures.add(pool.submit(task));
+            }
+            for (Future<EvaluationResult> future : futures) {
+                res.merge(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Evaluation failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Evaluation interrupted");
+        } finally {
+            for (Future<EvaluationResult> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Evaluates all queries of a single receiver type with one model instance.
+     */
+    private final class TypeEvaluation implements Callable<EvaluationResult> {
+
+        private final ObjectUsageTable table;
+        private final ITypeName type;
+        private final int[] rows;
+
+        private TypeEvaluation(ObjectUsageTable table, ITypeName type, int[] rows) {
+            this.table = table;
+            this.type = type;
+            this.rows = rows;
+        }
+
+        @Override
+        public EvaluationResult call() throws Exception {
+            EvaluationResult res = new EvaluationResult(k);
+            ICallModel model;
+            try {
+                model = provider.acquireModel(new BasedTypeName(base, type)).orNull();
+            } catch (RuntimeException e) {
+                res.addType(false, 0);
+                res.addFailedQueries(countQueries());
+                return res;
+            }
+            if (model == null || model instanceof NullCallModel) {
+                res.addType(false, countQueries());
+                return res;
+            }
+            try {
+                res.addType(true, 0);
+                for (int row : rows) {
+                    if (table.getCallCount(row) == 0) {
+                        continue;
+                    }
+                    try {
+                        evaluate(model, row, res);
+                    } catch (RuntimeException e) {
+                        res.addFailedQueries(table.getCount(row));
+                    }
+                }
+            } finally {
+                provider.releaseModel(model);
+            }
+            return res;
+        }
+
+        private long countQueries() {
+            long count = 0;
+            for (int row : rows) {
+                if (table.getCallCount(row) > 0) {
+                    count += table.getCount(row);
+                }
+            }
+            return count;
+        }
+
+        private void evaluate(ICallModel model, int row, EvaluationResult res) {
+            List<IMethodName> calls = table.getCalls(row);
+            // the table orders calls by intern order, which depends on the corpus
+            Collections.sort(calls, BY_NAME_HASH);
+            int observedCount = calls.size() / 2;
+            Set<IMethodName> observed = Sets.newHashSet(calls.subList(0, observedCount));
+            Set<IMethodName> expected = Sets.newHashSet(calls.subList(observedCount, calls.size()));
+
+            long start = System.nanoTime();
+            model.reset();
+            IMethodName context = table.getContextFirst(row);
+            if (context != null) {
+                model.setObservedOverrideContext(context);
+            }
+            model.setObservedDefinitionType(toDefinitionType(table.getKind(row)));
+            IMethodName definition = table.getDefinition(row);
+            if (definition != null && !definition.equals(UNKNOWN_METHOD)) {
+                model.setObservedDefiningMethod(definition);
+            }
+            model.setObservedCalls(observed);
+            List<Recommendation<IMethodName>> recs = top(model.getRecommendedCalls(), k);
+            long nanos = System.nanoTime() - start;
+
+            int hits = 0;
+            for (Recommendation<IMethodName> rec : recs) {
+                if (expected.contains(rec.getProposal())) {
+                    hits++;
+                }
+            }
+            double precision = recs.isEmpty() ? 0 : hits / (double) recs.size();
+            double recall = hits / (double) expected.size();
+            res.addQuery(table.getCount(row), precision, recall, nanos);
+        }
+    }
+
+    private static DefinitionType toDefinitionType(Kind kind) {
+        return kind == null ? DefinitionType.UNKNOWN : DefinitionType.valueOf(kind.name());
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.calls.evaluation;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * The aggregated outcome of a {@link CallModelEvaluator} run.
+ * <p>
+ * Precision and recall are averaged over all queries for which a model was available. Each query is weighted by the
+ * number of identical usages it represents. Latencies are recorded once per <i>executed</i> query, i.e., duplicates
+ * are not measured repeatedly.
+ */
+@Beta
+public class EvaluationResult {
+
+    private final int k;
+    private long queries;
+    private long executedQueries;
+    private long queriesWithoutModel;
+    private long failedQueries;
+    private int types;
+    private int typesWithoutModel;
+    private double precisionSum;
+    private double recallSum;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    EvaluationResult(int k) {
+        this.k = k;
+    }
+
+    void addQuery(int weight, double precision, double recall, long nanos) {
+        queries += weight;
+        executedQueries++;
+        precisionSum += weight * precision;
+        recallSum += weight * recall;
+        latencies.record(nanos);
+    }
+
+    void addType(boolean modelAvailable, long queriesOfType) {
+        types++;
+        if (!modelAvailable) {
+            typesWithoutModel++;
+            queriesWithoutModel += queriesOfType;
+        }
+    }
+
+    void addFailedQueries(long count) {
+        failedQueries += count;
+    }
+
+    void merge(EvaluationResult other) {
+        queries += other.queries;
+        executedQueries += other.executedQueries;
+        queriesWithoutModel += other.queriesWithoutModel;
+        failedQueries += other.failedQueries;
+        types += other.types;
+        typesWithoutModel += other.typesWithoutModel;
+        precisionSum += other.precisionSum;
+        recallSum += other.recallSum;
+        latencies.merge(other.latencies);
+    }
+
+    /**
+     * Returns the cut-off used for computing precision and recall.
+     */
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Returns the number of evaluated queries, including duplicates.
+     */
+    public long getQueries() {
+        return queries;
+    }
+
+    /**
+     * Returns the number of queries actually sent to a model, i.e., the number of distinct queries.
+     */
+    public long getExecutedQueries() {
+        return executedQueries;
+    }
+
+    /**
+     * Returns the number of queries skipped because no model was available for their receiver type.
+     */
+    public long getQueriesWithoutModel() {
+        return queriesWithoutModel;
+    }
+
+    /**
+     * Returns the number of queries, including duplicates, for which the model (or the provider) threw an exception.
+     * These queries do not contribute to precision and recall.
+     */
+    public long getFailedQueries() {
+        return failedQueries;
+    }
+
+    public int getTypes() {
+        return types;
+    }
+
+    public int getTypesWithoutModel() {
+        return typesWithoutModel;
+    }
+
+    public double getPrecision() {
+        return queries == 0 ? 0 : precisionSum / queries;
+    }
+
+    public double getRecall() {
+        return queries == 0 ? 0 : recallSum / queries;
+    }
+
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("queries: %d (%d executed, %d without model, %d failed), types: %d (%d without model)%n"
+                + "precision@%d: %.4f, recall@%d: %.4f%n"
+                + "latency (us): p50 %d, p90 %d, p99 %d, p99.9 %d, max %d", queries, executedQueries,
+                queriesWithoutModel, failedQueries, types, typesWithoutModel, k, getPrecision(), k, getRecall(), micros(50),
+                micros(90), micros(99), micros(99.9), NANOSECONDS.toMicros(latencies.getMax()));
+    }
+
+    private long micros(double percentile) {
+        return NANOSECONDS.toMicros(latencies.getPercentile(percentile));
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.calls.evaluation;
+
+import static org.eclipse.recommenders.utils.Checks.ensureIsTrue;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A fixed-size histogram of latencies (in nanoseconds) that answers percentile queries with a relative error of at
+ * most 1/16.
+ * <p>
+ * Values are bucketed by their power of two, and each power of two is split into 16 linear sub-buckets. Recording a
+ * value is thus a constant-time array increment, and histograms of different workers can be merged cheaply. This class
+ * is not thread-safe.
+ */
+@Beta
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+    private long max;
+
+    public void record(long nanos) {
+        ensureIsTrue(nanos >= 0, "latency must not be negative but was %d", nanos);
+        counts[indexOf(nanos)]++;
+        total++;
+        max = Math.max(max, nanos);
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     */
+    public long getCount() {
+        return total;
+    }
+
+    /**
+     * Returns the largest recorded value, or 0 if no value has been recorded.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the (approximated) value below which the given percentage of all recorded values fall, or 0 if no value
+     * has been recorded.
+     *
+     * @param percentile
+     *            a value in <code>(0..100]</code>, e.g., 99.9
+     */
+    public long getPercentile(double percentile) {
+        ensureIsTrue(percentile > 0 && percentile <= 100, "percentile must be in (0..100] but was %s", percentile);
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & SUB_BUCKETS - 1;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+}
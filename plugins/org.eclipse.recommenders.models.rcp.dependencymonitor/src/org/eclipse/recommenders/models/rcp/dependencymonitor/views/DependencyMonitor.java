@@ -11,22 +11,31 @@
 package org.eclipse.recommenders.models.rcp.dependencymonitor.views;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.viewers.CellLabelProvider;
 import org.eclipse.jface.viewers.ColumnViewerToolTipSupport;
-import org.eclipse.jface.viewers.IStructuredContentProvider;
+import org.eclipse.jface.viewers.ILazyContentProvider;
 import org.eclipse.jface.viewers.ITableLabelProvider;
 import org.eclipse.jface.viewers.LabelProvider;
 import org.eclipse.jface.viewers.TableViewer;
 import org.eclipse.jface.viewers.TableViewerColumn;
 import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.jface.viewers.ViewerCell;
-import org.eclipse.jface.viewers.ViewerComparator;
 import org.eclipse.jface.window.ToolTip;
 import org.eclipse.recommenders.models.ProjectCoordinate;
 import org.eclipse.recommenders.models.dependencies.DependencyInfo;
@@ -34,17 +43,16 @@ import org.eclipse.recommenders.models.dependencies.DependencyType;
 import org.eclipse.recommenders.models.dependencies.IProjectCoordinateResolver;
 import org.eclipse.recommenders.models.dependencies.impl.MappingProvider;
 import org.eclipse.recommenders.models.dependencies.rcp.EclipseDependencyListener;
+import org.eclipse.recommenders.models.dependencies.rcp.EclipseDependencyListener.DependenciesChanged;
+import org.eclipse.recommenders.models.dependencies.rcp.EclipseDependencyListener.Snapshot;
 import org.eclipse.recommenders.models.rcp.dependencymonitor.Activator;
-import org.eclipse.recommenders.rcp.events.JavaModelEvents.JarPackageFragmentRootAdded;
-import org.eclipse.recommenders.rcp.events.JavaModelEvents.JarPackageFragmentRootRemoved;
-import org.eclipse.recommenders.rcp.events.JavaModelEvents.JavaProjectClosed;
-import org.eclipse.recommenders.rcp.events.JavaModelEvents.JavaProjectOpened;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Table;
 import org.eclipse.swt.widgets.TableColumn;
 import org.eclipse.ui.part.ViewPart;
 
@@ -53,15 +61,31 @@ import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 import com.google.inject.Inject;
 
+/**
+ * Shows all dependencies of the workspace together with their project
+ * coordinates.
+ * <p>
+ * The table is virtual: rows are kept in a sorted list and SWT only asks for
+ * the rows that are visible. {@link DependenciesChanged} events are applied
+ * as deltas, and coordinates are resolved in a background job and filled in
+ * row by row as they become available.
+ */
 public class DependencyMonitor extends ViewPart {
 
 	private static final int COLUMN_LOCATION = 0;
 	private static final int COLUMN_COORDINATE = 1;
 
+	/**
+	 * The number of resolved coordinates handed to the UI thread at once.
+	 */
+	private static final int RESOLVED_BATCH_SIZE = 50;
+
 	private Composite parent;
 	private TableViewer tableViewer;
 	private ContentProvider contentProvider;
+	private ViewLabelProvider labelProvider;
 
+	private final EventBus workspaceBus;
 	private EclipseDependencyListener eclipseDependencyListener;
 	private MappingProvider mappingProvider;
 
@@ -69,72 +93,112 @@ public class DependencyMonitor extends ViewPart {
 	private TableViewerColumn coordinateColumn;
 	private TableComparator comparator;
 
+	private final ConcurrentLinkedQueue<Row> unresolvedRows = new ConcurrentLinkedQueue<Row>();
+	private final Job resolveJob = new Job("Resolving project coordinates") {
+
+		@Override
+		protected IStatus run(final IProgressMonitor monitor) {
+			Map<Row, String> resolved = new LinkedHashMap<Row, String>();
+			Row row;
+			while ((row = unresolvedRows.poll()) != null) {
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				Optional<ProjectCoordinate> optionalProjectCoordinate = mappingProvider
+						.searchForProjectCoordinate(row.dependencyInfo);
+				resolved.put(row, optionalProjectCoordinate.isPresent() ? optionalProjectCoordinate
+						.get().toString() : null);
+				if (resolved.size() == RESOLVED_BATCH_SIZE) {
+					coordinatesResolved(resolved);
+					resolved = new LinkedHashMap<Row, String>();
+				}
+			}
+			coordinatesResolved(resolved);
+			return Status.OK_STATUS;
+		}
+	};
+
 	@Inject
 	public DependencyMonitor(final EventBus workspaceBus,
 			final EclipseDependencyListener eclipseDependencyListener,
 			final MappingProvider mappingProvider) {
+		this.workspaceBus = workspaceBus;
 		this.eclipseDependencyListener = eclipseDependencyListener;
 		this.mappingProvider = mappingProvider;
+		resolveJob.setSystem(true);
 		workspaceBus.register(this);
 	}
 
 	@Subscribe
-	public void onEvent(final JavaProjectOpened e) {
-		checkForDependencyUpdates();
-	}
+	public void onEvent(final DependenciesChanged e) {
+		asyncExec(new Runnable() {
 
-	@Subscribe
-	public void onEvent(final JavaProjectClosed e) {
-		checkForDependencyUpdates();
+			@Override
+			public void run() {
+				contentProvider.applyChanges(e);
+			}
+		});
 	}
 
-	@Subscribe
-	public void onEvent(final JarPackageFragmentRootAdded e) {
-		checkForDependencyUpdates();
-	}
+	protected void checkForDependencyUpdates() {
+		asyncExec(new Runnable() {
 
-	@Subscribe
-	public void onEvent(final JarPackageFragmentRootRemoved e) {
-		checkForDependencyUpdates();
+			@Override
+			public void run() {
+				contentProvider.setData(eclipseDependencyListener
+						.getSnapshot());
+			}
+		});
 	}
 
-	protected void checkForDependencyUpdates() {
-		if (parent != null) {
-			parent.getDisplay().syncExec(new Runnable() {
-
-				@Override
-				public void run() {
-					contentProvider.setData(eclipseDependencyListener
-							.getDependencies());
-					refreshTable();
-				}
-
-			});
+	private void coordinatesResolved(final Map<Row, String> coordinates) {
+		if (coordinates.isEmpty()) {
+			return;
 		}
+		asyncExec(new Runnable() {
+
+			@Override
+			public void run() {
+				contentProvider.coordinatesResolved(coordinates);
+			}
+		});
 	}
 
-	protected void setLabelProviderForTooltips() {
-		locationColumn.setLabelProvider(new LocationTooltip());
+	/**
+	 * Runs the given runnable in the UI thread, unless the view has not been
+	 * created yet or has been disposed already.
+	 */
+	private void asyncExec(final Runnable runnable) {
+		if (parent == null || parent.isDisposed()) {
+			return;
+		}
+		parent.getDisplay().asyncExec(new Runnable() {
+
+			@Override
+			public void run() {
+				if (!tableViewer.getControl().isDisposed()) {
+					runnable.run();
+				}
+			}
+		});
 	}
 
-	private void refreshTable() {
-		tableViewer.setLabelProvider(new ViewLabelProvider());
+	protected void setLabelProviderForTooltips() {
 		locationColumn.setLabelProvider(new LocationTooltip());
 		coordinateColumn.setLabelProvider(new CoordinateTooltip());
-		tableViewer.refresh();
 	}
 
 	@Override
 	public void createPartControl(final Composite parent) {
 		this.parent = parent;
 		tableViewer = new TableViewer(parent, SWT.MULTI | SWT.H_SCROLL
-				| SWT.V_SCROLL | SWT.FULL_SELECTION);
-		tableViewer.setLabelProvider(new ViewLabelProvider());
+				| SWT.V_SCROLL | SWT.FULL_SELECTION | SWT.VIRTUAL);
+		labelProvider = new ViewLabelProvider();
+		tableViewer.setLabelProvider(labelProvider);
+		comparator = new TableComparator();
 		contentProvider = new ContentProvider();
 		tableViewer.setContentProvider(contentProvider);
 		tableViewer.setInput(getViewSite());
-		comparator = new TableComparator();
-		tableViewer.setComparator(comparator);
 
 		ColumnViewerToolTipSupport.enableFor(tableViewer, ToolTip.NO_RECREATE);
 
@@ -153,6 +217,8 @@ public class DependencyMonitor extends ViewPart {
 		tableColumn.setWidth(450);
 		tableColumn.addSelectionListener(new SelectionListener(tableColumn, 1));
 
+		setLabelProviderForTooltips();
+
 		tableViewer.getTable().setSortDirection(SWT.UP);
 		tableViewer.getTable().setSortColumn(locationColumn.getColumn());
 
@@ -164,12 +230,46 @@ public class DependencyMonitor extends ViewPart {
 		tableViewer.getControl().setFocus();
 	}
 
+	@Override
+	public void dispose() {
+		workspaceBus.unregister(this);
+		resolveJob.cancel();
+		unresolvedRows.clear();
+		if (labelProvider != null) {
+			labelProvider.dispose();
+		}
+		super.dispose();
+	}
+
+	/**
+	 * A single row of the table. The sort keys are computed once, such that
+	 * sorting thousands of rows does not query the mapping provider or create
+	 * strings.
+	 */
+	static final class Row {
+		private final DependencyInfo dependencyInfo;
+		private final long sequence;
+		private final String name;
+		private String coordinate;
+
+		private Row(final DependencyInfo dependencyInfo, final long sequence) {
+			this.dependencyInfo = dependencyInfo;
+			this.sequence = sequence;
+			name = dependencyInfo.getFile().getName();
+		}
+	}
+
 	class ViewLabelProvider extends LabelProvider implements
 			ITableLabelProvider {
+
+		private final Map<DependencyType, Image> images = new EnumMap<DependencyType, Image>(
+				DependencyType.class);
+
 		@Override
 		public String getColumnText(final Object obj, final int index) {
-			if (obj instanceof DependencyInfo) {
-				DependencyInfo dependencyInfo = (DependencyInfo) obj;
+			if (obj instanceof Row) {
+				Row row = (Row) obj;
+				DependencyInfo dependencyInfo = row.dependencyInfo;
 				switch (index) {
 				case COLUMN_LOCATION:
 					if (dependencyInfo.getType() == DependencyType.JRE) {
@@ -179,12 +279,10 @@ public class DependencyMonitor extends ViewPart {
 							return executionEnvironment.get();
 						}
 					}
-					return dependencyInfo.getFile().getName();
+					return row.name;
 				case COLUMN_COORDINATE:
-					Optional<ProjectCoordinate> optionalProjectCoordinate = mappingProvider
-							.searchForProjectCoordinate(dependencyInfo);
-					if (optionalProjectCoordinate.isPresent()) {
-						return optionalProjectCoordinate.get().toString();
+					if (row.coordinate != null) {
+						return row.coordinate;
 					}
 				default:
 					return "";
@@ -195,8 +293,8 @@ public class DependencyMonitor extends ViewPart {
 
 		@Override
 		public Image getColumnImage(final Object obj, final int index) {
-			if (obj instanceof DependencyInfo) {
-				DependencyInfo dependencyInfo = (DependencyInfo) obj;
+			if (obj instanceof Row) {
+				DependencyInfo dependencyInfo = ((Row) obj).dependencyInfo;
 				switch (index) {
 				case COLUMN_LOCATION:
 					return getImageForDependencyTyp(dependencyInfo);
@@ -209,7 +307,15 @@ public class DependencyMonitor extends ViewPart {
 
 		private Image getImageForDependencyTyp(
 				final DependencyInfo dependencyInfo) {
-			switch (dependencyInfo.getType()) {
+			DependencyType type = dependencyInfo.getType();
+			if (!images.containsKey(type)) {
+				images.put(type, createImageForDependencyTyp(type));
+			}
+			return images.get(type);
+		}
+
+		private Image createImageForDependencyTyp(final DependencyType type) {
+			switch (type) {
 			case JRE:
 				return loadImage("icons/cview16/classpath.gif");
 			case JAR:
@@ -230,15 +336,162 @@ public class DependencyMonitor extends ViewPart {
 			}
 			return null;
 		}
+
+		@Override
+		public void dispose() {
+			for (Image image : images.values()) {
+				if (image != null) {
+					image.dispose();
+				}
+			}
+			images.clear();
+			super.dispose();
+		}
 	}
 
-	class ContentProvider implements IStructuredContentProvider {
+	/**
+	 * Keeps the rows of the virtual table, sorted by the current
+	 * {@link TableComparator}. Must only be used in the UI thread.
+	 */
+	class ContentProvider implements ILazyContentProvider {
+
+		private final List<Row> rows = new ArrayList<Row>();
+		private final Map<DependencyInfo, Row> rowsByDependency = new HashMap<DependencyInfo, Row>();
+		private long version = -1;
+		private long nextSequence;
+
+		/**
+		 * Replaces all rows with the dependencies of the given snapshot.
+		 */
+		public void setData(final Snapshot snapshot) {
+			unresolvedRows.clear();
+			rows.clear();
+			rowsByDependency.clear();
+			for (DependencyInfo dependencyInfo : snapshot.getDependencies()) {
+				rows.add(newRow(dependencyInfo));
+			}
+			Collections.sort(rows, comparator);
+			version = snapshot.getVersion();
+			tableViewer.setItemCount(rows.size());
+			tableViewer.getTable().clearAll();
+			scheduleResolving();
+		}
+
+		/**
+		 * Adds and removes the rows that changed with the given event. Falls
+		 * back to {@link #setData(Snapshot)} if events were missed.
+		 */
+		public void applyChanges(final DependenciesChanged e) {
+			if (e.version <= version) {
+				return;
+			}
+			Snapshot snapshot = eclipseDependencyListener.getSnapshot();
+			if (e.version != version + 1) {
+				setData(snapshot);
+				return;
+			}
+			// a dependency may still be used by another project, or may have
+			// been removed again by a later change
+			Set<DependencyInfo> dependencies = snapshot.getDependencies();
+			int firstChanged = rows.size();
+			for (DependencyInfo dependencyInfo : e.removed.values()) {
+				Row row = rowsByDependency.get(dependencyInfo);
+				if (row != null && !dependencies.contains(dependencyInfo)) {
+					int index = indexOf(row);
+					rows.remove(index);
+					rowsByDependency.remove(dependencyInfo);
+					firstChanged = Math.min(firstChanged, index);
+				}
+			}
+			for (DependencyInfo dependencyInfo : e.added.values()) {
+				if (!rowsByDependency.containsKey(dependencyInfo)
+						&& dependencies.contains(dependencyInfo)) {
+					int index = insert(newRow(dependencyInfo));
+					firstChanged = Math.min(firstChanged, index);
+				}
+			}
+			version = e.version;
+			rowsChanged(firstChanged, rows.size() - 1);
+			scheduleResolving();
+		}
+
+		/**
+		 * Fills in the given coordinates. Only the affected rows are updated,
+		 * unless rows have to move because the table is sorted by coordinate.
+		 */
+		public void coordinatesResolved(final Map<Row, String> coordinates) {
+			boolean sortedByCoordinate = comparator.isSortedBy(COLUMN_COORDINATE);
+			for (Entry<Row, String> entry : coordinates.entrySet()) {
+				Row row = entry.getKey();
+				if (rowsByDependency.get(row.dependencyInfo) != row) {
+					// removed in the meantime
+					continue;
+				}
+				if (sortedByCoordinate) {
+					int oldIndex = indexOf(row);
+					rows.remove(oldIndex);
+					row.coordinate = entry.getValue();
+					int newIndex = insert(row);
+					rowsChanged(Math.min(oldIndex, newIndex),
+							Math.max(oldIndex, newIndex));
+				} else {
+					row.coordinate = entry.getValue();
+					// clearing materializes the item only once it is visible
+					tableViewer.getTable().clear(indexOf(row));
+				}
+			}
+		}
+
+		/**
+		 * Re-sorts all rows after the sort column or direction changed.
+		 */
+		public void sort() {
+			Collections.sort(rows, comparator);
+			tableViewer.getTable().clearAll();
+		}
+
+		private Row newRow(final DependencyInfo dependencyInfo) {
+			Row row = new Row(dependencyInfo, nextSequence++);
+			rowsByDependency.put(dependencyInfo, row);
+			unresolvedRows.add(row);
+			return row;
+		}
+
+		private int insert(final Row row) {
+			int index = -Collections.binarySearch(rows, row, comparator) - 1;
+			rows.add(index, row);
+			return index;
+		}
+
+		private int indexOf(final Row row) {
+			// rows are unique with respect to the comparator
+			return Collections.binarySearch(rows, row, comparator);
+		}
+
+		private void scheduleResolving() {
+			if (!unresolvedRows.isEmpty()) {
+				resolveJob.schedule();
+			}
+		}
 
-		private List<DependencyInfo> data = new ArrayList<DependencyInfo>();
+		/**
+		 * Makes SWT ask for the given rows again, if they are visible.
+		 */
+		private void rowsChanged(final int from, final int to) {
+			Table table = tableViewer.getTable();
+			if (table.getItemCount() != rows.size()) {
+				tableViewer.setItemCount(rows.size());
+			}
+			if (from <= to && from < rows.size()) {
+				table.clear(from, Math.min(to, rows.size() - 1));
+			}
+		}
 
-		public void setData(final Set<DependencyInfo> dependencyInfos) {
-			data.clear();
-			data.addAll(dependencyInfos);
+		@Override
+		public void updateElement(final int index) {
+			if (index < rows.size()) {
+				tableViewer.replace(rows.get(index), index);
+			}
 		}
 
 		@Override
@@ -252,23 +505,22 @@ public class DependencyMonitor extends ViewPart {
 			// unused in this case
 		}
 
-		@Override
-		public Object[] getElements(final Object inputElement) {
-			return data.toArray();
-		}
-
 	}
 
 	abstract class ToolTipProvider extends CellLabelProvider {
 		@Override
 		public void update(final ViewerCell cell) {
-			cell.setText(cell.getText());
+			Object element = cell.getElement();
+			cell.setText(labelProvider.getColumnText(element,
+					cell.getColumnIndex()));
+			cell.setImage(labelProvider.getColumnImage(element,
+					cell.getColumnIndex()));
 		}
 
 		@Override
 		public String getToolTipText(final Object element) {
-			if (element instanceof DependencyInfo) {
-				DependencyInfo dependencyInfo = (DependencyInfo) element;
+			if (element instanceof Row) {
+				DependencyInfo dependencyInfo = ((Row) element).dependencyInfo;
 				return generateTooltip(dependencyInfo);
 			}
 			return "";
@@ -359,7 +611,13 @@ public class DependencyMonitor extends ViewPart {
 
 	}
 
-	public class TableComparator extends ViewerComparator {
+	/**
+	 * Orders rows by the selected column and direction. Rows that are equal
+	 * with respect to the column (and all rows if the direction is
+	 * {@link SWT#NONE}) keep the order in which they were added, which makes
+	 * the order total and allows binary searches.
+	 */
+	public class TableComparator implements Comparator<Row> {
 		private int column = 0;
 		private int direction = SWT.UP;
 
@@ -367,6 +625,10 @@ public class DependencyMonitor extends ViewPart {
 			return direction;
 		}
 
+		public boolean isSortedBy(final int column) {
+			return direction != SWT.NONE && this.column == column;
+		}
+
 		public void setColumn(final int column) {
 			if (column == this.column) {
 				switch (direction) {
@@ -387,53 +649,40 @@ public class DependencyMonitor extends ViewPart {
 		}
 
 		@Override
-		public int compare(final Viewer viewer, final Object e1, final Object e2) {
+		public int compare(final Row firstRow, final Row secondRow) {
 			int result = 0;
-			if (direction == SWT.NONE) {
-				return 0;
-			}
-			if (e1 instanceof DependencyInfo && e2 instanceof DependencyInfo) {
-				DependencyInfo firstElement = (DependencyInfo) e1;
-				DependencyInfo secondElement = (DependencyInfo) e2;
-
+			if (direction != SWT.NONE) {
 				switch (column) {
 				case COLUMN_LOCATION:
-					result = compareLocation(firstElement, secondElement);
+					result = compareLocation(firstRow, secondRow);
 					break;
 				case COLUMN_COORDINATE:
-					result = compareCoordinate(firstElement, secondElement);
+					result = compareCoordinate(firstRow, secondRow);
 					break;
 				default:
 					result = 0;
 					break;
 				}
+				if (direction == SWT.DOWN) {
+					result = -result;
+				}
 			}
-			if (direction == SWT.DOWN) {
-				return -result;
+			if (result == 0) {
+				return firstRow.sequence < secondRow.sequence ? -1
+						: firstRow.sequence == secondRow.sequence ? 0 : 1;
 			}
 			return result;
 		}
 
-		private int compareCoordinate(final DependencyInfo firstElement,
-				final DependencyInfo secondElement) {
-			Optional<ProjectCoordinate> optionalCoordinateFirstElement = mappingProvider
-					.searchForProjectCoordinate(firstElement);
-			Optional<ProjectCoordinate> optionalCoordinateSecondElement = mappingProvider
-					.searchForProjectCoordinate(secondElement);
-
-			if (optionalCoordinateFirstElement.isPresent()) {
-				if (optionalCoordinateSecondElement.isPresent()) {
-					return optionalCoordinateFirstElement
-							.get()
-							.toString()
-							.compareTo(
-									optionalCoordinateSecondElement.get()
-											.toString());
+		private int compareCoordinate(final Row firstRow, final Row secondRow) {
+			if (firstRow.coordinate != null) {
+				if (secondRow.coordinate != null) {
+					return firstRow.coordinate.compareTo(secondRow.coordinate);
 				} else {
 					return -1;
 				}
 			} else {
-				if (optionalCoordinateSecondElement.isPresent()) {
+				if (secondRow.coordinate != null) {
 					return 1;
 				} else {
 					return 0;
@@ -441,13 +690,12 @@ public class DependencyMonitor extends ViewPart {
 			}
 		}
 
-		private int compareLocation(final DependencyInfo firstElement,
-				final DependencyInfo secondElement) {
-			int compareScore = -firstElement.getType().compareTo(
-					secondElement.getType());
+		private int compareLocation(final Row firstRow, final Row secondRow) {
+			int compareScore = -firstRow.dependencyInfo.getType().compareTo(
+					secondRow.dependencyInfo.getType());
 			if (compareScore == 0) {
-				return firstElement.getFile().getName()
-						.compareToIgnoreCase(secondElement.getFile().getName());
+				return String.CASE_INSENSITIVE_ORDER.compare(firstRow.name,
+						secondRow.name);
 			}
 			return compareScore;
 		}
@@ -470,7 +718,7 @@ public class DependencyMonitor extends ViewPart {
 			int direction = comparator.getDirection();
 			tableViewer.getTable().setSortDirection(direction);
 			tableViewer.getTable().setSortColumn(tableColumn);
-			refreshTable();
+			contentProvider.sort();
 		}
 	};
 
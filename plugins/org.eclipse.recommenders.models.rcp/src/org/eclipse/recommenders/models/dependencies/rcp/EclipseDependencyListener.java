@@ -14,12 +14,23 @@ import static com.google.common.base.Optional.*;
 
 import java.io.File;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
@@ -28,7 +39,9 @@ import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.internal.core.JarPackageFragmentRoot;
 import org.eclipse.jdt.launching.IVMInstall;
+import org.eclipse.jdt.launching.IVMInstallChangedListener;
 import org.eclipse.jdt.launching.JavaRuntime;
+import org.eclipse.jdt.launching.PropertyChangeEvent;
 import org.eclipse.recommenders.models.dependencies.DependencyInfo;
 import org.eclipse.recommenders.models.dependencies.DependencyType;
 import org.eclipse.recommenders.models.dependencies.IDependencyListener;
@@ -36,20 +49,176 @@ import org.eclipse.recommenders.rcp.events.JavaModelEvents.JarPackageFragmentRoo
 import org.eclipse.recommenders.rcp.events.JavaModelEvents.JarPackageFragmentRootRemoved;
 import org.eclipse.recommenders.rcp.events.JavaModelEvents.JavaProjectClosed;
 import org.eclipse.recommenders.rcp.events.JavaModelEvents.JavaProjectOpened;
+import org.eclipse.recommenders.utils.gson.GsonUtil;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 
+/**
+ * Keeps track of the dependencies of all Java projects in the workspace.
+ * <p>
+ * The listener either processes every Java model event right away, or - if created with a positive coalescing delay -
+ * collects the events per project and processes them in a background job once no new events arrived for the given
+ * delay. In the latter case, bursts of events like those caused by a Maven update of a large workspace are handled in
+ * a single pass. In both cases, the listener posts a {@link DependenciesChanged} event on the bus after each pass.
+ * <p>
+ * Readers never block: every pass that changes the known dependencies publishes a new, immutable {@link Snapshot},
+ * which {@link #getSnapshot()} returns in constant time. Readers that need several consistent queries should use the
+ * same snapshot for all of them.
+ * <p>
+ * If created with a state file, the listener stores the dependencies of all projects on {@link #saveState()} and
+ * restores them at the next start for every project whose <code>.classpath</code> file, JRE, and JARs did not change
+ * in the meantime. Only the remaining projects have their classpath resolved again.
+ * <p>
+ * The installation directory of each JRE is looked up once per JRE container path (e.g., the workspace default JRE or
+ * an execution environment) and shared by all projects using that container, until the installed JREs change.
+ */
 @SuppressWarnings("restriction")
 public class EclipseDependencyListener implements IDependencyListener {
 
+    /**
+     * An immutable view on all dependencies known at one point in time.
+     */
+    public static final class Snapshot {
+
+        private final long version;
+        private final ImmutableSetMultimap<DependencyInfo, DependencyInfo> dependenciesByProject;
+        private final ImmutableSet<DependencyInfo> dependencies;
+
+        private Snapshot(final long version, final SetMultimap<DependencyInfo, DependencyInfo> dependenciesByProject) {
+            this.version = version;
+            this.dependenciesByProject = ImmutableSetMultimap.copyOf(dependenciesByProject);
+            dependencies = ImmutableSet.copyOf(this.dependenciesByProject.values());
+        }
+
+        /**
+         * Returns the version of this snapshot. Versions increase by one with every change.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public ImmutableSet<DependencyInfo> getDependencies() {
+            return dependencies;
+        }
+
+        public ImmutableSet<DependencyInfo> getDependenciesForProject(final DependencyInfo project) {
+            return dependenciesByProject.get(project);
+        }
+
+        public ImmutableSetMultimap<DependencyInfo, DependencyInfo> getDependenciesByProject() {
+            return dependenciesByProject;
+        }
+    }
+
+    /**
+     * Posted on the event bus whenever processing Java model events changed the known dependencies. The delta of all
+     * events processed in one pass is posted as one event. A JAR that was removed and added again within one pass,
+     * e.g., because it was replaced in place, is contained in both the added and the removed dependencies.
+     */
+    public static final class DependenciesChanged {
+
+        /**
+         * The version of the {@link Snapshot} that includes this change.
+         */
+        public final long version;
+
+        /**
+         * The dependencies added, keyed by the project they were added to.
+         */
+        public final ImmutableSetMultimap<DependencyInfo, DependencyInfo> added;
+
+        /**
+         * The dependencies removed, keyed by the project they were removed from.
+         */
+        public final ImmutableSetMultimap<DependencyInfo, DependencyInfo> removed;
+
+        public DependenciesChanged(final long version, final SetMultimap<DependencyInfo, DependencyInfo> added,
+                final SetMultimap<DependencyInfo, DependencyInfo> removed) {
+            this.version = version;
+            this.added = ImmutableSetMultimap.copyOf(added);
+            this.removed = ImmutableSetMultimap.copyOf(removed);
+        }
+    }
+
+    /**
+     * The events for a single project that have not been processed yet. Later events supersede earlier ones where
+     * possible: A project being opened or closed makes any earlier event for that project redundant. A project being
+     * opened also makes later JAR events redundant, since the complete classpath is read when the event is processed.
+     */
+    private static final class PendingChanges {
+        private boolean opened;
+        private boolean closed;
+        private final Map<JarPackageFragmentRoot, Boolean> jars = Maps.newLinkedHashMap();
+        /**
+         * The JARs removed by any of the events, even if a later event added them again.
+         */
+        private final Set<JarPackageFragmentRoot> removedJars = Sets.newHashSet();
+    }
+
+    /**
+     * The dependencies of a single project as stored by {@link EclipseDependencyListener#saveState()}, together with
+     * the modification times used to decide whether they are still valid at the next start. Projects are identified by
+     * their name.
+     */
+    private static final class StoredProject {
+        private String name;
+        private DependencyInfo project;
+        private long classpathLastModified;
+        private List<StoredDependency> dependencies;
+        private List<String> jreRoots;
+    }
+
+    private static final class StoredDependency {
+        private DependencyInfo dependencyInfo;
+        private long lastModified;
+    }
+
+    // guarded by this; only accessed by the thread processing the pending changes
     private final HashMultimap<DependencyInfo, DependencyInfo> workspaceDependenciesByProject = HashMultimap.create();
     private final HashMultimap<DependencyInfo, IPackageFragmentRoot> jrePackageFragmentRoots = HashMultimap.create();
+    private final Map<DependencyInfo, IJavaProject> javaProjects = Maps.newHashMap();
+
+    private volatile Snapshot snapshot = new Snapshot(0, HashMultimap.<DependencyInfo, DependencyInfo> create());
+
+    private final EventBus bus;
+    private final long coalescingDelay;
+    private final Optional<File> stateFile;
+    private final Job job;
+    private final Map<IJavaProject, PendingChanges> pendingChanges = Maps.newLinkedHashMap();
+    // replaced rather than cleared whenever the installed JREs change, so that lookups running concurrently cannot
+    // add outdated entries to the new map
+    private volatile ConcurrentMap<IPath, Optional<File>> jreInstallLocations = Maps.newConcurrentMap();
+    private final IVMInstallChangedListener vmInstallChangedListener = new IVMInstallChangedListener() {
+
+        @Override
+        public void vmRemoved(final IVMInstall vm) {
+            jreInstallLocations = Maps.newConcurrentMap();
+        }
+
+        @Override
+        public void vmChanged(final PropertyChangeEvent event) {
+            jreInstallLocations = Maps.newConcurrentMap();
+        }
+
+        @Override
+        public void vmAdded(final IVMInstall vm) {
+            jreInstallLocations = Maps.newConcurrentMap();
+        }
+
+        @Override
+        public void defaultVMInstallChanged(final IVMInstall previous, final IVMInstall current) {
+            jreInstallLocations = Maps.newConcurrentMap();
+        }
+    };
 
     public static DependencyInfo createDependencyInfoForProject(final IJavaProject project) {
         File file = project.getPath().toFile();
@@ -57,49 +226,383 @@ public class EclipseDependencyListener implements IDependencyListener {
         return dependencyInfo;
     }
 
+    /**
+     * Creates a listener that processes every event right away, in the thread that posted it.
+     */
     public EclipseDependencyListener(final EventBus bus) {
+        this(bus, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a listener that processes events in a background job once no new event arrived for the given delay. A
+     * delay of zero processes every event right away, in the thread that posted it.
+     */
+    public EclipseDependencyListener(final EventBus bus, final long coalescingDelay, final TimeUnit unit) {
+        this(bus, coalescingDelay, unit, Optional.<File> absent());
+    }
+
+    /**
+     * Creates a listener like {@link #EclipseDependencyListener(EventBus, long, TimeUnit)} that restores the
+     * dependencies stored in the given file, if any, and stores them there on {@link #saveState()}.
+     */
+    public EclipseDependencyListener(final EventBus bus, final long coalescingDelay, final TimeUnit unit,
+            final File stateFile) {
+        this(bus, coalescingDelay, unit, Optional.of(stateFile));
+    }
+
+    private EclipseDependencyListener(final EventBus bus, final long coalescingDelay, final TimeUnit unit,
+            final Optional<File> stateFile) {
+        this.bus = bus;
+        this.coalescingDelay = unit.toMillis(coalescingDelay);
+        this.stateFile = stateFile;
+        job = this.coalescingDelay > 0 ? createJob() : null;
+        JavaRuntime.addVMInstallChangedListener(vmInstallChangedListener);
         bus.register(this);
         parseWorkspaceForDependencies();
     }
 
+    /**
+     * Stops listening to Java model events and to changes of the installed JREs. Events not processed yet are
+     * dropped; the last snapshot remains available.
+     */
+    public void dispose() {
+        bus.unregister(this);
+        JavaRuntime.removeVMInstallChangedListener(vmInstallChangedListener);
+        if (job != null) {
+            job.cancel();
+        }
+    }
+
+    private Job createJob() {
+        Job res = new Job("Updating workspace dependencies") {
+
+            @Override
+            protected IStatus run(final IProgressMonitor monitor) {
+                processPendingChanges();
+                return Status.OK_STATUS;
+            }
+        };
+        res.setSystem(true);
+        return res;
+    }
+
     private void parseWorkspaceForDependencies() {
-        IProject[] projects = ResourcesPlugin.getWorkspace().getRoot().getProjects();
-        for (IProject project : projects) {
-            try {
-                if (project.isOpen() && project.hasNature(JavaCore.NATURE_ID)) {
-                    IJavaProject javaProject = JavaCore.create(project);
-                    registerDependenciesForJavaProject(javaProject);
+        Map<String, StoredProject> storedProjects = loadState();
+        SetMultimap<DependencyInfo, DependencyInfo> restored = HashMultimap.create();
+        DependenciesChanged event = null;
+        synchronized (this) {
+            IProject[] projects = ResourcesPlugin.getWorkspace().getRoot().getProjects();
+            for (IProject project : projects) {
+                try {
+                    if (project.isOpen() && project.hasNature(JavaCore.NATURE_ID)) {
+                        IJavaProject javaProject = JavaCore.create(project);
+                        StoredProject storedProject = storedProjects.get(project.getName());
+                        if (storedProject != null
+                                && storedProject.project.equals(createDependencyInfoForProject(javaProject))
+                                && isUpToDate(javaProject, storedProject)) {
+                            restoreDependenciesForJavaProject(javaProject, storedProject);
+                            restored.putAll(storedProject.project,
+                                    workspaceDependenciesByProject.get(storedProject.project));
+                        } else {
+                            projectOpened(javaProject);
+                        }
+                    }
+                } catch (CoreException e) {
+                    e.printStackTrace();
                 }
-            } catch (CoreException e) {
-                e.printStackTrace();
             }
+            event = publishSnapshot(restored, HashMultimap.<DependencyInfo, DependencyInfo> create());
+        }
+        if (event != null) {
+            bus.post(event);
         }
+        scheduleProcessing();
+    }
+
+    private Map<String, StoredProject> loadState() {
+        Map<String, StoredProject> res = Maps.newHashMap();
+        if (!stateFile.isPresent() || !stateFile.get().isFile()) {
+            return res;
+        }
+        try {
+            StoredProject[] storedProjects = GsonUtil.deserialize(stateFile.get(), StoredProject[].class);
+            for (StoredProject storedProject : storedProjects) {
+                if (storedProject.name != null && storedProject.project != null && storedProject.dependencies != null
+                        && storedProject.jreRoots != null) {
+                    res.put(storedProject.name, storedProject);
+                }
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        return res;
+    }
+
+    private boolean isUpToDate(final IJavaProject javaProject, final StoredProject storedProject) {
+        long classpathLastModified = getClasspathLastModified(javaProject);
+        if (classpathLastModified == 0 || classpathLastModified != storedProject.classpathLastModified) {
+            return false;
+        }
+        // the JRE may change without changing the .classpath file, e.g., if the workspace default JRE changed
+        DependencyInfo jre = getJREDependencyInfo(javaProject).orNull();
+        boolean storedJRE = false;
+        for (StoredDependency storedDependency : storedProject.dependencies) {
+            DependencyInfo dependencyInfo = storedDependency.dependencyInfo;
+            if (dependencyInfo == null) {
+                return false;
+            }
+            switch (dependencyInfo.getType()) {
+            case JRE:
+                if (!dependencyInfo.equals(jre)) {
+                    return false;
+                }
+                storedJRE = true;
+                break;
+            case JAR:
+                if (getLastModified(dependencyInfo.getFile()) != storedDependency.lastModified) {
+                    return false;
+                }
+                break;
+            default:
+                break;
+            }
+        }
+        return storedJRE || jre == null;
+    }
+
+    private void restoreDependenciesForJavaProject(final IJavaProject javaProject, final StoredProject storedProject) {
+        for (StoredDependency storedDependency : storedProject.dependencies) {
+            workspaceDependenciesByProject.put(storedProject.project, storedDependency.dependencyInfo);
+        }
+        for (String jreRoot : storedProject.jreRoots) {
+            jrePackageFragmentRoots.put(storedProject.project, javaProject.getPackageFragmentRoot(jreRoot));
+        }
+        javaProjects.put(storedProject.project, javaProject);
+    }
+
+    /**
+     * Stores the dependencies of all projects in the state file given on construction, if any. Pending events are
+     * processed first.
+     */
+    public void saveState() {
+        if (!stateFile.isPresent()) {
+            return;
+        }
+        processPendingChanges();
+        SetMultimap<DependencyInfo, DependencyInfo> dependenciesByProject;
+        SetMultimap<DependencyInfo, IPackageFragmentRoot> jreRootsByProject;
+        Map<DependencyInfo, IJavaProject> javaProjectsByProject;
+        synchronized (this) {
+            dependenciesByProject = HashMultimap.create(workspaceDependenciesByProject);
+            jreRootsByProject = HashMultimap.create(jrePackageFragmentRoots);
+            javaProjectsByProject = Maps.newHashMap(javaProjects);
+        }
+
+        List<StoredProject> storedProjects = Lists.newArrayList();
+        for (DependencyInfo project : dependenciesByProject.keySet()) {
+            IJavaProject javaProject = javaProjectsByProject.get(project);
+            if (javaProject == null) {
+                continue;
+            }
+            StoredProject storedProject = new StoredProject();
+            storedProject.name = javaProject.getElementName();
+            storedProject.project = project;
+            storedProject.classpathLastModified = getClasspathLastModified(javaProject);
+            storedProject.dependencies = Lists.newArrayList();
+            for (DependencyInfo dependencyInfo : dependenciesByProject.get(project)) {
+                StoredDependency storedDependency = new StoredDependency();
+                storedDependency.dependencyInfo = dependencyInfo;
+                if (dependencyInfo.getType() == DependencyType.JAR) {
+                    storedDependency.lastModified = getLastModified(dependencyInfo.getFile());
+                }
+                storedProject.dependencies.add(storedDependency);
+            }
+            storedProject.jreRoots = Lists.newArrayList();
+            for (IPackageFragmentRoot jreRoot : jreRootsByProject.get(project)) {
+                storedProject.jreRoots.add(jreRoot.getPath().toOSString());
+            }
+            storedProjects.add(storedProject);
+        }
+        try {
+            stateFile.get().getParentFile().mkdirs();
+            GsonUtil.serialize(storedProjects.toArray(new StoredProject[storedProjects.size()]), stateFile.get());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static long getClasspathLastModified(final IJavaProject javaProject) {
+        IPath location = javaProject.getProject().getFile(".classpath").getLocation();
+        return location == null ? 0 : location.toFile().lastModified();
+    }
+
+    /**
+     * Returns the modification time of the given JAR, which is either an external file or a workspace resource.
+     */
+    private static long getLastModified(final File jar) {
+        if (jar.exists()) {
+            return jar.lastModified();
+        }
+        IResource resource = ResourcesPlugin.getWorkspace().getRoot().findMember(new Path(jar.getPath()));
+        if (resource == null || resource.getLocation() == null) {
+            return 0;
+        }
+        return resource.getLocation().toFile().lastModified();
     }
 
     @Subscribe
     public void onEvent(final JavaProjectOpened e) {
-        registerDependenciesForJavaProject(e.project);
+        projectOpened(e.project);
+        scheduleProcessing();
     }
 
     @Subscribe
     public void onEvent(final JavaProjectClosed e) {
-        deregisterDependenciesForJavaProject(e.project);
+        synchronized (pendingChanges) {
+            PendingChanges changes = getPendingChanges(e.project);
+            changes.opened = false;
+            changes.closed = true;
+            changes.jars.clear();
+            changes.removedJars.clear();
+        }
+        scheduleProcessing();
     }
 
     @Subscribe
     public void onEvent(final JarPackageFragmentRootAdded e) {
-        registerDependencyForJAR(e.root);
+        jarChanged(e.root, true);
+        scheduleProcessing();
     }
 
     @Subscribe
     public void onEvent(final JarPackageFragmentRootRemoved e) {
-        deregisterDependencyForJAR(e.root);
+        jarChanged(e.root, false);
+        scheduleProcessing();
+    }
+
+    private void projectOpened(final IJavaProject javaProject) {
+        synchronized (pendingChanges) {
+            PendingChanges changes = getPendingChanges(javaProject);
+            changes.opened = true;
+            changes.closed = false;
+            changes.jars.clear();
+            changes.removedJars.clear();
+        }
+    }
+
+    private void jarChanged(final JarPackageFragmentRoot root, final boolean added) {
+        Optional<IJavaProject> optionalJavaProject = getIJavaProjectForPackageFragmentRoot(root);
+        if (!optionalJavaProject.isPresent()) {
+            return;
+        }
+        synchronized (pendingChanges) {
+            PendingChanges changes = getPendingChanges(optionalJavaProject.get());
+            if (!changes.opened) {
+                // re-insert to keep the order of the latest events
+                changes.jars.remove(root);
+                changes.jars.put(root, added);
+                if (!added) {
+                    changes.removedJars.add(root);
+                }
+            }
+        }
+    }
+
+    private PendingChanges getPendingChanges(final IJavaProject javaProject) {
+        PendingChanges changes = pendingChanges.get(javaProject);
+        if (changes == null) {
+            changes = new PendingChanges();
+            pendingChanges.put(javaProject, changes);
+        }
+        return changes;
+    }
+
+    private void scheduleProcessing() {
+        if (job == null) {
+            processPendingChanges();
+        } else {
+            // (re-)scheduling a job that is still waiting postpones it, i.e., debounces bursts of events
+            job.schedule(coalescingDelay);
+        }
+    }
+
+    private void processPendingChanges() {
+        SetMultimap<DependencyInfo, DependencyInfo> added = HashMultimap.create();
+        SetMultimap<DependencyInfo, DependencyInfo> removed = HashMultimap.create();
+        DependenciesChanged event = null;
+        // taking the pending changes while holding the lock makes sure that changes are applied in order, even if
+        // saveState() and the job process them concurrently
+        synchronized (this) {
+            Map<IJavaProject, PendingChanges> changes;
+            synchronized (pendingChanges) {
+                if (pendingChanges.isEmpty()) {
+                    return;
+                }
+                changes = Maps.newLinkedHashMap(pendingChanges);
+                pendingChanges.clear();
+            }
+            for (Entry<IJavaProject, PendingChanges> entry : changes.entrySet()) {
+                IJavaProject javaProject = entry.getKey();
+                PendingChanges change = entry.getValue();
+                DependencyInfo dependencyInfoForProject = createDependencyInfoForProject(javaProject);
+                Set<DependencyInfo> before = ImmutableSet.copyOf(workspaceDependenciesByProject
+                        .get(dependencyInfoForProject));
+
+                if (change.closed || change.opened) {
+                    deregisterDependenciesForJavaProject(javaProject);
+                }
+                if (change.opened) {
+                    registerDependenciesForJavaProject(javaProject);
+                }
+                for (Entry<JarPackageFragmentRoot, Boolean> jar : change.jars.entrySet()) {
+                    if (jar.getValue()) {
+                        registerDependencyForJAR(jar.getKey());
+                    } else {
+                        deregisterDependencyForJAR(jar.getKey());
+                    }
+                }
+
+                Set<DependencyInfo> after = workspaceDependenciesByProject.get(dependencyInfoForProject);
+                if (after.isEmpty()) {
+                    javaProjects.remove(dependencyInfoForProject);
+                } else {
+                    javaProjects.put(dependencyInfoForProject, javaProject);
+                }
+                added.putAll(dependencyInfoForProject, Sets.difference(after, before));
+                removed.putAll(dependencyInfoForProject, Sets.difference(before, after));
+                for (JarPackageFragmentRoot jar : change.removedJars) {
+                    DependencyInfo dependencyInfo = createDependencyInfoForJAR(jar);
+                    if (before.contains(dependencyInfo) && after.contains(dependencyInfo)) {
+                        // replaced rather than unchanged
+                        added.put(dependencyInfoForProject, dependencyInfo);
+                        removed.put(dependencyInfoForProject, dependencyInfo);
+                    }
+                }
+            }
+            event = publishSnapshot(added, removed);
+        }
+        if (event != null) {
+            bus.post(event);
+        }
+    }
+
+    /**
+     * Publishes a new snapshot if anything changed. Must be called while holding the lock on <code>this</code>; the
+     * returned event, if any, should be posted after releasing it.
+     */
+    private DependenciesChanged publishSnapshot(final SetMultimap<DependencyInfo, DependencyInfo> added,
+            final SetMultimap<DependencyInfo, DependencyInfo> removed) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return null;
+        }
+        snapshot = new Snapshot(snapshot.getVersion() + 1, workspaceDependenciesByProject);
+        return new DependenciesChanged(snapshot.getVersion(), added, removed);
     }
 
     private void registerDependenciesForJavaProject(final IJavaProject javaProject) {
         DependencyInfo dependencyInfoForProject = createDependencyInfoForProject(javaProject);
 
-        Optional<DependencyInfo> optionalJREDependencyInfo = createJREDependencyInfo(javaProject);
+        Optional<DependencyInfo> optionalJREDependencyInfo = getJREDependencyInfo(javaProject);
         if (optionalJREDependencyInfo.isPresent()) {
             workspaceDependenciesByProject.put(dependencyInfoForProject, optionalJREDependencyInfo.get());
             jrePackageFragmentRoots.putAll(dependencyInfoForProject, detectJREPackageFragementRoots(javaProject));
@@ -156,15 +659,60 @@ public class EclipseDependencyListener implements IDependencyListener {
         try {
             IVMInstall vmInstall = JavaRuntime.getVMInstall(javaProject);
             File javaHome = vmInstall.getInstallLocation();
-
-            Map<String, String> attributes = Maps.newHashMap();
-            attributes.put(DependencyInfo.EXECUTION_ENVIRONMENT, executionEnvironmentId);
-            return fromNullable(new DependencyInfo(javaHome, DependencyType.JRE, attributes));
+            return of(createJREDependencyInfo(javaHome, executionEnvironmentId));
         } catch (CoreException e) {
             return absent();
         }
     }
 
+    private static DependencyInfo createJREDependencyInfo(final File javaHome, final String executionEnvironmentId) {
+        Map<String, String> attributes = Maps.newHashMap();
+        attributes.put(DependencyInfo.EXECUTION_ENVIRONMENT, executionEnvironmentId);
+        return new DependencyInfo(javaHome, DependencyType.JRE, attributes);
+    }
+
+    /**
+     * Like {@link #createJREDependencyInfo(IJavaProject)}, but looks up the JRE's installation directory only once per
+     * JRE container path.
+     */
+    private Optional<DependencyInfo> getJREDependencyInfo(final IJavaProject javaProject) {
+        String executionEnvironmentId = "";
+        IPath jreContainerPath = null;
+        try {
+            boolean firstContainer = true;
+            for (IClasspathEntry entry : javaProject.getRawClasspath()) {
+                if (entry.getEntryKind() != IClasspathEntry.CPE_CONTAINER) {
+                    continue;
+                }
+                if (firstContainer) {
+                    executionEnvironmentId = JavaRuntime.getExecutionEnvironmentId(entry.getPath());
+                    firstContainer = false;
+                }
+                if (JavaRuntime.JRE_CONTAINER.equals(entry.getPath().segment(0))) {
+                    jreContainerPath = entry.getPath();
+                    break;
+                }
+            }
+        } catch (JavaModelException e) {
+            e.printStackTrace();
+        }
+        if (jreContainerPath == null) {
+            // e.g., a JRE_LIB variable; rare enough to not be worth caching
+            return createJREDependencyInfo(javaProject);
+        }
+        ConcurrentMap<IPath, Optional<File>> installLocations = jreInstallLocations;
+        Optional<File> javaHome = installLocations.get(jreContainerPath);
+        if (javaHome == null) {
+            IVMInstall vmInstall = JavaRuntime.getVMInstall(jreContainerPath);
+            javaHome = vmInstall == null ? Optional.<File> absent() : fromNullable(vmInstall.getInstallLocation());
+            installLocations.put(jreContainerPath, javaHome);
+        }
+        if (!javaHome.isPresent()) {
+            return absent();
+        }
+        return of(createJREDependencyInfo(javaHome.get(), executionEnvironmentId));
+    }
+
     private static String getExecutionEnvironmentId(final IJavaProject javaProject) {
         try {
             for (IClasspathEntry entry : javaProject.getRawClasspath()) {
@@ -222,7 +770,7 @@ public class EclipseDependencyListener implements IDependencyListener {
         return false;
     }
 
-    private DependencyInfo createDependencyInfoForJAR(final JarPackageFragmentRoot root) {
+    public static DependencyInfo createDependencyInfoForJAR(final JarPackageFragmentRoot root) {
         File file = root.getPath().toFile();
         DependencyInfo dependencyInfo = new DependencyInfo(file, DependencyType.JAR);
         return dependencyInfo;
@@ -265,20 +813,21 @@ public class EclipseDependencyListener implements IDependencyListener {
         return absent();
     }
 
+    /**
+     * Returns the dependencies known after the last processed change.
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
     @Override
     public Set<DependencyInfo> getDependencies() {
-        Set<DependencyInfo> dependencies = Sets.newHashSet();
-        for (DependencyInfo javaProjects : workspaceDependenciesByProject.keySet()) {
-            Set<DependencyInfo> dependenciesForProject = workspaceDependenciesByProject.get(javaProjects);
-            dependencies.addAll(dependenciesForProject);
-        }
-        return ImmutableSet.copyOf(dependencies);
+        return snapshot.getDependencies();
     }
 
     @Override
     public Set<DependencyInfo> getDependenciesForProject(final DependencyInfo project) {
-        Set<DependencyInfo> projectDependencies = workspaceDependenciesByProject.get(project);
-        return ImmutableSet.copyOf(projectDependencies);
+        return snapshot.getDependenciesForProject(project);
     }
 
 }
@@ -6,24 +6,68 @@ import static org.eclipse.recommenders.utils.Checks.cast;
 import static org.eclipse.recommenders.utils.rcp.JdtUtils.getLocation;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.dom.IMethodBinding;
 import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.internal.core.JarPackageFragmentRoot;
+import org.eclipse.jdt.internal.core.JavaElement;
 import org.eclipse.recommenders.models.ProjectCoordinate;
 import org.eclipse.recommenders.models.dependencies.DependencyInfo;
 import org.eclipse.recommenders.models.dependencies.DependencyType;
 import org.eclipse.recommenders.models.dependencies.IMappingProvider;
+import org.eclipse.recommenders.models.dependencies.rcp.EclipseDependencyListener;
+import org.eclipse.recommenders.models.dependencies.rcp.EclipseDependencyListener.DependenciesChanged;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Maps;
+import com.google.common.eventbus.Subscribe;
 
+/**
+ * Resolves the project coordinates of Java elements.
+ * <p>
+ * Coordinates of JARs are remembered per package fragment root, keyed by the root's handle identifier. Resolving a
+ * type or method of an already known JAR (e.g., the receiver type in a code completion) thus takes a single map lookup
+ * with the prefix of the element's handle identifier, without touching the Java model or the file system. JARs for
+ * which no coordinate was found are remembered as well. If registered on the event bus, remembered coordinates are
+ * dropped when the {@link EclipseDependencyListener} reports their JAR as removed, which includes JARs replaced in
+ * place and the JARs of closed projects. Clients that make new coordinates available, e.g., by updating an index,
+ * should call {@link #invalidateMisses()}.
+ */
+@SuppressWarnings("restriction")
 public class ProjectCoordinateProvider {
 
+    /**
+     * A coordinate found - or not found - for a package fragment root, together with the dependency the root is
+     * reported as by the {@link EclipseDependencyListener}.
+     */
+    private static final class KnownCoordinate {
+
+        private final Optional<ProjectCoordinate> coordinate;
+        private final DependencyInfo dependency;
+
+        private KnownCoordinate(Optional<ProjectCoordinate> coordinate, DependencyInfo dependency) {
+            this.coordinate = coordinate;
+            this.dependency = dependency;
+        }
+    }
+
 	private IMappingProvider mappingProvider;
 
+    private final ConcurrentMap<String, KnownCoordinate> coordinatesByRoot = Maps.newConcurrentMap();
+    /**
+     * Counts the events and invalidations that dropped remembered coordinates; incremented before dropping them.
+     */
+    private final AtomicLong removals = new AtomicLong();
+
 	public ProjectCoordinateProvider(){
 		
 	}
@@ -44,8 +88,7 @@ public class ProjectCoordinateProvider {
         if (type == null) {
             return absent();
         }
-        IPackageFragmentRoot root = cast(type.getAncestor(PACKAGE_FRAGMENT_ROOT));
-        return resolve(root);
+        return resolveMember(type);
     }
 
     public Optional<ProjectCoordinate> resolve(IMethodBinding binding) {
@@ -60,20 +103,64 @@ public class ProjectCoordinateProvider {
         if (method == null) {
             return absent();
         }
-        IPackageFragmentRoot root = cast(method.getAncestor(PACKAGE_FRAGMENT_ROOT));
+        return resolveMember(method);
+    }
+
+    private Optional<ProjectCoordinate> resolveMember(IJavaElement member) {
+        String rootIdentifier = getRootIdentifier(member.getHandleIdentifier());
+        if (rootIdentifier != null) {
+            KnownCoordinate known = coordinatesByRoot.get(rootIdentifier);
+            if (known != null) {
+                return known.coordinate;
+            }
+        }
+        IPackageFragmentRoot root = cast(member.getAncestor(PACKAGE_FRAGMENT_ROOT));
         return resolve(root);
     }
 
+    /**
+     * Returns the handle identifier of the package fragment root of the element with the given handle identifier,
+     * i.e., the prefix up to the package fragment, or <code>null</code> if the element is not within a package
+     * fragment.
+     */
+    private static String getRootIdentifier(String handleIdentifier) {
+        for (int i = 0; i < handleIdentifier.length(); i++) {
+            char c = handleIdentifier.charAt(i);
+            if (c == JavaElement.JEM_ESCAPE) {
+                i++;
+            } else if (c == JavaElement.JEM_PACKAGEFRAGMENT) {
+                return handleIdentifier.substring(0, i);
+            }
+        }
+        return null;
+    }
+
     public Optional<ProjectCoordinate> resolve(IPackageFragmentRoot root) {
         if (root == null) {
             return absent();
         }
+        String rootIdentifier = root.getHandleIdentifier();
+        KnownCoordinate known = coordinatesByRoot.get(rootIdentifier);
+        if (known != null) {
+            return known.coordinate;
+        }
         if (!root.isArchive()) {
             return resolve(root.getJavaProject());
         }
+        long removalsBefore = removals.get();
         File jarFile = getLocation(root).orNull();
         DependencyInfo request = new DependencyInfo(jarFile, DependencyType.JAR);
-        return resolve(request);
+        Optional<ProjectCoordinate> res = resolve(request);
+        if (jarFile != null && root instanceof JarPackageFragmentRoot) {
+            KnownCoordinate entry = new KnownCoordinate(res,
+                    EclipseDependencyListener.createDependencyInfoForJAR((JarPackageFragmentRoot) root));
+            coordinatesByRoot.put(rootIdentifier, entry);
+            // the root may have been removed while resolving, in which case the event did not see the entry yet
+            if (removals.get() != removalsBefore) {
+                coordinatesByRoot.remove(rootIdentifier, entry);
+            }
+        }
+        return res;
     }
 
     public Optional<ProjectCoordinate> resolve(IJavaProject javaProject) {
@@ -86,4 +173,35 @@ public class ProjectCoordinateProvider {
     	return mappingProvider.searchForProjectCoordinate(info);
     }
 
+    /**
+     * Drops the remembered coordinates of all JARs removed from any project, including JARs replaced in place and the
+     * JARs of closed projects. The roots of a JAR in other projects are resolved again, too, which is cheap since the
+     * mapping provider caches coordinates itself.
+     */
+    @Subscribe
+    public void onEvent(DependenciesChanged e) {
+        if (e.removed.isEmpty()) {
+            return;
+        }
+        removals.incrementAndGet();
+        Collection<DependencyInfo> removed = e.removed.values();
+        for (Iterator<KnownCoordinate> it = coordinatesByRoot.values().iterator(); it.hasNext();) {
+            if (removed.contains(it.next().dependency)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops all remembered JARs for which no coordinate was found, such that they are resolved again on the next
+     * request.
+     */
+    public void invalidateMisses() {
+        removals.incrementAndGet();
+        for (Iterator<KnownCoordinate> it = coordinatesByRoot.values().iterator(); it.hasNext();) {
+            if (!it.next().coordinate.isPresent()) {
+                it.remove();
+            }
+        }
+    }
 }
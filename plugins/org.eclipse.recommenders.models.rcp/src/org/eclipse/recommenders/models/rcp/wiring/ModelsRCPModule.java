@@ -10,11 +10,26 @@
  */
 package org.eclipse.recommenders.models.rcp.wiring;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.eclipse.recommenders.models.rcp.Constants.BUNDLE_ID;
+
+import java.io.File;
+
 import javax.inject.Singleton;
 
+import org.eclipse.core.resources.ISaveContext;
+import org.eclipse.core.resources.ISaveParticipant;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.recommenders.models.dependencies.impl.MappingProvider;
 import org.eclipse.recommenders.models.dependencies.rcp.EclipseDependencyListener;
+import org.eclipse.recommenders.models.rcp.ProjectCoordinateProvider;
+import org.eclipse.recommenders.rcp.events.JavaModelEvents.JarPackageFragmentRootRemoved;
 
 import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
 import com.google.inject.AbstractModule;
 import com.google.inject.Module;
 import com.google.inject.Provides;
@@ -28,8 +43,103 @@ public class ModelsRCPModule extends AbstractModule implements Module {
 	
 	@Singleton
 	@Provides
-	protected EclipseDependencyListener provideMappingProvider(EventBus bus) {
-		return new EclipseDependencyListener(bus);
+	protected EclipseDependencyListener provideMappingProvider(EventBus bus,
+			MappingProvider mappingProvider) {
+		IPath stateLocation = Platform.getStateLocation(Platform
+				.getBundle(BUNDLE_ID));
+		File dependenciesFile = stateLocation.append("dependencies.json")
+				.toFile();
+		File coordinatesFile = stateLocation.append("coordinates.json")
+				.toFile();
+		mappingProvider.restoreCache(coordinatesFile);
+		bus.register(new CoordinateCacheInvalidator(mappingProvider));
+		EclipseDependencyListener listener = new EclipseDependencyListener(bus,
+				500, MILLISECONDS, dependenciesFile);
+		try {
+			ResourcesPlugin.getWorkspace().addSaveParticipant(
+					BUNDLE_ID,
+					new DependenciesSaveParticipant(listener, mappingProvider,
+							coordinatesFile));
+		} catch (CoreException e) {
+			e.printStackTrace();
+		}
+		return listener;
+	}
+
+	@Singleton
+	@Provides
+	protected ProjectCoordinateProvider provideProjectCoordinateProvider(
+			EventBus bus, MappingProvider mappingProvider) {
+		ProjectCoordinateProvider provider = new ProjectCoordinateProvider(
+				mappingProvider);
+		bus.register(provider);
+		return provider;
+	}
+
+	/**
+	 * Drops the cached coordinates of JARs removed from the workspace. JDT
+	 * reports a JAR that changed in place as removed and added again, so its
+	 * coordinate is resolved again on the next request.
+	 */
+	@SuppressWarnings("restriction")
+	private static final class CoordinateCacheInvalidator {
+
+		private final MappingProvider mappingProvider;
+
+		private CoordinateCacheInvalidator(MappingProvider mappingProvider) {
+			this.mappingProvider = mappingProvider;
+		}
+
+		@Subscribe
+		public void onEvent(JarPackageFragmentRootRemoved e) {
+			mappingProvider.invalidate(EclipseDependencyListener
+					.createDependencyInfoForJAR(e.root));
+		}
+	}
+
+	/**
+	 * Stores the workspace dependencies and the project coordinates resolved
+	 * so far when the workspace is saved on shutdown, such that the next start
+	 * only needs to revalidate what changed in the meantime.
+	 */
+	private static final class DependenciesSaveParticipant implements
+			ISaveParticipant {
+
+		private final EclipseDependencyListener listener;
+		private final MappingProvider mappingProvider;
+		private final File coordinatesFile;
+
+		private DependenciesSaveParticipant(EclipseDependencyListener listener,
+				MappingProvider mappingProvider, File coordinatesFile) {
+			this.listener = listener;
+			this.mappingProvider = mappingProvider;
+			this.coordinatesFile = coordinatesFile;
+		}
+
+		@Override
+		public void saving(ISaveContext context) {
+			if (context.getKind() != ISaveContext.FULL_SAVE) {
+				return;
+			}
+			listener.saveState();
+			try {
+				mappingProvider.storeCache(coordinatesFile);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+		}
+
+		@Override
+		public void prepareToSave(ISaveContext context) {
+		}
+
+		@Override
+		public void doneSaving(ISaveContext context) {
+		}
+
+		@Override
+		public void rollback(ISaveContext context) {
+		}
 	}
 
 }
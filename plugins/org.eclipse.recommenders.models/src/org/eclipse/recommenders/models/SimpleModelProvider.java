@@ -1,19 +1,20 @@
 package org.eclipse.recommenders.models;
 
 import static com.google.common.base.Optional.absent;
-import static com.google.common.io.ByteStreams.toByteArray;
-import static com.google.common.io.Files.newInputStreamSupplier;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static org.eclipse.recommenders.models.ModelArchiveCoordinate.UNKNOWN;
-import static org.eclipse.recommenders.utils.Zips.closeQuietly;
+import static org.eclipse.recommenders.utils.IOUtils.closeQuietly;
+import static org.eclipse.recommenders.utils.Zips.openArchive;
+import static org.eclipse.recommenders.utils.Zips.warmup;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.util.zip.ZipFile;
+import java.io.InputStream;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.recommenders.utils.IZipArchive;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Optional;
 import com.google.common.cache.CacheBuilder;
@@ -21,16 +22,20 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
-import com.google.common.reflect.Reflection;
 
 /**
  * A non-thread-safe implementation of {@link IModelProvider} that loads models from model zip files using a
  * {@link ModelRepository}. Note that {@link #acquireModel(IBasedName)} attempts to download matching model archives
  * immediately and thus blocks until the download is completed.
+ * <p>
+ * Model archives are either read from disk or, if requested, loaded completely into memory (see
+ * {@link org.eclipse.recommenders.utils.InMemoryZipArchive}). The latter trades heap space for faster model loading.
  */
 public abstract class SimpleModelProvider<K extends IBasedName<?>, M> implements IModelProvider<K, M> {
 
-    private final LoadingCache<ModelArchiveCoordinate, ZipFile> openZips = CacheBuilder.newBuilder()
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final LoadingCache<ModelArchiveCoordinate, IZipArchive> openZips = CacheBuilder.newBuilder()
             .maximumSize(10)
             .expireAfterAccess(1, MINUTES)
             .removalListener(new ZipRemovalListener())
@@ -38,17 +43,26 @@ public abstract class SimpleModelProvider<K extends IBasedName<?>, M> implements
 
     protected final ModelRepository archiveStore;
     protected final String modelType;
+    protected final boolean inMemory;
 
     public SimpleModelProvider(ModelRepository cache, String modelType) {
+        this(cache, modelType, false);
+    }
+
+    /**
+     * @param inMemory if <code>true</code>, model archives are loaded completely into memory when first accessed
+     */
+    public SimpleModelProvider(ModelRepository cache, String modelType, boolean inMemory) {
         this.archiveStore = cache;
         this.modelType = modelType;
+        this.inMemory = inMemory;
     }
 
     @Override
     public Optional<M> acquireModel(K key) {
         try {
             ModelArchiveCoordinate coord = archiveStore.findBestModelArchive(key.getBase(), modelType).or(UNKNOWN);
-            ZipFile zip = openZips.get(coord);
+            IZipArchive zip = openZips.get(coord);
             return loadModel(zip, key);
         } catch (Exception e) {
             // TODO log message
@@ -57,7 +71,7 @@ public abstract class SimpleModelProvider<K extends IBasedName<?>, M> implements
         }
     }
 
-    protected abstract Optional<M> loadModel(ZipFile zip, K key) throws Exception;
+    protected abstract Optional<M> loadModel(IZipArchive zip, K key) throws Exception;
 
     @Override
     public void releaseModel(M value) {
@@ -73,40 +87,51 @@ public abstract class SimpleModelProvider<K extends IBasedName<?>, M> implements
     }
 
     /**
-     * Fake ZipFile implementation that seves as NULL object for the cache.
+     * Empty zip archive that serves as NULL object for the cache.
      */
-    private static final ZipFile FAKE = Reflection.newProxy(ZipFile.class, new InvocationHandler() {
+    private static final IZipArchive FAKE = new IZipArchive() {
 
         @Override
-        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-            return null;
+        public boolean containsEntry(String path) {
+            return false;
         }
-    });
+
+        @Override
+        public Optional<InputStream> getInputStream(String path) {
+            return absent();
+        }
+
+        @Override
+        public void close() {
+        }
+    };
 
     /**
-     * Resolves the given model archive coordinate from models store, puts the zip file into the cache, and loads the
-     * file contents completely in memory for faster data access.
+     * Resolves the given model archive coordinate from models store and puts the opened archive into the cache. Unless
+     * the archive is loaded into memory, its contents are pulled into the OS page cache for faster data access.
      */
-    private final class ZipCacheLoader extends CacheLoader<ModelArchiveCoordinate, ZipFile> {
+    private final class ZipCacheLoader extends CacheLoader<ModelArchiveCoordinate, IZipArchive> {
         @Override
-        public ZipFile load(ModelArchiveCoordinate key) throws Exception {
+        public IZipArchive load(ModelArchiveCoordinate key) throws Exception {
             archiveStore.resolve(key, new NullProgressMonitor());
             File location = archiveStore.getLocation(key).orNull();
             if (location == null) {
                 return FAKE;
             }
-            // read file in memory to speed up access
-            toByteArray(newInputStreamSupplier(location));
-            return new ZipFile(location);
+            if (!inMemory) {
+                long millis = warmup(location);
+                log.debug("Warmed up model archive {} in {} ms", location, millis);
+            }
+            return openArchive(location, inMemory);
         }
     }
 
     /**
      * Closes an zip file evicted from the cache.
      */
-    private final class ZipRemovalListener implements RemovalListener<ModelArchiveCoordinate, ZipFile> {
+    private final class ZipRemovalListener implements RemovalListener<ModelArchiveCoordinate, IZipArchive> {
         @Override
-        public void onRemoval(RemovalNotification<ModelArchiveCoordinate, ZipFile> notification) {
+        public void onRemoval(RemovalNotification<ModelArchiveCoordinate, IZipArchive> notification) {
             closeQuietly(notification.getValue());
         }
     }
@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Olav Lenz - initial API and implementation
+ */
+package org.eclipse.recommenders.models.dependencies;
+
+/**
+ * A strategy that tells an {@link IMappingProvider} how expensive it is and how much its results can be trusted. The
+ * provider uses this information to run cheap strategies first and to stop as soon as a trustworthy coordinate was
+ * found. Strategies that do not implement this interface are treated as {@link Cost#MODERATE} and fully confident.
+ */
+public interface IRatedProjectCoordinateResolver extends IProjectCoordinateResolver {
+
+    /**
+     * A rough estimate of the cost of a single search, used until the provider measured the actual cost.
+     */
+    enum Cost {
+        /**
+         * Uses only information available in memory, e.g., the attributes of a {@link DependencyInfo}.
+         */
+        CHEAP,
+        /**
+         * Reads small files or the central directory of an archive.
+         */
+        MODERATE,
+        /**
+         * Reads the whole dependency, e.g., to compute its fingerprint.
+         */
+        EXPENSIVE
+    }
+
+    Cost getEstimatedCost();
+
+    /**
+     * Returns the confidence in <code>[0..1]</code> that a coordinate found by this strategy is correct.
+     */
+    double getConfidence();
+}
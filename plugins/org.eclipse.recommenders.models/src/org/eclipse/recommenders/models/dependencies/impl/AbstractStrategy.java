@@ -14,11 +14,11 @@ import static com.google.common.base.Optional.absent;
 
 import org.eclipse.recommenders.models.ProjectCoordinate;
 import org.eclipse.recommenders.models.dependencies.DependencyInfo;
-import org.eclipse.recommenders.models.dependencies.IProjectCoordinateResolver;
+import org.eclipse.recommenders.models.dependencies.IRatedProjectCoordinateResolver;
 
 import com.google.common.base.Optional;
 
-public abstract class AbstractStrategy implements IProjectCoordinateResolver {
+public abstract class AbstractStrategy implements IRatedProjectCoordinateResolver {
 
     @Override
     public Optional<ProjectCoordinate> searchForProjectCoordinate(DependencyInfo dependencyInfo) {
@@ -30,4 +30,14 @@ public abstract class AbstractStrategy implements IProjectCoordinateResolver {
 
     protected abstract Optional<ProjectCoordinate> extractProjectCoordinateInternal(DependencyInfo dependencyInfo);
 
+    @Override
+    public Cost getEstimatedCost() {
+        return Cost.MODERATE;
+    }
+
+    @Override
+    public double getConfidence() {
+        return 1.0;
+    }
+
 }
@@ -13,6 +13,8 @@ package org.eclipse.recommenders.models.dependencies.impl;
 import static com.google.common.base.Optional.absent;
 import static com.google.common.base.Optional.fromNullable;
 
+import java.io.File;
+
 import org.eclipse.recommenders.models.ProjectCoordinate;
 import org.eclipse.recommenders.models.dependencies.DependencyType;
 import org.eclipse.recommenders.models.dependencies.DependencyInfo;
@@ -20,10 +22,23 @@ import org.eclipse.recommenders.utils.Fingerprints;
 import org.sonatype.aether.util.artifact.DefaultArtifact;
 
 import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
+/**
+ * Looks up the SHA-1 fingerprint of a JAR in an index.
+ * <p>
+ * Computing the fingerprint requires reading the whole JAR. Hence, fingerprints are cached by the much cheaper
+ * fingerprint of the JAR's central directory (see {@link Fingerprints#sha1CentralDirectory(File)}), e.g., for JARs
+ * that are copied into several projects or that were touched without being changed.
+ */
 public class FingerprintStrategy extends AbstractStrategy {
 
+    private static final int MAX_CACHED_FINGERPRINTS = 10000;
+
     private final SimpleIndexSearcher indexer;
+    private final Cache<String, String> fingerprints = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_FINGERPRINTS)
+            .build();
 
     public FingerprintStrategy(SimpleIndexSearcher indexer) {
         this.indexer = indexer;
@@ -34,15 +49,33 @@ public class FingerprintStrategy extends AbstractStrategy {
         return dependencyType == DependencyType.JAR;
     }
 
+    @Override
+    public Cost getEstimatedCost() {
+        return Cost.EXPENSIVE;
+    }
+
     @Override
     protected Optional<ProjectCoordinate> extractProjectCoordinateInternal(DependencyInfo dependencyInfo) {
-        String fingerprint = Fingerprints.sha1(dependencyInfo.getFile());
+        String fingerprint = getFingerprint(dependencyInfo.getFile());
         indexer.open();
         Optional<String> optionalCoordinateString = indexer.searchByFingerprint(fingerprint);
         indexer.close();
         return extractProjectCoordinate(optionalCoordinateString);
     }
 
+    private String getFingerprint(File file) {
+        Optional<String> centralDirectory = Fingerprints.sha1CentralDirectory(file);
+        if (!centralDirectory.isPresent()) {
+            return Fingerprints.sha1(file);
+        }
+        String fingerprint = fingerprints.getIfPresent(centralDirectory.get());
+        if (fingerprint == null) {
+            fingerprint = Fingerprints.sha1(file);
+            fingerprints.put(centralDirectory.get(), fingerprint);
+        }
+        return fingerprint;
+    }
+
     private Optional<ProjectCoordinate> extractProjectCoordinate(Optional<String> optionalCoordinateString) {
         if (!optionalCoordinateString.isPresent()){
             return absent();
@@ -24,6 +24,8 @@ import com.google.common.collect.Maps;
 
 public class JREExecutionEnvironmentStrategy extends AbstractStrategy {
 
+	private static final int LATEST_FEATURE_RELEASE = 25;
+
 	private static Map<String, ProjectCoordinate> lookUpTable = createLookUpTable();
 
 	@Override
@@ -51,6 +53,17 @@ public class JREExecutionEnvironmentStrategy extends AbstractStrategy {
 		result.put("J2SE-1.5", new ProjectCoordinate("jre", "jre", "1.5.0"));
 		result.put("JavaSE-1.6", new ProjectCoordinate("jre", "jre", "1.6.0"));
 		result.put("JavaSE-1.7", new ProjectCoordinate("jre", "jre", "1.7.0"));
+		result.put("JavaSE-1.8", new ProjectCoordinate("jre", "jre", "1.8.0"));
+		for (int profile = 1; profile <= 3; profile++) {
+			result.put("JavaSE/compact" + profile + "-1.8",
+					new ProjectCoordinate("jre", "jre", "1.8.0"));
+		}
+		// since Java 9, execution environments are named after the feature
+		// release
+		for (int release = 9; release <= LATEST_FEATURE_RELEASE; release++) {
+			result.put("JavaSE-" + release, new ProjectCoordinate("jre", "jre",
+					release + ".0.0"));
+		}
 
 		return result;
 	}
@@ -60,4 +73,18 @@ public class JREExecutionEnvironmentStrategy extends AbstractStrategy {
 		return dependencyType == DependencyType.JRE;
 	}
 
+	@Override
+	public Cost getEstimatedCost() {
+		return Cost.CHEAP;
+	}
+
+	/**
+	 * The execution environment only determines the major version of the
+	 * JRE.
+	 */
+	@Override
+	public double getConfidence() {
+		return 0.9;
+	}
+
 }
@@ -19,6 +19,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.recommenders.models.ProjectCoordinate;
 import org.eclipse.recommenders.models.dependencies.DependencyInfo;
@@ -26,12 +27,53 @@ import org.eclipse.recommenders.models.dependencies.DependencyType;
 import org.eclipse.recommenders.utils.IOUtils;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Maps;
 
+/**
+ * Reads the version of a JRE from the <code>release</code> file in its installation directory.
+ * <p>
+ * The version found is cached per installation directory and only read again if the release file's modification time
+ * or size changed. Hence, the release file of a JRE shared by many projects is parsed only once.
+ */
 public class JREReleaseFileStrategy extends AbstractStrategy {
 
+    private static final class CachedRelease {
+
+        private final long lastModified;
+        private final long length;
+        private final Optional<ProjectCoordinate> projectCoordinate;
+
+        private CachedRelease(long lastModified, long length, Optional<ProjectCoordinate> projectCoordinate) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.projectCoordinate = projectCoordinate;
+        }
+
+        private boolean isUpToDate(File releaseFile) {
+            return releaseFile.lastModified() == lastModified && releaseFile.length() == length;
+        }
+    }
+
+    private final ConcurrentMap<File, CachedRelease> releases = Maps.newConcurrentMap();
+
     @Override
     protected Optional<ProjectCoordinate> extractProjectCoordinateInternal(DependencyInfo dependencyInfo) {
-        Optional<FileInputStream> optionalReleaseFileInputStream = readReleaseFileIn(dependencyInfo.getFile());
+        File javaHome = dependencyInfo.getFile().getAbsoluteFile();
+        File releaseFile = new File(javaHome, "release");
+        CachedRelease cached = releases.get(javaHome);
+        if (cached != null && cached.isUpToDate(releaseFile)) {
+            return cached.projectCoordinate;
+        }
+        // take the stamp first, such that changes made while reading are detected on the next lookup
+        long lastModified = releaseFile.lastModified();
+        long length = releaseFile.length();
+        Optional<ProjectCoordinate> res = readProjectCoordinate(javaHome);
+        releases.put(javaHome, new CachedRelease(lastModified, length, res));
+        return res;
+    }
+
+    private Optional<ProjectCoordinate> readProjectCoordinate(File javaHome) {
+        Optional<FileInputStream> optionalReleaseFileInputStream = readReleaseFileIn(javaHome);
         if (!optionalReleaseFileInputStream.isPresent()) {
             return absent();
         }
@@ -75,4 +117,9 @@ public class JREReleaseFileStrategy extends AbstractStrategy {
         return dependencyType == DependencyType.JRE;
     }
 
+    @Override
+    public Cost getEstimatedCost() {
+        return Cost.MODERATE;
+    }
+
 }
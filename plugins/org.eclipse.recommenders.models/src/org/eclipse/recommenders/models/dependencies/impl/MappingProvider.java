@@ -13,36 +13,256 @@ package org.eclipse.recommenders.models.dependencies.impl;
 import static com.google.common.base.Optional.absent;
 import static com.google.common.base.Optional.fromNullable;
 
+import java.io.File;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.recommenders.models.ProjectCoordinate;
 import org.eclipse.recommenders.models.dependencies.DependencyInfo;
 import org.eclipse.recommenders.models.dependencies.DependencyType;
 import org.eclipse.recommenders.models.dependencies.IMappingProvider;
 import org.eclipse.recommenders.models.dependencies.IProjectCoordinateResolver;
+import org.eclipse.recommenders.models.dependencies.IRatedProjectCoordinateResolver;
+import org.eclipse.recommenders.models.dependencies.IRatedProjectCoordinateResolver.Cost;
+import org.eclipse.recommenders.utils.Fingerprints;
 import org.eclipse.recommenders.utils.annotations.Testing;
+import org.eclipse.recommenders.utils.gson.GsonUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Optional;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 
+/**
+ * Resolves project coordinates by asking a list of strategies.
+ * <p>
+ * Unless adaptive ordering is disabled, the strategies applicable to a
+ * dependency are run in the order of their expected cost per found
+ * coordinate, which is estimated from the measured latency and success rate
+ * of each strategy (and from {@link IRatedProjectCoordinateResolver}'s
+ * estimated cost until enough measurements exist). The order in which
+ * strategies were added only breaks ties.
+ * <p>
+ * The search stops as soon as a strategy found a coordinate with at least the
+ * minimum confidence. Otherwise, only strategies that are more confident than
+ * the best coordinate found so far are asked. If a speculative executor is
+ * set, all strategies that are not {@link Cost#EXPENSIVE} are started in
+ * parallel right away; such strategies must be thread-safe.
+ * <p>
+ * Found coordinates are cached without a size limit, i.e., the cache grows
+ * with the number of dependencies in the workspace. Dependencies for which no
+ * coordinate was found are cached as well, but searched again after
+ * {@link #setMissExpiry(long, TimeUnit) a while} or once
+ * {@link #invalidateMisses()} was called, e.g., because a strategy's index
+ * was updated. Each entry remembers the modification time and size of the
+ * dependency's file when it was resolved; if either changed, e.g., because a
+ * JAR was replaced in place, the coordinate is resolved again. For JARs, the entry also remembers a
+ * fingerprint of the zip central directory (see
+ * {@link Fingerprints#sha1CentralDirectory(File)}), such that a JAR that was
+ * only touched or copied again is recognized without running any strategy.
+ * Clients should {@link #invalidate(DependencyInfo)} dependencies that were
+ * removed from the workspace.
+ */
 public class MappingProvider implements IMappingProvider {
 
+	/**
+	 * Immutable statistics about the searches of a single strategy. Only
+	 * searches for dependencies the strategy is applicable to are counted.
+	 */
+	public static final class StrategyMetrics {
+
+		private final long calls;
+		private final long hits;
+		private final long failures;
+		private final long totalNanos;
+
+		private StrategyMetrics(long calls, long hits, long failures,
+				long totalNanos) {
+			this.calls = calls;
+			this.hits = hits;
+			this.failures = failures;
+			this.totalNanos = totalNanos;
+		}
+
+		public long getCalls() {
+			return calls;
+		}
+
+		/**
+		 * Returns the number of searches that found a coordinate.
+		 */
+		public long getHits() {
+			return hits;
+		}
+
+		/**
+		 * Returns the number of searches that threw an exception.
+		 */
+		public long getFailures() {
+			return failures;
+		}
+
+		public long getTotalTime(TimeUnit unit) {
+			return unit.convert(totalNanos, TimeUnit.NANOSECONDS);
+		}
+
+		public double getMeanNanos() {
+			return calls == 0 ? 0 : totalNanos / (double) calls;
+		}
+
+		public double getSuccessRate() {
+			return calls == 0 ? 0 : hits / (double) calls;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d calls, %d hits, %d failures, %.3f ms mean",
+					calls, hits, failures, getMeanNanos() / 1e6);
+		}
+	}
+
+	private static final class StrategyStatistics {
+
+		private final AtomicLong calls = new AtomicLong();
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong failures = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+
+		private void record(long nanos, boolean hit, boolean failure) {
+			calls.incrementAndGet();
+			totalNanos.addAndGet(nanos);
+			if (hit) {
+				hits.incrementAndGet();
+			}
+			if (failure) {
+				failures.incrementAndGet();
+			}
+		}
+
+		/**
+		 * Returns the expected time spent per found coordinate. The estimated
+		 * cost and a success rate of 50% serve as a prior that is soon
+		 * dominated by the measurements.
+		 */
+		private double getExpectedCost(Cost estimatedCost) {
+			long n = calls.get();
+			double latency = (totalNanos.get() + getEstimatedNanos(estimatedCost))
+					/ (double) (n + 1);
+			double successRate = (hits.get() + 1) / (double) (n + 2);
+			return latency / successRate;
+		}
+
+		private StrategyMetrics toMetrics() {
+			return new StrategyMetrics(calls.get(), hits.get(),
+					failures.get(), totalNanos.get());
+		}
+	}
+
+	public static final double DEFAULT_MIN_CONFIDENCE = 0.9;
+
+	/**
+	 * A resolved coordinate as stored by {@link MappingProvider#storeCache(File)}.
+	 */
+	private static final class StoredCoordinate {
+		private DependencyInfo dependencyInfo;
+		private long lastModified;
+		private long length;
+		private String centralDirectory;
+		private ProjectCoordinate projectCoordinate;
+	}
+
+	/**
+	 * A cached coordinate together with the stamp of the file it was resolved
+	 * from and the time it was resolved at. Manual mappings are pinned, i.e.,
+	 * never outdated.
+	 */
+	private static final class CachedCoordinate {
+
+		private final Optional<ProjectCoordinate> projectCoordinate;
+		private final boolean pinned;
+		private final long lastModified;
+		private final long length;
+		private final String centralDirectory;
+		private final long resolvedNanos;
+
+		private CachedCoordinate(Optional<ProjectCoordinate> projectCoordinate,
+				boolean pinned, long lastModified, long length,
+				String centralDirectory, long resolvedNanos) {
+			this.projectCoordinate = projectCoordinate;
+			this.pinned = pinned;
+			this.lastModified = lastModified;
+			this.length = length;
+			this.centralDirectory = centralDirectory;
+			this.resolvedNanos = resolvedNanos;
+		}
+
+		private static CachedCoordinate pinned(
+				Optional<ProjectCoordinate> projectCoordinate) {
+			return new CachedCoordinate(projectCoordinate, true, 0, 0, null,
+					System.nanoTime());
+		}
+
+		private boolean isMiss() {
+			return !pinned && !projectCoordinate.isPresent();
+		}
+
+		private boolean isUpToDate(File file) {
+			return pinned || file == null
+					|| (file.lastModified() == lastModified && file.length() == length);
+		}
+
+		/**
+		 * Returns a copy with the current stamp of the given file if the
+		 * file's content is still the same according to its central
+		 * directory, or <code>null</code> otherwise.
+		 */
+		private CachedCoordinate revalidate(File file) {
+			if (centralDirectory == null || file.length() != length) {
+				return null;
+			}
+			long newLastModified = file.lastModified();
+			if (!centralDirectory.equals(fingerprintCentralDirectory(file))) {
+				return null;
+			}
+			return new CachedCoordinate(projectCoordinate, false,
+					newLastModified, length, centralDirectory, resolvedNanos);
+		}
+	}
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	private final ConcurrentMap<IProjectCoordinateResolver, StrategyStatistics> statistics = new MapMaker()
+			.weakKeys().makeMap();
+	private volatile boolean adaptiveOrdering = true;
+	private volatile double minConfidence = DEFAULT_MIN_CONFIDENCE;
+	private volatile ExecutorService speculativeExecutor;
+	private volatile long missExpiryNanos = TimeUnit.MINUTES.toNanos(10);
+
 	private List<IProjectCoordinateResolver> strategies = Lists.newArrayList();
-	private Cache<DependencyInfo, Optional<ProjectCoordinate>> cache;
+	private Cache<DependencyInfo, CachedCoordinate> cache;
+	private final AtomicLong staleCount = new AtomicLong();
 	private Map<DependencyInfo, ProjectCoordinate> manualMappings = Maps
 			.newHashMap();
 
 	public MappingProvider() {
-		cache = CacheBuilder.newBuilder().maximumSize(200).recordStats()
-				.build();
+		cache = CacheBuilder.newBuilder().recordStats().build();
 	}
 
 	public MappingProvider(Map<DependencyInfo, ProjectCoordinate> manualMappings) {
@@ -58,41 +278,292 @@ public class MappingProvider implements IMappingProvider {
 	@Override
 	public void addStrategy(IProjectCoordinateResolver strategy) {
 		strategies.add(strategy);
+		invalidateMisses();
 	}
 
 	@Override
 	public void setStrategies(List<IProjectCoordinateResolver> strategies) {
 		this.strategies = strategies;
+		invalidateMisses();
 	}
 
 	@Override
 	public Optional<ProjectCoordinate> searchForProjectCoordinate(
 			final DependencyInfo dependencyInfo) {
-		try {
-			return cache.get(dependencyInfo,
-					new Callable<Optional<ProjectCoordinate>>() {
+		Callable<CachedCoordinate> loader = new Callable<CachedCoordinate>() {
 
-						@Override
-						public Optional<ProjectCoordinate> call()
-								throws Exception {
-							return extractProjectCoordinate(dependencyInfo);
-						}
-					});
+			@Override
+			public CachedCoordinate call() throws Exception {
+				File file = dependencyInfo.getFile();
+				// take the stamp first, such that changes made while
+				// resolving are detected on the next lookup
+				long lastModified = file == null ? 0 : file.lastModified();
+				long length = file == null ? 0 : file.length();
+				String centralDirectory = dependencyInfo.getType() == DependencyType.JAR
+						&& file != null ? fingerprintCentralDirectory(file)
+						: null;
+				long resolvedNanos = System.nanoTime();
+				return new CachedCoordinate(
+						extractProjectCoordinate(dependencyInfo), false,
+						lastModified, length, centralDirectory, resolvedNanos);
+			}
+		};
+		try {
+			CachedCoordinate cached = cache.get(dependencyInfo, loader);
+			if (!cached.isUpToDate(dependencyInfo.getFile())) {
+				CachedCoordinate revalidated = cached
+						.revalidate(dependencyInfo.getFile());
+				if (revalidated != null) {
+					cache.asMap().replace(dependencyInfo, cached, revalidated);
+					return revalidated.projectCoordinate;
+				}
+				// counted as a hit followed by a miss
+				staleCount.incrementAndGet();
+				cache.asMap().remove(dependencyInfo, cached);
+				cached = cache.get(dependencyInfo, loader);
+			}
+			if (cached.isMiss()
+					&& System.nanoTime() - cached.resolvedNanos >= missExpiryNanos) {
+				cache.asMap().remove(dependencyInfo, cached);
+				cached = cache.get(dependencyInfo, loader);
+			}
+			return cached.projectCoordinate;
 		} catch (Exception e) {
 			return absent();
 		}
 	}
 
+	/**
+	 * Returns the central directory fingerprint of the given JAR or
+	 * <code>null</code> if it is no regular file or no zip file.
+	 */
+	private static String fingerprintCentralDirectory(File file) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			return Fingerprints.sha1CentralDirectory(file).orNull();
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
 	private Optional<ProjectCoordinate> extractProjectCoordinate(
 			DependencyInfo dependencyInfo) {
-		for (IProjectCoordinateResolver strategy : strategies) {
-			Optional<ProjectCoordinate> optionalProjectCoordinate = strategy
-					.searchForProjectCoordinate(dependencyInfo);
-			if (optionalProjectCoordinate.isPresent()) {
-				return optionalProjectCoordinate;
+		List<IProjectCoordinateResolver> candidates = ImmutableList
+				.copyOf(strategies);
+		if (adaptiveOrdering) {
+			candidates = orderByExpectedCost(candidates,
+					dependencyInfo.getType());
+		}
+		Map<IProjectCoordinateResolver, Future<Optional<ProjectCoordinate>>> speculativeSearches = startSpeculativeSearches(
+				candidates, dependencyInfo);
+		ProjectCoordinate best = null;
+		double bestConfidence = -1;
+		try {
+			for (IProjectCoordinateResolver strategy : candidates) {
+				double confidence = getConfidence(strategy);
+				if (confidence <= bestConfidence) {
+					continue;
+				}
+				Future<Optional<ProjectCoordinate>> speculativeSearch = speculativeSearches
+						.get(strategy);
+				Optional<ProjectCoordinate> optionalProjectCoordinate = speculativeSearch == null ? search(
+						strategy, dependencyInfo) : getResult(speculativeSearch,
+						strategy, dependencyInfo);
+				if (optionalProjectCoordinate.isPresent()) {
+					best = optionalProjectCoordinate.get();
+					bestConfidence = confidence;
+					if (confidence >= minConfidence) {
+						break;
+					}
+				}
+			}
+		} finally {
+			// searches that already started are not interrupted, since
+			// strategies may share resources like an open index
+			for (Future<?> speculativeSearch : speculativeSearches.values()) {
+				speculativeSearch.cancel(false);
+			}
+		}
+		return fromNullable(best);
+	}
+
+	private List<IProjectCoordinateResolver> orderByExpectedCost(
+			List<IProjectCoordinateResolver> candidates, DependencyType type) {
+		final Map<IProjectCoordinateResolver, Double> expectedCosts = Maps
+				.newIdentityHashMap();
+		for (IProjectCoordinateResolver strategy : candidates) {
+			expectedCosts.put(strategy, strategy.isApplicable(type) ? getStatistics(
+					strategy).getExpectedCost(getEstimatedCost(strategy))
+					: Double.MAX_VALUE);
+		}
+		List<IProjectCoordinateResolver> res = Lists.newArrayList(candidates);
+		// stable, i.e., ties keep the order in which strategies were added
+		Collections.sort(res, new Comparator<IProjectCoordinateResolver>() {
+
+			@Override
+			public int compare(IProjectCoordinateResolver o1,
+					IProjectCoordinateResolver o2) {
+				return Double.compare(expectedCosts.get(o1),
+						expectedCosts.get(o2));
+			}
+		});
+		return res;
+	}
+
+	private Map<IProjectCoordinateResolver, Future<Optional<ProjectCoordinate>>> startSpeculativeSearches(
+			List<IProjectCoordinateResolver> candidates,
+			final DependencyInfo dependencyInfo) {
+		ExecutorService executor = speculativeExecutor;
+		if (executor == null) {
+			return Collections.emptyMap();
+		}
+		Map<IProjectCoordinateResolver, Future<Optional<ProjectCoordinate>>> res = Maps
+				.newIdentityHashMap();
+		for (final IProjectCoordinateResolver strategy : candidates) {
+			if (getEstimatedCost(strategy) == Cost.EXPENSIVE
+					|| !strategy.isApplicable(dependencyInfo.getType())) {
+				continue;
 			}
+			res.put(strategy, executor
+					.submit(new Callable<Optional<ProjectCoordinate>>() {
+
+						@Override
+						public Optional<ProjectCoordinate> call() {
+							return search(strategy, dependencyInfo);
+						}
+					}));
+		}
+		return res;
+	}
+
+	/**
+	 * Waits for the result of a speculative search. The search itself has
+	 * already recorded its outcome in the strategy's statistics, including
+	 * errors.
+	 */
+	private Optional<ProjectCoordinate> getResult(
+			Future<Optional<ProjectCoordinate>> speculativeSearch,
+			IProjectCoordinateResolver strategy, DependencyInfo dependencyInfo) {
+		try {
+			return speculativeSearch.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return absent();
+		} catch (ExecutionException e) {
+			log.warn("Strategy " + strategy.getClass().getSimpleName()
+					+ " failed for " + dependencyInfo, e.getCause());
+			return absent();
+		}
+	}
+
+	private Optional<ProjectCoordinate> search(
+			IProjectCoordinateResolver strategy, DependencyInfo dependencyInfo) {
+		boolean applicable = strategy.isApplicable(dependencyInfo.getType());
+		long start = System.nanoTime();
+		Optional<ProjectCoordinate> res = absent();
+		// errors are not caught but counted as failures, too
+		boolean failure = true;
+		try {
+			res = strategy.searchForProjectCoordinate(dependencyInfo);
+			failure = false;
+		} catch (RuntimeException e) {
+			log.warn("Strategy " + strategy.getClass().getSimpleName()
+					+ " failed for " + dependencyInfo, e);
+		} finally {
+			if (applicable) {
+				getStatistics(strategy).record(System.nanoTime() - start,
+						res.isPresent(), failure);
+			}
+		}
+		return res;
+	}
+
+	private StrategyStatistics getStatistics(IProjectCoordinateResolver strategy) {
+		StrategyStatistics res = statistics.get(strategy);
+		if (res == null) {
+			StrategyStatistics newStatistics = new StrategyStatistics();
+			res = statistics.putIfAbsent(strategy, newStatistics);
+			if (res == null) {
+				res = newStatistics;
+			}
+		}
+		return res;
+	}
+
+	private static Cost getEstimatedCost(IProjectCoordinateResolver strategy) {
+		if (strategy instanceof IRatedProjectCoordinateResolver) {
+			return ((IRatedProjectCoordinateResolver) strategy)
+					.getEstimatedCost();
+		}
+		return Cost.MODERATE;
+	}
+
+	private static double getConfidence(IProjectCoordinateResolver strategy) {
+		if (strategy instanceof IRatedProjectCoordinateResolver) {
+			return ((IRatedProjectCoordinateResolver) strategy).getConfidence();
+		}
+		return 1.0;
+	}
+
+	private static long getEstimatedNanos(Cost cost) {
+		switch (cost) {
+		case CHEAP:
+			return TimeUnit.MICROSECONDS.toNanos(10);
+		case EXPENSIVE:
+			return TimeUnit.MILLISECONDS.toNanos(50);
+		default:
+			return TimeUnit.MILLISECONDS.toNanos(1);
+		}
+	}
+
+	/**
+	 * Enables or disables ordering the strategies by their expected cost.
+	 * Enabled by default. If disabled, strategies are asked in the order in
+	 * which they were added.
+	 */
+	public void setAdaptiveOrdering(boolean adaptiveOrdering) {
+		this.adaptiveOrdering = adaptiveOrdering;
+	}
+
+	/**
+	 * Sets the confidence a coordinate must have to end the search. Defaults
+	 * to {@link #DEFAULT_MIN_CONFIDENCE}.
+	 */
+	public void setMinConfidence(double minConfidence) {
+		this.minConfidence = minConfidence;
+	}
+
+	/**
+	 * Sets the executor used to run cheap strategies speculatively in
+	 * parallel, or <code>null</code> to run all strategies one after the
+	 * other in the calling thread (the default).
+	 */
+	public void setSpeculativeExecutor(ExecutorService speculativeExecutor) {
+		this.speculativeExecutor = speculativeExecutor;
+	}
+
+	/**
+	 * Sets how long the absence of a coordinate is remembered before the
+	 * strategies are asked again. Defaults to 10 minutes. Clients that know
+	 * when a strategy's index was updated should also call
+	 * {@link #invalidateMisses()}.
+	 */
+	public void setMissExpiry(long duration, TimeUnit unit) {
+		missExpiryNanos = unit.toNanos(duration);
+	}
+
+	/**
+	 * Returns the statistics of all current strategies.
+	 */
+	public Map<IProjectCoordinateResolver, StrategyMetrics> getStrategyMetrics() {
+		Map<IProjectCoordinateResolver, StrategyMetrics> res = Maps
+				.newLinkedHashMap();
+		for (IProjectCoordinateResolver strategy : getStrategies()) {
+			res.put(strategy, getStatistics(strategy).toMetrics());
 		}
-		return absent();
+		return ImmutableMap.copyOf(res);
 	}
 
 	@Override
@@ -119,6 +590,150 @@ public class MappingProvider implements IMappingProvider {
 		return ImmutableMap.copyOf(manualMappings);
 	}
 
+	/**
+	 * Writes the coordinates resolved so far to the given file, together with
+	 * the stamp of each dependency's file. A later session may
+	 * restore them with {@link #restoreCache(File)} instead of running all
+	 * strategies again.
+	 * <p>
+	 * Only coordinates of dependencies that are regular files (i.e., JARs) are
+	 * stored, since the content of a directory may change without changing its
+	 * modification time. Manual mappings and dependencies for which no
+	 * coordinate was found are not stored either.
+	 */
+	public void storeCache(File file) {
+		List<StoredCoordinate> stored = Lists.newArrayList();
+		for (Entry<DependencyInfo, CachedCoordinate> entry : cache.asMap()
+				.entrySet()) {
+			DependencyInfo dependencyInfo = entry.getKey();
+			CachedCoordinate cached = entry.getValue();
+			File dependencyFile = dependencyInfo.getFile();
+			if (!cached.projectCoordinate.isPresent() || cached.pinned
+					|| dependencyFile == null || !dependencyFile.isFile()) {
+				continue;
+			}
+			StoredCoordinate coordinate = new StoredCoordinate();
+			coordinate.dependencyInfo = dependencyInfo;
+			coordinate.lastModified = cached.lastModified;
+			coordinate.length = cached.length;
+			coordinate.centralDirectory = cached.centralDirectory;
+			coordinate.projectCoordinate = cached.projectCoordinate.get();
+			stored.add(coordinate);
+		}
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+		GsonUtil.serialize(stored.toArray(new StoredCoordinate[stored.size()]),
+				file);
+	}
+
+	/**
+	 * Adds the coordinates stored by {@link #storeCache(File)} to the cache.
+	 * Coordinates of dependencies that were modified or deleted since are
+	 * ignored; a JAR whose stamp changed but whose central directory did not
+	 * counts as unmodified. A missing or unreadable file is not an error; the coordinates
+	 * are then resolved again when requested.
+	 *
+	 * @return the number of coordinates restored
+	 */
+	public int restoreCache(File file) {
+		if (!file.isFile()) {
+			return 0;
+		}
+		StoredCoordinate[] stored;
+		try {
+			stored = GsonUtil.deserialize(file, StoredCoordinate[].class);
+		} catch (RuntimeException e) {
+			log.warn("Failed to restore project coordinates from " + file, e);
+			return 0;
+		}
+		int restored = 0;
+		for (StoredCoordinate coordinate : stored) {
+			DependencyInfo dependencyInfo = coordinate.dependencyInfo;
+			if (dependencyInfo == null || coordinate.projectCoordinate == null
+					|| dependencyInfo.getFile() == null
+					|| isManualMapping(dependencyInfo)) {
+				continue;
+			}
+			File dependencyFile = dependencyInfo.getFile();
+			if (!dependencyFile.isFile()) {
+				continue;
+			}
+			CachedCoordinate cached = new CachedCoordinate(
+					Optional.of(coordinate.projectCoordinate), false,
+					coordinate.lastModified, coordinate.length,
+					coordinate.centralDirectory, System.nanoTime());
+			if (!cached.isUpToDate(dependencyFile)) {
+				cached = cached.revalidate(dependencyFile);
+			}
+			if (cached != null) {
+				cache.put(dependencyInfo, cached);
+				restored++;
+			}
+		}
+		return restored;
+	}
+
+	/**
+	 * Removes the cached coordinate of the given dependency, e.g., because it
+	 * was removed from the workspace. Manual mappings are kept.
+	 */
+	public void invalidate(DependencyInfo dependencyInfo) {
+		CachedCoordinate cached = cache.getIfPresent(dependencyInfo);
+		if (cached != null && !cached.pinned) {
+			cache.asMap().remove(dependencyInfo, cached);
+		}
+	}
+
+	/**
+	 * Removes all cached coordinates except for manual mappings.
+	 */
+	public void invalidateAll() {
+		for (Entry<DependencyInfo, CachedCoordinate> entry : cache.asMap()
+				.entrySet()) {
+			if (!entry.getValue().pinned) {
+				cache.asMap().remove(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Removes all cached dependencies for which no coordinate was found, such
+	 * that they are searched again on the next lookup. Must be called whenever
+	 * a strategy may find coordinates it did not find before, e.g., because
+	 * its index was updated. Changing the strategies does so implicitly.
+	 */
+	public void invalidateMisses() {
+		for (Entry<DependencyInfo, CachedCoordinate> entry : cache.asMap()
+				.entrySet()) {
+			if (entry.getValue().isMiss()) {
+				cache.asMap().remove(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Returns the hit, miss, and load time statistics of the coordinate
+	 * cache. Lookups that found an outdated coordinate count as a hit
+	 * followed by a miss; see {@link #getStaleCount()}.
+	 */
+	public CacheStats getCacheStats() {
+		return cache.stats();
+	}
+
+	/**
+	 * Returns the number of lookups that found a coordinate whose dependency
+	 * changed since it was resolved.
+	 */
+	public long getStaleCount() {
+		return staleCount.get();
+	}
+
+	public long getCacheSize() {
+		return cache.size();
+	}
+
 	@Testing
 	public long getMissCount() {
 		return cache.stats().missCount();
@@ -133,7 +748,8 @@ public class MappingProvider implements IMappingProvider {
 	public void setManualMapping(DependencyInfo dependencyInfo,
 			ProjectCoordinate projectCoordinate) {
 		manualMappings.put(dependencyInfo, projectCoordinate);
-		cache.put(dependencyInfo, fromNullable(projectCoordinate));
+		cache.put(dependencyInfo,
+				CachedCoordinate.pinned(fromNullable(projectCoordinate)));
 	}
 
 	@Override
@@ -160,6 +160,20 @@ public class MavenPomPropertiesStrategy extends AbstractStrategy {
 		return dependencyType == DependencyType.JAR;
 	}
 
+	@Override
+	public Cost getEstimatedCost() {
+		return Cost.MODERATE;
+	}
+
+	/**
+	 * A pom.properties file may describe a different artifact than the JAR
+	 * itself, e.g., if the JAR repackages its dependencies.
+	 */
+	@Override
+	public double getConfidence() {
+		return 0.9;
+	}
+
 	public static String extractGroupID(String fileName) {
 		return extract(fileName, 3);
 	}
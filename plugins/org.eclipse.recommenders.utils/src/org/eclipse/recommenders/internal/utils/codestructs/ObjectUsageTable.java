@@ -0,0 +1,377 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.internal.utils.codestructs;
+
+import static org.eclipse.recommenders.utils.Checks.ensureIsGreaterOrEqualTo;
+import static org.eclipse.recommenders.utils.Checks.ensureIsTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.recommenders.internal.utils.codestructs.DefinitionSite.Kind;
+import org.eclipse.recommenders.utils.names.IMethodName;
+import org.eclipse.recommenders.utils.names.ITypeName;
+
+import com.google.common.collect.Sets;
+
+/**
+ * A compact, column-oriented container for large numbers of {@link ObjectUsage}s.
+ * <p>
+ * Type names and method names are interned into dictionaries and every usage is stored as a single row of
+ * <code>int</code> columns (type, override contexts, definition, definition kind, and a count). The calls of all rows
+ * are kept in one shared array in compressed sparse row (CSR) layout: the calls of row <code>i</code> are stored in
+ * <code>callIds[callOffsets[i]..callOffsets[i+1])</code>, sorted by method id.
+ * <p>
+ * Note that {@link ObjectUsage#cuCreationTimestamp} is not stored; two usages that differ only in their time stamp
+ * are considered identical by {@link #deduplicate()}.
+ * <p>
+ * Tables created by {@link #select(int[])} and {@link #deduplicate()} share their dictionaries with the table they
+ * were derived from. This class is not thread-safe.
+ */
+public class ObjectUsageTable {
+
+    private static final int NULL_ID = -1;
+    private static final Kind[] KINDS = Kind.values();
+
+    private final Dictionary<ITypeName> types;
+    private final Dictionary<IMethodName> methods;
+
+    private int size;
+    private int[] typeCol;
+    private int[] contextSuperCol;
+    private int[] contextFirstCol;
+    private int[] definitionCol;
+    private int[] kindCol;
+    private int[] countCol;
+
+    private int[] callOffsets;
+    private int[] callIds;
+
+    public ObjectUsageTable() {
+        this(1024);
+    }
+
+    public ObjectUsageTable(int expectedRows) {
+        this(new Dictionary<ITypeName>(), new Dictionary<IMethodName>(), expectedRows, expectedRows * 4);
+    }
+
+    private ObjectUsageTable(Dictionary<ITypeName> types, Dictionary<IMethodName> methods, int expectedRows,
+            int expectedCalls) {
+        ensureIsGreaterOrEqualTo(expectedRows, 0, "expected rows must not be negative");
+        this.types = types;
+        this.methods = methods;
+        int rows = Math.max(expectedRows, 16);
+        typeCol = new int[rows];
+        contextSuperCol = new int[rows];
+        contextFirstCol = new int[rows];
+        definitionCol = new int[rows];
+        kindCol = new int[rows];
+        countCol = new int[rows];
+        callOffsets = new int[rows + 1];
+        callIds = new int[Math.max(expectedCalls, 16)];
+    }
+
+    /**
+     * Appends the given usage with a count of one.
+     *
+     * @return the row index of the new usage
+     */
+    public int add(ObjectUsage usage) {
+        return add(usage, 1);
+    }
+
+    /**
+     * Appends the given usage with the given count.
+     *
+     * @return the row index of the new usage
+     */
+    public int add(ObjectUsage usage, int count) {
+        ensureIsTrue(count > 0, "count must be positive but was %d", count);
+        int[] calls = new int[usage.calls == null ? 0 : usage.calls.size()];
+        int i = 0;
+        if (usage.calls != null) {
+            for (IMethodName call : usage.calls) {
+                calls[i++] = methods.intern(call);
+            }
+        }
+        Arrays.sort(calls);
+        return appendRow(types.intern(usage.type), methods.intern(usage.contextSuper),
+                methods.intern(usage.contextFirst), methods.intern(usage.definition),
+                usage.kind == null ? NULL_ID : usage.kind.ordinal(), count, calls, 0, calls.length);
+    }
+
+    private int appendRow(int type, int contextSuper, int contextFirst, int definition, int kind, int count,
+            int[] calls, int from, int to) {
+        ensureRowCapacity(size + 1);
+        int start = callOffsets[size];
+        ensureCallCapacity(start + to - from);
+        System.arraycopy(calls, from, callIds, start, to - from);
+
+        typeCol[size] = type;
+        contextSuperCol[size] = contextSuper;
+        contextFirstCol[size] = contextFirst;
+        definitionCol[size] = definition;
+        kindCol[size] = kind;
+        countCol[size] = count;
+        callOffsets[size + 1] = start + to - from;
+        return size++;
+    }
+
+    private void ensureRowCapacity(int rows) {
+        if (rows <= typeCol.length) {
+            return;
+        }
+        int newLength = Math.max(rows, typeCol.length + (typeCol.length >> 1));
+        typeCol = Arrays.copyOf(typeCol, newLength);
+        contextSuperCol = Arrays.copyOf(contextSuperCol, newLength);
+        contextFirstCol = Arrays.copyOf(contextFirstCol, newLength);
+        definitionCol = Arrays.copyOf(definitionCol, newLength);
+        kindCol = Arrays.copyOf(kindCol, newLength);
+        countCol = Arrays.copyOf(countCol, newLength);
+        callOffsets = Arrays.copyOf(callOffsets, newLength + 1);
+    }
+
+    private void ensureCallCapacity(int calls) {
+        if (calls <= callIds.length) {
+            return;
+        }
+        callIds = Arrays.copyOf(callIds, Math.max(calls, callIds.length + (callIds.length >> 1)));
+    }
+
+    /**
+     * Returns the number of rows in this table.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the sum of all counts, i.e., the number of usages represented by this table.
+     */
+    public long totalCount() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += countCol[i];
+        }
+        return total;
+    }
+
+    public ITypeName getType(int row) {
+        return types.get(typeCol[checkRow(row)]);
+    }
+
+    public IMethodName getContextSuper(int row) {
+        return methods.get(contextSuperCol[checkRow(row)]);
+    }
+
+    public IMethodName getContextFirst(int row) {
+        return methods.get(contextFirstCol[checkRow(row)]);
+    }
+
+    public IMethodName getDefinition(int row) {
+        return methods.get(definitionCol[checkRow(row)]);
+    }
+
+    public Kind getKind(int row) {
+        int kind = kindCol[checkRow(row)];
+        return kind == NULL_ID ? null : KINDS[kind];
+    }
+
+    public int getCount(int row) {
+        return countCol[checkRow(row)];
+    }
+
+    public int getCallCount(int row) {
+        checkRow(row);
+        return callOffsets[row + 1] - callOffsets[row];
+    }
+
+    public List<IMethodName> getCalls(int row) {
+        checkRow(row);
+        List<IMethodName> res = new ArrayList<IMethodName>(callOffsets[row + 1] - callOffsets[row]);
+        for (int i = callOffsets[row]; i < callOffsets[row + 1]; i++) {
+            res.add(methods.get(callIds[i]));
+        }
+        return res;
+    }
+
+    /**
+     * Materializes the given row as a new {@link ObjectUsage}. The row's count is not part of the returned object.
+     */
+    public ObjectUsage toObjectUsage(int row) {
+        ObjectUsage res = new ObjectUsage();
+        res.type = getType(row);
+        res.contextSuper = getContextSuper(row);
+        res.contextFirst = getContextFirst(row);
+        res.definition = getDefinition(row);
+        res.kind = getKind(row);
+        res.calls = Sets.newHashSet(getCalls(row));
+        return res;
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + " not in [0.." + size + ")");
+        }
+        return row;
+    }
+
+    /**
+     * Groups the rows of this table by receiver type. The rows of each group are returned in table order. Groups are
+     * ordered by the first occurrence of their type in the (shared) type dictionary; rows without a type are grouped
+     * under the <code>null</code> key.
+     * <p>
+     * Runs in <code>O(rows + types)</code> using a counting sort; no per-row objects are allocated.
+     */
+    public Map<ITypeName, int[]> groupByType() {
+        int typeCount = types.size() + 1;
+        int[] counts = new int[typeCount];
+        for (int i = 0; i < size; i++) {
+            counts[typeCol[i] + 1]++;
+        }
+        int[][] groups = new int[typeCount][];
+        for (int t = 0; t < typeCount; t++) {
+            if (counts[t] > 0) {
+                groups[t] = new int[counts[t]];
+            }
+        }
+        int[] fill = new int[typeCount];
+        for (int i = 0; i < size; i++) {
+            int t = typeCol[i] + 1;
+            groups[t][fill[t]++] = i;
+        }
+        Map<ITypeName, int[]> res = new LinkedHashMap<ITypeName, int[]>();
+        for (int t = 0; t < typeCount; t++) {
+            if (groups[t] != null) {
+                res.put(types.get(t - 1), groups[t]);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Copies the given rows into a new, compact table that shares this table's dictionaries. Use this together with
+     * {@link #groupByType()} to build per-type training sets one type at a time.
+     */
+    public ObjectUsageTable select(int[] rows) {
+        int calls = 0;
+        for (int row : rows) {
+            calls += getCallCount(row);
+        }
+        ObjectUsageTable res = new ObjectUsageTable(types, methods, rows.length, calls);
+        for (int row : rows) {
+            res.appendRow(typeCol[row], contextSuperCol[row], contextFirstCol[row], definitionCol[row], kindCol[row],
+                    countCol[row], callIds, callOffsets[row], callOffsets[row + 1]);
+        }
+        return res;
+    }
+
+    /**
+     * Returns a new table in which identical rows are merged into a single row whose count is the sum of the merged
+     * counts. Rows keep the order of their first occurrence.
+     * <p>
+     * Uses an open-addressing hash table over row indexes, i.e., no per-row key objects are created.
+     */
+    public ObjectUsageTable deduplicate() {
+        ObjectUsageTable res = new ObjectUsageTable(types, methods, size, callOffsets[size]);
+        int capacity = Integer.highestOneBit(Math.max(size, 8) * 2 - 1) << 1;
+        int mask = capacity - 1;
+        // stores (row index in res) + 1; 0 marks a free slot
+        int[] slots = new int[capacity];
+        for (int row = 0; row < size; row++) {
+            int slot = hashRow(row) & mask;
+            while (true) {
+                int candidate = slots[slot] - 1;
+                if (candidate == -1) {
+                    int newRow = res.appendRow(typeCol[row], contextSuperCol[row], contextFirstCol[row],
+                            definitionCol[row], kindCol[row], countCol[row], callIds, callOffsets[row],
+                            callOffsets[row + 1]);
+                    slots[slot] = newRow + 1;
+                    break;
+                }
+                if (res.rowEquals(candidate, this, row)) {
+                    res.countCol[candidate] += countCol[row];
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        return res;
+    }
+
+    private int hashRow(int row) {
+        int h = typeCol[row];
+        h = 31 * h + contextSuperCol[row];
+        h = 31 * h + contextFirstCol[row];
+        h = 31 * h + definitionCol[row];
+        h = 31 * h + kindCol[row];
+        for (int i = callOffsets[row]; i < callOffsets[row + 1]; i++) {
+            h = 31 * h + callIds[i];
+        }
+        // spread bits since the table size is a power of two
+        h ^= (h >>> 20) ^ (h >>> 12);
+        return h ^ (h >>> 7) ^ (h >>> 4);
+    }
+
+    private boolean rowEquals(int row, ObjectUsageTable other, int otherRow) {
+        if (typeCol[row] != other.typeCol[otherRow] || contextSuperCol[row] != other.contextSuperCol[otherRow]
+                || contextFirstCol[row] != other.contextFirstCol[otherRow]
+                || definitionCol[row] != other.definitionCol[otherRow] || kindCol[row] != other.kindCol[otherRow]) {
+            return false;
+        }
+        int start = callOffsets[row];
+        int length = callOffsets[row + 1] - start;
+        int otherStart = other.callOffsets[otherRow];
+        if (length != other.callOffsets[otherRow + 1] - otherStart) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (callIds[start + i] != other.callIds[otherStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Interns values to dense <code>int</code> ids. <code>null</code> is mapped to {@link ObjectUsageTable#NULL_ID}.
+     */
+    private static final class Dictionary<T> {
+
+        private final Map<T, Integer> ids = new HashMap<T, Integer>();
+        private final List<T> values = new ArrayList<T>();
+
+        int intern(T value) {
+            if (value == null) {
+                return NULL_ID;
+            }
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+
+        T get(int id) {
+            return id == NULL_ID ? null : values.get(id);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+}
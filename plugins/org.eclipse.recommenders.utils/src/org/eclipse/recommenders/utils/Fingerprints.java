@@ -13,51 +13,135 @@ package org.eclipse.recommenders.utils;
 import static org.eclipse.recommenders.utils.Checks.ensureExists;
 import static org.eclipse.recommenders.utils.Checks.ensureIsFile;
 import static org.eclipse.recommenders.utils.Checks.ensureIsNotNull;
+import static org.eclipse.recommenders.utils.Checks.ensureIsTrue;
 
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Formatter;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import com.google.common.io.ByteStreams;
-import com.google.common.io.Files;
-import com.google.common.io.InputSupplier;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 
+/**
+ * Computes SHA-1 fingerprints of files, streams, and strings.
+ * <p>
+ * Message digests and read buffers are kept per thread and reused across calls. Files are read through a
+ * {@link FileChannel}. To fingerprint many files at once, e.g., all jars of a workspace, use
+ * {@link #sha1(Collection, int)}, which shares a pool of daemon threads across calls; idle threads terminate after a
+ * minute, which releases their digests and buffers.
+ */
 public class Fingerprints {
-    private static final class StreamInputSupplier implements InputSupplier<InputStream> {
-        private final InputStream stream;
 
-        private StreamInputSupplier(final InputStream stream) {
-            this.stream = stream;
+    // private static final String DIGEST_MD5 = "MD5";
+    private static final String DIGEST_SHA1 = "SHA-1";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xffff;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_EOCD_SIZE = 56;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<MessageDigest> DIGESTS = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return createMessageDigest();
+            } catch (final NoSuchAlgorithmException e) {
+                throw Throws.throwUnhandledException(e);
+            }
         }
+    };
 
+    private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<ByteBuffer>() {
         @Override
-        public InputStream getInput() throws IOException {
-            return stream;
+        protected ByteBuffer initialValue() {
+            // a heap buffer, since direct buffers of terminated pool threads are only freed by the garbage collector
+            return ByteBuffer.allocate(BUFFER_SIZE);
         }
-    }
+    };
 
-    // private static final String DIGEST_MD5 = "MD5";
-    private static final String DIGEST_SHA1 = "SHA-1";
+    /**
+     * Created on first use of {@link Fingerprints#sha1(Collection, int, Map)}.
+     */
+    private static final class Workers {
+
+        private static final ExecutorService POOL = Executors.newCachedThreadPool(new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "Fingerprints-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
 
     private static MessageDigest createMessageDigest() throws NoSuchAlgorithmException {
         final MessageDigest digest = MessageDigest.getInstance(DIGEST_SHA1);
         return digest;
     }
 
+    private static MessageDigest getMessageDigest() {
+        final MessageDigest digest = DIGESTS.get();
+        // a previous call may have failed half-way through:
+        digest.reset();
+        return digest;
+    }
+
     public static byte[] internal_sha1v2(final File file) {
         ensureIsNotNull(file);
         ensureExists(file);
         ensureIsFile(file);
         //
+        FileInputStream in = null;
         try {
-            final MessageDigest digest = createMessageDigest();
-            return Files.getDigest(file, digest);
+            in = new FileInputStream(file);
+            return digest(in.getChannel());
         } catch (final Exception e) {
             throw Throws.throwUnhandledException(e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private static byte[] digest(final ReadableByteChannel channel) throws IOException {
+        final MessageDigest digest = getMessageDigest();
+        final ByteBuffer buffer = BUFFERS.get();
+        buffer.clear();
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
         }
+        return digest.digest();
     }
 
     public static String sha1(final File file) {
@@ -65,6 +149,218 @@ public class Fingerprints {
         return toHexString(sha1);
     }
 
+    /**
+     * Computes a SHA-1 fingerprint of the central directory of the given zip (or jar) file, i.e., of the names, CRCs,
+     * sizes, and offsets of all its entries. Only the end of the file is read, so this is much cheaper than
+     * {@link #sha1(File)} for large archives. The result identifies the archive's content well enough to detect
+     * changes or to serve as a local cache key, but it is not the archive's {@link #sha1(File)} and must not be
+     * compared to published fingerprints.
+     *
+     * @return the fingerprint or absent if the file is not a zip file
+     */
+    public static Optional<String> sha1CentralDirectory(final File file) {
+        ensureIsNotNull(file);
+        ensureExists(file);
+        ensureIsFile(file);
+        //
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            final FileChannel channel = in.getChannel();
+            final long start = findCentralDirectory(channel);
+            if (start < 0) {
+                return Optional.absent();
+            }
+            channel.position(start);
+            // covers the central directory and the end of central directory record(s)
+            return Optional.of(toHexString(digest(channel)));
+        } catch (final Exception e) {
+            throw Throws.throwUnhandledException(e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Returns the position of the central directory or -1 if it cannot be found.
+     */
+    private static long findCentralDirectory(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        // most archives have no comment, i.e., end with the end of central directory record
+        long res = findCentralDirectory(channel, size, (int) Math.min(size, EOCD_SIZE));
+        if (res == -2) {
+            res = findCentralDirectory(channel, size, (int) Math.min(size, EOCD_SIZE + MAX_COMMENT_SIZE));
+        }
+        return res < 0 ? -1 : res;
+    }
+
+    /**
+     * Looks for the end of central directory record in the last <code>tailSize</code> bytes of the archive.
+     *
+     * @return the position of the central directory, -1 if the archive is broken, or -2 if no record was found
+     */
+    private static long findCentralDirectory(final FileChannel channel, final long size, final int tailSize)
+            throws IOException {
+        final ByteBuffer tail = ByteBuffer.allocate(tailSize).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, tail, size - tailSize);
+        // the record is followed by a comment of variable length
+        for (int i = tailSize - EOCD_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) != EOCD_SIGNATURE || i + EOCD_SIZE + (tail.getShort(i + 20) & 0xffff) != tailSize) {
+                continue;
+            }
+            final long eocd = size - tailSize + i;
+            if (eocd >= ZIP64_LOCATOR_SIZE) {
+                final long res = findZip64CentralDirectory(channel, eocd);
+                if (res != -2) {
+                    return res;
+                }
+            }
+            // use the size rather than the offset, which is wrong if data was prepended to the archive
+            final long res = eocd - (tail.getInt(i + 12) & 0xffffffffL);
+            return res < 0 ? -1 : res;
+        }
+        return -2;
+    }
+
+    /**
+     * Returns the position of the central directory of a zip64 archive, -1 if the archive is broken, or -2 if it is no
+     * zip64 archive.
+     */
+    private static long findZip64CentralDirectory(final FileChannel channel, final long eocd) throws IOException {
+        final ByteBuffer locator = ByteBuffer.allocate(ZIP64_LOCATOR_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, locator, eocd - ZIP64_LOCATOR_SIZE);
+        if (locator.getInt(0) != ZIP64_LOCATOR_SIGNATURE) {
+            return -2;
+        }
+        // like above, the record usually directly precedes the locator, even if data was prepended to the archive
+        long res = findZip64CentralDirectoryAt(channel, eocd - ZIP64_LOCATOR_SIZE - ZIP64_EOCD_SIZE);
+        if (res == -1) {
+            // the record has extensible data, so only its offset tells where it starts
+            final long zip64Eocd = locator.getLong(8);
+            if (zip64Eocd >= 0 && zip64Eocd + ZIP64_EOCD_SIZE <= eocd - ZIP64_LOCATOR_SIZE) {
+                res = findZip64CentralDirectoryAt(channel, zip64Eocd);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns the position of the central directory if the zip64 end of central directory record starts at the given
+     * position, or -1 otherwise.
+     */
+    private static long findZip64CentralDirectoryAt(final FileChannel channel, final long zip64Eocd)
+            throws IOException {
+        if (zip64Eocd < 0) {
+            return -1;
+        }
+        final ByteBuffer record = ByteBuffer.allocate(ZIP64_EOCD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, record, zip64Eocd);
+        if (record.getInt(0) != ZIP64_EOCD_SIGNATURE) {
+            return -1;
+        }
+        final long res = zip64Eocd - record.getLong(40);
+        return res < 0 ? -1 : res;
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Computes the fingerprints of the given files using up to <code>parallelism</code> threads. Fingerprinting is
+     * I/O bound; a parallelism of about the number of available processors usually saturates a local disk. The stack
+     * traces of files that cannot be fingerprinted are printed.
+     *
+     * @return the fingerprints in the iteration order of <code>files</code>. Files that do not exist or cannot be read
+     *         are not contained in the result.
+     * @see #sha1(Collection, int, Map)
+     */
+    public static Map<File, String> sha1(final Collection<File> files, final int parallelism) {
+        final Map<File, Exception> failures = new LinkedHashMap<File, Exception>();
+        final Map<File, String> res = sha1(files, parallelism, failures);
+        for (final Exception e : failures.values()) {
+            e.printStackTrace();
+        }
+        return res;
+    }
+
+    /**
+     * Computes the fingerprints of the given files using up to <code>parallelism</code> threads of a shared pool.
+     *
+     * @param failures
+     *            receives the exception of each file that does not exist or cannot be read
+     * @return the fingerprints in the iteration order of <code>files</code>, without the failed files
+     */
+    public static Map<File, String> sha1(final Collection<File> files, final int parallelism,
+            final Map<File, Exception> failures) {
+        ensureIsNotNull(files);
+        ensureIsNotNull(failures);
+        ensureIsTrue(parallelism > 0, "parallelism must be positive but was %d", parallelism);
+        final File[] input = files.toArray(new File[files.size()]);
+        final String[] fingerprints = new String[input.length];
+        final Exception[] exceptions = new Exception[input.length];
+        if (parallelism == 1 || input.length < 2) {
+            sha1(input, fingerprints, exceptions, new AtomicInteger());
+        } else {
+            final AtomicInteger next = new AtomicInteger();
+            final List<Future<?>> workers = Lists.newArrayList();
+            try {
+                // each worker takes the next file until all are done, i.e., at most parallelism files are read at once
+                for (int i = 0; i < Math.min(parallelism, input.length); i++) {
+                    workers.add(Workers.POOL.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            sha1(input, fingerprints, exceptions, next);
+                        }
+                    }));
+                }
+                for (final Future<?> worker : workers) {
+                    worker.get();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Throws.throwUnhandledException(e);
+            } catch (final ExecutionException e) {
+                // exceptions are collected per file, so this is an error
+                throw Throwables.propagate(e.getCause());
+            } finally {
+                for (final Future<?> worker : workers) {
+                    worker.cancel(true);
+                }
+            }
+        }
+        final Map<File, String> res = new LinkedHashMap<File, String>();
+        for (int i = 0; i < input.length; i++) {
+            if (exceptions[i] != null) {
+                failures.put(input[i], exceptions[i]);
+            } else {
+                res.put(input[i], fingerprints[i]);
+            }
+        }
+        return res;
+    }
+
+    private static void sha1(final File[] files, final String[] fingerprints, final Exception[] exceptions,
+            final AtomicInteger next) {
+        for (int i = next.getAndIncrement(); i < files.length; i = next.getAndIncrement()) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                fingerprints[i] = sha1(files[i]);
+            } catch (final Exception e) {
+                exceptions[i] = e;
+            }
+        }
+    }
+
     private static String toString(final MessageDigest digest) {
         final byte[] res = digest.digest();
         return toHexString(res);
@@ -73,21 +369,15 @@ public class Fingerprints {
     public static String sha1(final String message) {
         ensureIsNotNull(message);
         //
-        try {
-            final MessageDigest digest = createMessageDigest();
-            digest.update(message.getBytes());
-            return toString(digest);
-        } catch (final Exception e) {
-            throw Throws.throwUnhandledException(e);
-        }
+        final MessageDigest digest = getMessageDigest();
+        digest.update(message.getBytes());
+        return toString(digest);
     }
 
     public static String sha1(final InputStream stream) {
         ensureIsNotNull(stream);
         try {
-            final MessageDigest digest = createMessageDigest();
-            final StreamInputSupplier supplier = new StreamInputSupplier(stream);
-            final byte[] sha1 = ByteStreams.getDigest(supplier, digest);
+            final byte[] sha1 = digest(Channels.newChannel(stream));
             return toHexString(sha1);
         } catch (final Exception e) {
             throw Throws.throwUnhandledException(e);
@@ -98,13 +388,13 @@ public class Fingerprints {
 
     private static String toHexString(final byte[] hash) {
         ensureIsNotNull(hash);
-        // this is said to be very slow... - we may look at this if hashing
-        // actually takes too long.
-        final Formatter formatter = new Formatter();
-        for (final byte b : hash) {
-            formatter.format("%02x", b);
+        final char[] res = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            final int b = hash[i] & 0xff;
+            res[2 * i] = HEX_DIGITS[b >>> 4];
+            res[2 * i + 1] = HEX_DIGITS[b & 0x0f];
         }
-        return formatter.toString();
+        return new String(res);
     }
 
     // private static String sha1AsHex(final String message) {
@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.google.common.base.Optional;
+
+/**
+ * Read-only view on the entries of a zip file. Implementations are safe to be used by several threads at the same
+ * time.
+ * 
+ * @see Zips#openArchive(java.io.File, boolean)
+ */
+public interface IZipArchive extends Closeable {
+
+    /**
+     * Returns <code>true</code> if the archive contains an entry with the given path, e.g., as computed by
+     * {@link Zips#path(org.eclipse.recommenders.utils.names.ITypeName, String)}.
+     */
+    boolean containsEntry(String path);
+
+    /**
+     * Returns a new stream over the uncompressed contents of the given entry - if it exists. Callers are responsible
+     * for closing the returned stream.
+     */
+    Optional<InputStream> getInputStream(String path) throws IOException;
+}
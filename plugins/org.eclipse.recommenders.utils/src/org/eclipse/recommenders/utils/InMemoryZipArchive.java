@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.utils;
+
+import static com.google.common.base.Optional.absent;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+
+/**
+ * An {@link IZipArchive} that keeps the complete zip file in a byte array. The central directory is parsed once and
+ * indexed by entry path, so looking up and reading an entry requires neither disk access nor system calls.
+ * <p>
+ * Only plain (non-zip64, unencrypted) archives with stored or deflated entries are supported. Use
+ * {@link Zips#openArchive(File, boolean)} to fall back to a {@link ZipFileArchive} for all other archives.
+ */
+public class InMemoryZipArchive implements IZipArchive {
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int END_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int FLAG_ENCRYPTED = 1;
+    private static final int MAX_POOLED_INFLATERS = 16;
+
+    /**
+     * Reads the given file completely into memory and indexes its entries.
+     *
+     * @throws ZipException if the file is not a zip file or uses features not supported by this class
+     */
+    public static InMemoryZipArchive load(File file) throws IOException {
+        return new InMemoryZipArchive(file.getName(), Files.toByteArray(file));
+    }
+
+    private final String name;
+    private final byte[] data;
+    private final Map<String, Entry> entries;
+    private final Deque<Inflater> inflaters = new ArrayDeque<Inflater>();
+    // guarded by inflaters
+    private boolean closed;
+
+    public InMemoryZipArchive(String name, byte[] data) throws ZipException {
+        this.name = name;
+        this.data = data;
+        this.entries = readCentralDirectory();
+    }
+
+    private Map<String, Entry> readCentralDirectory() throws ZipException {
+        int end = findEndOfCentralDirectory();
+        int count = u16(end + 10);
+        long size = u32(end + 12);
+        long offset = u32(end + 16);
+        if (count == 0xFFFF || offset == 0xFFFFFFFFL) {
+            throw new ZipException(name + ": zip64 archives are not supported");
+        }
+        if (offset + size > end) {
+            throw new ZipException(name + ": invalid central directory offset");
+        }
+        Map<String, Entry> res = Maps.newHashMapWithExpectedSize(count);
+        int pos = (int) offset;
+        int cdEnd = (int) (offset + size);
+        for (int i = 0; i < count; i++) {
+            if (pos + CENTRAL_HEADER_SIZE > cdEnd || s32(pos) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException(name + ": invalid central directory header");
+            }
+            int flags = u16(pos + 8);
+            int method = u16(pos + 10);
+            long compressedSize = u32(pos + 20);
+            long uncompressedSize = u32(pos + 24);
+            int nameLength = u16(pos + 28);
+            int extraLength = u16(pos + 30);
+            int commentLength = u16(pos + 32);
+            long localHeader = u32(pos + 42);
+            if (pos + CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength > cdEnd) {
+                throw new ZipException(name + ": truncated central directory header");
+            }
+            String path = new String(data, pos + CENTRAL_HEADER_SIZE, nameLength, Charsets.UTF_8);
+            pos += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+
+            if ((flags & FLAG_ENCRYPTED) != 0) {
+                throw new ZipException(name + ": encrypted entries are not supported: " + path);
+            }
+            if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED) {
+                throw new ZipException(name + ": unsupported compression method " + method + ": " + path);
+            }
+            if (localHeader + LOCAL_HEADER_SIZE > offset || s32((int) localHeader) != LOCAL_HEADER_SIGNATURE) {
+                throw new ZipException(name + ": invalid local header: " + path);
+            }
+            int start = (int) localHeader + LOCAL_HEADER_SIZE + u16((int) localHeader + 26)
+                    + u16((int) localHeader + 28);
+            if (start + compressedSize > offset) {
+                throw new ZipException(name + ": invalid entry size: " + path);
+            }
+            res.put(path, new Entry(method, start, (int) compressedSize, (int) uncompressedSize));
+        }
+        return res;
+    }
+
+    private int findEndOfCentralDirectory() throws ZipException {
+        int min = Math.max(0, data.length - END_SIZE - MAX_COMMENT_SIZE);
+        for (int pos = data.length - END_SIZE; pos >= min; pos--) {
+            if (s32(pos) == END_SIGNATURE && pos + END_SIZE + u16(pos + 20) == data.length) {
+                return pos;
+            }
+        }
+        throw new ZipException(name + ": not a zip file");
+    }
+
+    private int u16(int pos) {
+        return data[pos] & 0xFF | (data[pos + 1] & 0xFF) << 8;
+    }
+
+    private int s32(int pos) {
+        return u16(pos) | u16(pos + 2) << 16;
+    }
+
+    private long u32(int pos) {
+        return s32(pos) & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public boolean containsEntry(String path) {
+        return entries.containsKey(path);
+    }
+
+    @Override
+    public Optional<InputStream> getInputStream(String path) throws IOException {
+        Entry entry = entries.get(path);
+        if (entry == null) {
+            return absent();
+        }
+        if (entry.method == ZipEntry.STORED) {
+            return Optional.<InputStream> of(new ByteArrayInputStream(data, entry.start, entry.compressedSize));
+        }
+        return Optional.<InputStream> of(new InflatingInputStream(entry));
+    }
+
+    /**
+     * Returns the number of entries in this archive.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void close() {
+        synchronized (inflaters) {
+            closed = true;
+            for (Inflater inflater : inflaters) {
+                inflater.end();
+            }
+            inflaters.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private Inflater acquireInflater() {
+        synchronized (inflaters) {
+            Inflater inflater = inflaters.poll();
+            return inflater != null ? inflater : new Inflater(true);
+        }
+    }
+
+    private void releaseInflater(Inflater inflater) {
+        synchronized (inflaters) {
+            // streams may outlive the archive; their inflaters must not end up in the cleared pool
+            if (!closed && inflaters.size() < MAX_POOLED_INFLATERS) {
+                inflater.reset();
+                inflaters.push(inflater);
+                return;
+            }
+        }
+        inflater.end();
+    }
+
+    private static final class Entry {
+        private final int method;
+        private final int start;
+        private final int compressedSize;
+        private final int size;
+
+        private Entry(int method, int start, int compressedSize, int size) {
+            this.method = method;
+            this.start = start;
+            this.compressedSize = compressedSize;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Inflates an entry directly from the archive's byte array, i.e., without copying the compressed data first.
+     */
+    private final class InflatingInputStream extends InputStream {
+
+        private final byte[] single = new byte[1];
+        private Inflater inflater;
+        private int remaining;
+
+        private InflatingInputStream(Entry entry) {
+            inflater = acquireInflater();
+            // the 'nowrap' inflater may need one byte beyond the compressed data. The central directory always
+            // follows the entry data, so this stays in bounds.
+            inflater.setInput(data, entry.start, entry.compressedSize + 1);
+            remaining = entry.size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (inflater == null) {
+                throw new IOException("stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            try {
+                int n;
+                while ((n = inflater.inflate(b, off, len)) == 0) {
+                    if (inflater.finished()) {
+                        return -1;
+                    }
+                    if (inflater.needsInput() || inflater.needsDictionary()) {
+                        throw new EOFException("unexpected end of entry in " + name);
+                    }
+                }
+                remaining -= n;
+                return n;
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+        }
+
+        @Override
+        public int available() {
+            return inflater == null || inflater.finished() ? 0 : Math.max(remaining, 0);
+        }
+
+        @Override
+        public void close() {
+            if (inflater != null) {
+                releaseInflater(inflater);
+                inflater = null;
+            }
+        }
+    }
+}
@@ -10,11 +10,8 @@
  */
 package org.eclipse.recommenders.utils;
 
-import static com.google.common.collect.Collections2.filter;
-import static com.google.common.collect.Lists.newLinkedList;
-
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
@@ -28,23 +25,58 @@ import com.google.common.collect.Ordering;
 @Beta
 public class Recommendations {
 
-    public static <T> RecommendationsProcessor<T> topElementsSortedByRelevance(double minRelevance, int maxElement) {
+    /**
+     * Returns a processor that selects the (at most) <code>maxElement</code> most relevant recommendations whose
+     * relevance is at least <code>minRelevance</code>, sorted by decreasing relevance.
+     *
+     * @see #top(Iterable, int, double)
+     */
+    public static <T> RecommendationsProcessor<T> topElementsSortedByRelevance(final double minRelevance,
+            final int maxElement) {
         return new RecommendationsProcessor<T>() {
 
             @Override
             public List<Recommendation<T>> process(List<Recommendation<T>> original) {
-                Predicate<Recommendation<?>> filter = filterByMinRelevance(0.1d);
-                Comparator<Recommendation<?>> comparator = compareByRelevance();
-                TopElementsSelector<T> topElements = topElements(5);
-
-                Collection<Recommendation<T>> tmp = filter(original, filter);
-                List<Recommendation<T>> filtered = newLinkedList(tmp);
-                Collections.sort(filtered, comparator);
-                return filtered.subList(0, topElements.select(filtered));
+                return top(original, maxElement, minRelevance);
             }
         };
     }
 
+    /**
+     * Returns the (at most) <code>max</code> most relevant recommendations, sorted by decreasing relevance.
+     *
+     * @see #top(Iterable, int, double)
+     */
+    public static <T> List<Recommendation<T>> top(Iterable<Recommendation<T>> recommendations, int max) {
+        return top(recommendations, max, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Returns the (at most) <code>max</code> most relevant recommendations whose relevance is at least
+     * <code>minRelevance</code>, sorted by decreasing relevance. Recommendations with equal relevance keep their
+     * relative order in the input.
+     * <p>
+     * The recommendations are traversed exactly once while a bounded heap of the best <code>max</code> candidates is
+     * maintained, i.e., this method runs in <code>O(n log max)</code> and creates no objects per recommendation.
+     */
+    public static <T> List<Recommendation<T>> top(Iterable<Recommendation<T>> recommendations, int max,
+            double minRelevance) {
+        if (max <= 0) {
+            return new ArrayList<Recommendation<T>>(0);
+        }
+        int expectedSize = recommendations instanceof Collection ? ((Collection<?>) recommendations).size() : 16;
+        TopK<Recommendation<T>> heap = new TopK<Recommendation<T>>(max, expectedSize);
+        for (Recommendation<T> rec : recommendations) {
+            double relevance = rec.getRelevance();
+            if (relevance >= minRelevance) {
+                heap.offer(rec, relevance);
+            }
+        }
+        List<Recommendation<T>> res = new ArrayList<Recommendation<T>>(heap.size());
+        heap.drainSorted(res, null);
+        return res;
+    }
+
     public static <T> RecommendationsProcessor<T> defaultProcessor() {
         return topElementsSortedByRelevance(0.01d, 20);
     }
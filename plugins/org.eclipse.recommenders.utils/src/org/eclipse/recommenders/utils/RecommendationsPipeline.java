@@ -0,0 +1,248 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.utils;
+
+import static org.eclipse.recommenders.utils.Checks.ensureIsNotNull;
+import static org.eclipse.recommenders.utils.Checks.ensureIsTrue;
+import static org.eclipse.recommenders.utils.Recommendation.newRecommendation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * A {@link RecommendationsProcessor} that fuses any number of filters, relevance transformations, a minimum
+ * relevance, and a top-k limit into a single pass over the recommendations. No intermediate lists are created;
+ * results are always sorted by decreasing relevance, ties keep their input order.
+ * <p>
+ * Stages are applied in the following order, independent of the order in which they were added to the builder:
+ * <ol>
+ * <li>proposal filters (see {@link Builder#filterProposals(Predicate)}),
+ * <li>relevance transformations, in the order they were added,
+ * <li>the minimum relevance,
+ * <li>recommendation filters (see {@link Builder#filter(Predicate)}),
+ * <li>the limit.
+ * </ol>
+ * Recommendations with a relevance of {@link Double#NaN} (before or after transformation) are always dropped.
+ * <p>
+ * Besides processing whole lists, models can push raw (proposal, relevance) pairs into a {@link Sink}. Then,
+ * {@link Recommendation} objects are only created for the final result and - if recommendation filters are
+ * configured - for candidates that passed all earlier stages. Recommendations pushed as such are returned as is
+ * unless a transformation changed their relevance.
+ * <p>
+ * Pipelines are immutable and may be shared between threads; sinks are not thread-safe.
+ *
+ * <pre>
+ * RecommendationsPipeline&lt;IMethodName&gt; pipeline = RecommendationsPipeline.&lt;IMethodName&gt; newBuilder()
+ *         .filter(filterVoid()).minRelevance(0.01).limit(5).build();
+ * List&lt;Recommendation&lt;IMethodName&gt;&gt; top = pipeline.process(model.getRecommendedCalls());
+ * </pre>
+ */
+@Beta
+public final class RecommendationsPipeline<T> implements RecommendationsProcessor<T> {
+
+    /**
+     * Maps the relevance of a proposal to a new relevance in <code>[0..1]</code>, e.g., to boost or penalize
+     * certain proposals.
+     */
+    public interface RelevanceTransformation<T> {
+        double apply(T proposal, double relevance);
+    }
+
+    public static <T> Builder<T> newBuilder() {
+        return new Builder<T>();
+    }
+
+    private final ImmutableList<Predicate<? super T>> proposalFilters;
+    private final ImmutableList<Predicate<? super Recommendation<T>>> filters;
+    private final ImmutableList<RelevanceTransformation<T>> transformations;
+    private final double minRelevance;
+    private final int limit;
+
+    private RecommendationsPipeline(Builder<T> builder) {
+        proposalFilters = ImmutableList.copyOf(builder.proposalFilters);
+        filters = ImmutableList.copyOf(builder.filters);
+        transformations = ImmutableList.copyOf(builder.transformations);
+        minRelevance = builder.minRelevance;
+        limit = builder.limit;
+    }
+
+    @Override
+    public List<Recommendation<T>> process(List<Recommendation<T>> recommendations) {
+        return process((Iterable<Recommendation<T>>) recommendations);
+    }
+
+    public List<Recommendation<T>> process(Iterable<Recommendation<T>> recommendations) {
+        int expectedSize = recommendations instanceof Collection ? ((Collection<?>) recommendations).size() : 16;
+        Sink<T> sink = newSink(expectedSize);
+        for (Recommendation<T> rec : recommendations) {
+            sink.accept(rec);
+        }
+        return sink.finish();
+    }
+
+    public Sink<T> newSink() {
+        return newSink(16);
+    }
+
+    /**
+     * @param expectedSize
+     *            the expected number of proposals pushed into the sink; used for pre-sizing only
+     */
+    public Sink<T> newSink(int expectedSize) {
+        return new Sink<T>(this, expectedSize);
+    }
+
+    /**
+     * Collects the result of a {@link RecommendationsPipeline} from proposals pushed one by one. Call
+     * {@link #finish()} once all proposals have been pushed.
+     */
+    public static final class Sink<T> {
+
+        private final RecommendationsPipeline<T> pipeline;
+        // holds raw proposals and Recommendation objects; the latter are reused for the result
+        private final TopK<Object> heap;
+
+        private Sink(RecommendationsPipeline<T> pipeline, int expectedSize) {
+            this.pipeline = pipeline;
+            heap = new TopK<Object>(pipeline.limit, expectedSize);
+        }
+
+        /**
+         * Pushes a proposal with the given (untransformed) relevance into the pipeline.
+         */
+        public void accept(T proposal, double relevance) {
+            accept(proposal, relevance, null);
+        }
+
+        public void accept(Recommendation<T> recommendation) {
+            accept(recommendation.getProposal(), recommendation.getRelevance(), recommendation);
+        }
+
+        private void accept(T proposal, double relevance, Recommendation<T> original) {
+            double initialRelevance = relevance;
+            for (Predicate<? super T> filter : pipeline.proposalFilters) {
+                if (!filter.apply(proposal)) {
+                    return;
+                }
+            }
+            for (RelevanceTransformation<T> transformation : pipeline.transformations) {
+                relevance = transformation.apply(proposal, relevance);
+            }
+            // NaN fails every comparison and would otherwise pass the minimum relevance check
+            if (Double.isNaN(relevance) || relevance < pipeline.minRelevance || !heap.accepts(relevance)) {
+                return;
+            }
+            Recommendation<T> rec = original != null && relevance == initialRelevance ? original : null;
+            if (!pipeline.filters.isEmpty()) {
+                if (rec == null) {
+                    rec = newRecommendation(proposal, relevance);
+                }
+                for (Predicate<? super Recommendation<T>> filter : pipeline.filters) {
+                    if (!filter.apply(rec)) {
+                        return;
+                    }
+                }
+            }
+            if (rec == null && proposal instanceof Recommendation) {
+                // keeps raw proposals distinguishable from reused recommendations
+                rec = Recommendation.<T, T> newRecommendation(proposal, relevance);
+            }
+            heap.offer(rec != null ? rec : proposal, relevance);
+        }
+
+        /**
+         * Returns the recommendations that passed the pipeline, sorted by decreasing relevance. The sink must not be
+         * used afterwards.
+         */
+        public List<Recommendation<T>> finish() {
+            int size = heap.size();
+            List<Object> elements = new ArrayList<Object>(size);
+            double[] relevances = new double[size];
+            heap.drainSorted(elements, relevances);
+            List<Recommendation<T>> res = new ArrayList<Recommendation<T>>(size);
+            for (int i = 0; i < size; i++) {
+                res.add(toRecommendation(elements.get(i), relevances[i]));
+            }
+            return res;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Recommendation<T> toRecommendation(Object element, double relevance) {
+            if (element instanceof Recommendation) {
+                return (Recommendation<T>) element;
+            }
+            return Recommendation.<T, T> newRecommendation((T) element, relevance);
+        }
+    }
+
+    public static final class Builder<T> {
+
+        private final List<Predicate<? super T>> proposalFilters = new ArrayList<Predicate<? super T>>();
+        private final List<Predicate<? super Recommendation<T>>> filters = Lists.newArrayList();
+        private final List<RelevanceTransformation<T>> transformations = new ArrayList<RelevanceTransformation<T>>();
+        private double minRelevance = Double.NEGATIVE_INFINITY;
+        private int limit = Integer.MAX_VALUE;
+
+        private Builder() {
+        }
+
+        /**
+         * Keeps only proposals accepted by the given predicate. Proposal filters are evaluated first and never
+         * require a {@link Recommendation} object to be created.
+         */
+        public Builder<T> filterProposals(Predicate<? super T> filter) {
+            proposalFilters.add(ensureIsNotNull(filter));
+            return this;
+        }
+
+        /**
+         * Keeps only recommendations accepted by the given predicate, e.g., {@link Recommendations#filterVoid()}.
+         */
+        public Builder<T> filter(Predicate<? super Recommendation<T>> filter) {
+            filters.add(ensureIsNotNull(filter));
+            return this;
+        }
+
+        public Builder<T> transform(RelevanceTransformation<T> transformation) {
+            transformations.add(ensureIsNotNull(transformation));
+            return this;
+        }
+
+        /**
+         * Drops all recommendations whose (transformed) relevance is below the given value. If called more than
+         * once, the last value wins.
+         */
+        public Builder<T> minRelevance(double min) {
+            minRelevance = min;
+            return this;
+        }
+
+        /**
+         * Keeps only the given number of most relevant recommendations. If called more than once, the last value
+         * wins.
+         */
+        public Builder<T> limit(int max) {
+            ensureIsTrue(max > 0, "limit must be positive but was %d", max);
+            limit = max;
+            return this;
+        }
+
+        public RecommendationsPipeline<T> build() {
+            return new RecommendationsPipeline<T>(this);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.utils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Selects the <code>max</code> most relevant of a stream of elements using a bounded min-heap over primitive
+ * (relevance, arrival) keys. The root holds the worst candidate kept so far: the one with the lowest relevance and,
+ * among equally relevant ones, the one offered last. Thus, equally relevant elements keep their arrival order.
+ * <p>
+ * Offering an element is <code>O(log max)</code> and allocates nothing once the heap has reached its final size.
+ */
+final class TopK<E> {
+
+    private final int max;
+    private double[] relevances;
+    private int[] arrivals;
+    private Object[] elements;
+    private int size;
+    private int offered;
+
+    TopK(int max, int expectedSize) {
+        this.max = max;
+        int capacity = Math.max(1, Math.min(max, expectedSize));
+        relevances = new double[capacity];
+        arrivals = new int[capacity];
+        elements = new Object[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if an element with the given relevance would currently be kept. Callers can use this to avoid
+     * creating elements that would be rejected anyway.
+     */
+    boolean accepts(double relevance) {
+        return size < max || relevance > relevances[0];
+    }
+
+    void offer(E element, double relevance) {
+        int arrival = offered++;
+        if (size < max) {
+            if (size == relevances.length) {
+                grow();
+            }
+            set(size, element, relevance, arrival);
+            siftUp(size++);
+        } else if (worse(relevances[0], arrivals[0], relevance, arrival)) {
+            set(0, element, relevance, arrival);
+            siftDown(0);
+        }
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min(max, relevances.length * 2L);
+        relevances = Arrays.copyOf(relevances, capacity);
+        arrivals = Arrays.copyOf(arrivals, capacity);
+        elements = Arrays.copyOf(elements, capacity);
+    }
+
+    /**
+     * Returns true if the first key ranks below the second.
+     */
+    private static boolean worse(double relevance1, int arrival1, double relevance2, int arrival2) {
+        return relevance1 < relevance2 || relevance1 == relevance2 && arrival1 > arrival2;
+    }
+
+    private boolean worse(int i, int j) {
+        return worse(relevances[i], arrivals[i], relevances[j], arrivals[j]);
+    }
+
+    private void set(int i, Object element, double relevance, int arrival) {
+        elements[i] = element;
+        relevances[i] = relevance;
+        arrivals[i] = arrival;
+    }
+
+    private void swap(int i, int j) {
+        Object element = elements[i];
+        double relevance = relevances[i];
+        int arrival = arrivals[i];
+        set(i, elements[j], relevances[j], arrivals[j]);
+        set(j, element, relevance, arrival);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(i, parent)) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && worse(child + 1, child)) {
+                child++;
+            }
+            if (!worse(child, i)) {
+                return;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    /**
+     * Empties this heap and appends its elements to the given list, most relevant first. If <code>relevancesOut</code>
+     * is not null, it receives the corresponding relevances and must have room for {@link #size()} values.
+     */
+    @SuppressWarnings("unchecked")
+    void drainSorted(List<? super E> out, double[] relevancesOut) {
+        int count = size;
+        Object[] sorted = new Object[count];
+        while (size > 0) {
+            size--;
+            sorted[size] = elements[0];
+            if (relevancesOut != null) {
+                relevancesOut[size] = relevances[0];
+            }
+            set(0, elements[size], relevances[size], arrivals[size]);
+            elements[size] = null;
+            siftDown(0);
+        }
+        for (int i = 0; i < count; i++) {
+            out.add((E) sorted[i]);
+        }
+    }
+}
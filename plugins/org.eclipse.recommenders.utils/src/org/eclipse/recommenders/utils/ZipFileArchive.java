@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.utils;
+
+import static com.google.common.base.Optional.absent;
+import static com.google.common.base.Optional.of;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.common.base.Optional;
+
+/**
+ * An {@link IZipArchive} that reads its entries from disk using a {@link ZipFile}.
+ */
+public class ZipFileArchive implements IZipArchive {
+
+    private final ZipFile zip;
+
+    public ZipFileArchive(File file) throws IOException {
+        this(new ZipFile(file));
+    }
+
+    public ZipFileArchive(ZipFile zip) {
+        this.zip = zip;
+    }
+
+    @Override
+    public boolean containsEntry(String path) {
+        return zip.getEntry(path) != null;
+    }
+
+    @Override
+    public Optional<InputStream> getInputStream(String path) throws IOException {
+        ZipEntry entry = zip.getEntry(path);
+        if (entry == null) {
+            return absent();
+        }
+        return of(zip.getInputStream(entry));
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+
+    @Override
+    public String toString() {
+        return zip.getName();
+    }
+}
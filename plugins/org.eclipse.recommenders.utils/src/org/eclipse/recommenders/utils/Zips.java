@@ -15,12 +15,31 @@ import static com.google.common.io.Files.newInputStreamSupplier;
 import static org.apache.commons.io.filefilter.DirectoryFileFilter.DIRECTORY;
 import static org.apache.commons.io.filefilter.FileFileFilter.FILE;
 import static org.apache.commons.lang3.StringUtils.removeStart;
+import static org.eclipse.recommenders.utils.Checks.ensureIsTrue;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -35,25 +54,38 @@ import org.eclipse.recommenders.utils.names.VmMethodName;
 import org.eclipse.recommenders.utils.names.VmTypeName;
 
 import com.google.common.base.Charsets;
-import com.google.common.io.ByteStreams;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.common.io.Closeables;
 import com.google.common.io.Files;
-import com.google.common.io.InputSupplier;
 import com.google.common.io.OutputSupplier;
 
 public class Zips {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int ENTRIES_PER_TASK = 64;
+
+    /**
+     * Reusable per-thread copy buffers. {@link java.util.zip.Inflater} and {@link java.util.zip.Deflater} operate on heap
+     * arrays only, so a (direct) NIO buffer would just add another copy here.
+     */
+    private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BUFFER_SIZE];
+        }
+    };
+
     public static void unzip(File zipFile, File destFolder) throws IOException {
         ZipInputStream zis = null;
         try {
-            InputSupplier<FileInputStream> fis = Files.newInputStreamSupplier(zipFile);
-            zis = new ZipInputStream(fis.getInput());
+            zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(zipFile), BUFFER_SIZE));
             ZipEntry entry;
             while ((entry = zis.getNextEntry()) != null) {
                 if (!entry.isDirectory()) {
                     final File file = new File(destFolder, entry.getName());
                     Files.createParentDirs(file);
-                    Files.write(ByteStreams.toByteArray(zis), file);
+                    copy(zis, file);
                 }
             }
         } finally {
@@ -61,17 +93,129 @@ public class Zips {
         }
     }
 
+    /**
+     * Unzips the given zip file using the given number of threads. Entries are read concurrently from a (random
+     * access) {@link ZipFile} and written in batches; directories are created up front by the calling thread.
+     * <p>
+     * If an entry cannot be extracted, the remaining entries are skipped and the exception is rethrown once all threads
+     * stopped. Entries extracted completely until then are kept; an entry whose extraction failed is deleted.
+     */
+    public static void unzip(File zipFile, File destFolder, int threads) throws IOException {
+        ensureIsTrue(threads > 0, "number of threads must be positive but was %d", threads);
+        ZipFile zip = new ZipFile(zipFile);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            Set<File> parents = Sets.newHashSet();
+            List<Future<Void>> tasks = Lists.newLinkedList();
+            List<ZipEntry> batch = Lists.newArrayListWithCapacity(ENTRIES_PER_TASK);
+            for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                File file = new File(destFolder, entry.getName());
+                if (parents.add(file.getParentFile())) {
+                    Files.createParentDirs(file);
+                }
+                batch.add(entry);
+                if (batch.size() == ENTRIES_PER_TASK) {
+                    tasks.add(pool.submit(new UnzipTask(zip, batch, destFolder)));
+                    batch = Lists.newArrayListWithCapacity(ENTRIES_PER_TASK);
+                }
+            }
+            if (!batch.isEmpty()) {
+                tasks.add(pool.submit(new UnzipTask(zip, batch, destFolder)));
+            }
+            for (Future<Void> task : tasks) {
+                await(task);
+            }
+        } finally {
+            pool.shutdownNow();
+            // workers must not read from the closed zip file
+            awaitTermination(pool);
+            closeQuietly(zip);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService pool) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void await(Future<Void> task) throws IOException {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while unzipping");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("failed to unzip entries", cause);
+        }
+    }
+
+    private static final class UnzipTask implements Callable<Void> {
+        private final ZipFile zip;
+        private final List<ZipEntry> entries;
+        private final File destFolder;
+
+        private UnzipTask(ZipFile zip, List<ZipEntry> entries, File destFolder) {
+            this.zip = zip;
+            this.entries = entries;
+            this.destFolder = destFolder;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            for (ZipEntry entry : entries) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("unzipping was cancelled");
+                }
+                File file = new File(destFolder, entry.getName());
+                boolean extracted = false;
+                InputStream in = zip.getInputStream(entry);
+                try {
+                    copy(in, file);
+                    extracted = true;
+                } finally {
+                    Closeables.closeQuietly(in);
+                    if (!extracted) {
+                        // do not leave a truncated file behind
+                        file.delete();
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
     public static void zip(File directory, File out) throws IOException {
         ZipOutputStream zos = null;
         try {
             OutputSupplier<FileOutputStream> s = Files.newOutputStreamSupplier(out);
-            zos = new ZipOutputStream(s.getOutput());
+            zos = new ZipOutputStream(new BufferedOutputStream(s.getOutput(), BUFFER_SIZE));
             for (File f : FileUtils.listFiles(directory, FILE, DIRECTORY)) {
                 String path = removeStart(f.getPath(), directory.getAbsolutePath() + "/");
                 ZipEntry e = new ZipEntry(path);
                 zos.putNextEntry(e);
-                byte[] data = Files.toByteArray(f);
-                zos.write(data);
+                copy(f, zos);
                 zos.closeEntry();
             }
         } finally {
@@ -79,6 +223,32 @@ public class Zips {
         }
     }
 
+    private static void copy(InputStream in, File dest) throws IOException {
+        OutputStream out = new FileOutputStream(dest);
+        try {
+            copy(in, out);
+        } finally {
+            Closeables.close(out, false);
+        }
+    }
+
+    private static void copy(File src, OutputStream out) throws IOException {
+        InputStream in = new FileInputStream(src);
+        try {
+            copy(in, out);
+        } finally {
+            Closeables.closeQuietly(in);
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = BUFFERS.get();
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
     /**
      * Creates a standard path for the given type name. Package names are
      * replaced by "/". The final name is constructed as follows:
@@ -139,13 +309,71 @@ public class Zips {
     }
 
     /**
-     * Reads the give file into memory. This method may be used by zip based
-     * recommenders to speed up data access.
+     * Reads the give file into memory. Zip based recommenders that only want to speed up data access should use
+     * {@link #warmup(File)} instead.
      */
     public static byte[] readFully(File file) throws IOException {
         return toByteArray(newInputStreamSupplier(file));
     }
 
+    /**
+     * Reads the given file sequentially through a small direct buffer to pull it into the OS page cache. Unlike
+     * {@link #readFully(File)}, this does not allocate a heap array of the file's size.
+     * 
+     * @return the time in milliseconds it took to read the file
+     */
+    public static long warmup(File file) throws IOException {
+        long start = System.currentTimeMillis();
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.clear();
+            }
+        } finally {
+            Closeables.closeQuietly(in);
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Runs {@link #warmup(File)} in a new daemon thread.
+     * 
+     * @return a future that holds the time in milliseconds it took to read the file
+     */
+    public static Future<Long> warmupInBackground(final File file) {
+        FutureTask<Long> task = new FutureTask<Long>(new Callable<Long>() {
+
+            @Override
+            public Long call() throws IOException {
+                return warmup(file);
+            }
+        });
+        Thread thread = new Thread(task, "Warmup " + file.getName());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return task;
+    }
+
+    /**
+     * Opens the given zip file for reading. If <code>inMemory</code> is set, the complete file is loaded into memory
+     * and its entries are indexed (see {@link InMemoryZipArchive}). Archives that cannot be handled in memory are
+     * opened from disk instead.
+     */
+    public static IZipArchive openArchive(File file, boolean inMemory) throws IOException {
+        if (inMemory) {
+            try {
+                return InMemoryZipArchive.load(file);
+            } catch (ZipException e) {
+                System.err.printf("Failed to load zip '%s' into memory; falling back to on-disk access: %s\n", file,
+                        e.getMessage());
+            }
+        }
+        return new ZipFileArchive(file);
+    }
+
     /**
      * Closes the give zip. Exceptions are printed to System.err.
      */
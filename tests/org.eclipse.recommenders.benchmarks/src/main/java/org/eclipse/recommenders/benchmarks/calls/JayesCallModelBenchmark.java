@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.benchmarks.calls;
+
+import static org.eclipse.recommenders.benchmarks.calls.SyntheticCallModels.methods;
+import static org.eclipse.recommenders.benchmarks.calls.SyntheticCallModels.newNetwork;
+import static org.eclipse.recommenders.benchmarks.calls.SyntheticCallModels.type;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.recommenders.calls.ICallModel;
+import org.eclipse.recommenders.calls.ICallModel.DefinitionType;
+import org.eclipse.recommenders.calls.JayesCallModel;
+import org.eclipse.recommenders.calls.JayesCallModel.InferenceMode;
+import org.eclipse.recommenders.commons.bayesnet.BayesianNetwork;
+import org.eclipse.recommenders.utils.Recommendation;
+import org.eclipse.recommenders.utils.names.IMethodName;
+import org.eclipse.recommenders.utils.names.ITypeName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the construction of a {@link JayesCallModel} from a {@link BayesianNetwork} and a complete recommendation
+ * query, i.e., setting the evidence and computing the recommended calls, with exact and approximate inference.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class JayesCallModelBenchmark {
+
+    @Param({ "20", "100" })
+    public int patterns;
+
+    @Param({ "50", "250" })
+    public int calls;
+
+    @Param({ "EXACT", "APPROXIMATE" })
+    public InferenceMode mode;
+
+    private ITypeName type;
+    private BayesianNetwork network;
+    private JayesCallModel model;
+    private IMethodName context;
+    private IMethodName definition;
+    private Set<IMethodName> observedCalls;
+
+    @Setup
+    public void setup() {
+        type = type(0);
+        network = newNetwork(type, patterns, calls, 42);
+        model = new JayesCallModel(type, network);
+        model.setInferenceMode(mode);
+        context = methods(type, "ctx", 1).get(0);
+        definition = methods(type, "def", 1).get(0);
+        List<IMethodName> all = methods(type, "call", calls);
+        observedCalls = new HashSet<IMethodName>(all.subList(0, 3));
+    }
+
+    @Benchmark
+    public ICallModel construct() {
+        return new JayesCallModel(type, network);
+    }
+
+    @Benchmark
+    public List<Recommendation<IMethodName>> recommendCalls() {
+        model.reset();
+        model.setObservedOverrideContext(context);
+        model.setObservedDefinitionType(DefinitionType.METHOD_RETURN);
+        model.setObservedDefiningMethod(definition);
+        model.setObservedCalls(observedCalls);
+        return model.getRecommendedCalls();
+    }
+}
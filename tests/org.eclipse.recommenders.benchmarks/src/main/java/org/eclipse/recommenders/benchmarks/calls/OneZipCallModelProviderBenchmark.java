@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.benchmarks.calls;
+
+import static org.eclipse.recommenders.benchmarks.calls.SyntheticCallModels.newArchive;
+import static org.eclipse.recommenders.benchmarks.calls.SyntheticCallModels.type;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.recommenders.calls.ICallModel;
+import org.eclipse.recommenders.calls.OneZipCallModelProvider;
+import org.eclipse.recommenders.models.BasedTypeName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Optional;
+import com.google.common.io.Files;
+
+/**
+ * Measures model acquisition from a synthetic model archive.
+ * <p>
+ * <b>cold</b> opens a fresh provider, acquires a single model and closes the provider again, i.e., it includes
+ * opening (and warming up or loading) the archive and deserializing the network. <b>warm</b> acquires models of a small
+ * set of types from an open provider, i.e., it is served from the provider's model cache.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class OneZipCallModelProviderBenchmark {
+
+    private static final int HOT_TYPES = 8;
+
+    @Param({ "200" })
+    public int types;
+
+    @Param({ "false", "true" })
+    public boolean inMemory;
+
+    private File dir;
+    private File archive;
+    private OneZipCallModelProvider warmProvider;
+    private BasedTypeName[] names;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDir();
+        archive = newArchive(new File(dir, "calls.zip"), types, 20, 100, 42);
+        names = new BasedTypeName[types];
+        for (int i = 0; i < types; i++) {
+            names[i] = new BasedTypeName(null, type(i));
+        }
+        warmProvider = new OneZipCallModelProvider(archive, false, inMemory);
+        warmProvider.open();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        warmProvider.close();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public Optional<ICallModel> cold() throws IOException {
+        OneZipCallModelProvider provider = new OneZipCallModelProvider(archive, false, inMemory);
+        provider.open();
+        try {
+            return provider.acquireModel(names[next++ % types]);
+        } finally {
+            provider.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public Optional<ICallModel> warm() {
+        Optional<ICallModel> model = warmProvider.acquireModel(names[next++ % HOT_TYPES]);
+        warmProvider.releaseModel(model.get());
+        return model;
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.benchmarks.calls;
+
+import static org.eclipse.recommenders.utils.Recommendation.newRecommendation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.recommenders.utils.Recommendation;
+import org.eclipse.recommenders.utils.Recommendations;
+import org.eclipse.recommenders.utils.RecommendationsPipeline;
+import org.eclipse.recommenders.utils.RecommendationsProcessor;
+import org.eclipse.recommenders.utils.names.IMethodName;
+import org.eclipse.recommenders.utils.names.VmMethodName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures post-processing of raw model output, i.e., filtering and selecting the top-k recommendations of a list as
+ * returned by {@link org.eclipse.recommenders.calls.ICallModel#getRecommendedCalls()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RecommendationsBenchmark {
+
+    @Param({ "50", "250", "2000" })
+    public int size;
+
+    private List<Recommendation<IMethodName>> recommendations;
+    private RecommendationsProcessor<IMethodName> top5;
+    private RecommendationsProcessor<IMethodName> defaults;
+    private RecommendationsPipeline<IMethodName> pipeline;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        recommendations = new ArrayList<Recommendation<IMethodName>>(size);
+        for (int i = 0; i < size; i++) {
+            IMethodName method = VmMethodName.get("Lsynthetic/Type0.call" + i + "()V");
+            // most calls are unlikely, as in real models
+            recommendations.add(newRecommendation(method, Math.pow(random.nextDouble(), 4)));
+        }
+        top5 = Recommendations.topElementsSortedByRelevance(0.01d, 5);
+        defaults = Recommendations.defaultProcessor();
+        pipeline = RecommendationsPipeline.<IMethodName> newBuilder().filter(Recommendations.filterVoid())
+                .minRelevance(0.01d).limit(5).build();
+    }
+
+    @Benchmark
+    public List<Recommendation<IMethodName>> top5() {
+        return top5.process(recommendations);
+    }
+
+    @Benchmark
+    public List<Recommendation<IMethodName>> defaultProcessor() {
+        return defaults.process(recommendations);
+    }
+
+    @Benchmark
+    public List<Recommendation<IMethodName>> pipeline() {
+        return pipeline.process(recommendations);
+    }
+
+    @Benchmark
+    public List<Recommendation<IMethodName>> pipelineSink() {
+        RecommendationsPipeline.Sink<IMethodName> sink = pipeline.newSink(size);
+        for (Recommendation<IMethodName> rec : recommendations) {
+            sink.accept(rec.getProposal(), rec.getRelevance());
+        }
+        return sink.finish();
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.benchmarks.calls;
+
+import static org.eclipse.recommenders.utils.Constants.N_NODEID_CALL_GROUPS;
+import static org.eclipse.recommenders.utils.Constants.N_NODEID_CONTEXT;
+import static org.eclipse.recommenders.utils.Constants.N_NODEID_DEF;
+import static org.eclipse.recommenders.utils.Constants.N_NODEID_DEF_KIND;
+import static org.eclipse.recommenders.utils.Constants.N_STATE_DUMMY_CTX;
+import static org.eclipse.recommenders.utils.Constants.N_STATE_DUMMY_DEF;
+import static org.eclipse.recommenders.utils.Constants.N_STATE_DUMMY_GRP;
+import static org.eclipse.recommenders.utils.Constants.N_STATE_FALSE;
+import static org.eclipse.recommenders.utils.Constants.N_STATE_TRUE;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.recommenders.calls.ICallModel.DefinitionType;
+import org.eclipse.recommenders.calls.JayesCallModel;
+import org.eclipse.recommenders.commons.bayesnet.BayesianNetwork;
+import org.eclipse.recommenders.commons.bayesnet.Node;
+import org.eclipse.recommenders.utils.Zips;
+import org.eclipse.recommenders.utils.names.IMethodName;
+import org.eclipse.recommenders.utils.names.ITypeName;
+import org.eclipse.recommenders.utils.names.VmMethodName;
+import org.eclipse.recommenders.utils.names.VmTypeName;
+
+/**
+ * Generates random call models that follow the network structure expected by {@link JayesCallModel}, and model
+ * archives containing such models. All methods are deterministic for a given seed.
+ */
+public class SyntheticCallModels {
+
+    public static ITypeName type(int index) {
+        return VmTypeName.get("Lsynthetic/Type" + index);
+    }
+
+    public static List<IMethodName> methods(ITypeName type, String prefix, int count) {
+        List<IMethodName> res = new ArrayList<IMethodName>(count);
+        for (int i = 0; i < count; i++) {
+            res.add(VmMethodName.get(type.getIdentifier() + "." + prefix + i + "()V"));
+        }
+        return res;
+    }
+
+    public static BayesianNetwork newNetwork(ITypeName type, int patterns, int calls, long seed) {
+        Random random = new Random(seed);
+        BayesianNetwork net = new BayesianNetwork();
+
+        String[] patternStates = new String[patterns + 1];
+        patternStates[0] = N_STATE_DUMMY_GRP;
+        for (int i = 1; i <= patterns; i++) {
+            patternStates[i] = "p" + i;
+        }
+        Node patternNode = newNode(net, N_NODEID_CALL_GROUPS, patternStates, null, random);
+
+        newNode(net, N_NODEID_CONTEXT, states(N_STATE_DUMMY_CTX, methods(type, "ctx", 10)), patternNode, random);
+        newNode(net, N_NODEID_DEF, states(N_STATE_DUMMY_DEF, methods(type, "def", 10)), patternNode, random);
+        String[] kinds = new String[DefinitionType.values().length];
+        for (DefinitionType kind : DefinitionType.values()) {
+            kinds[kind.ordinal()] = kind.name();
+        }
+        newNode(net, N_NODEID_DEF_KIND, kinds, patternNode, random);
+
+        for (IMethodName call : methods(type, "call", calls)) {
+            newNode(net, call.getIdentifier(), new String[] { N_STATE_TRUE, N_STATE_FALSE }, patternNode, random);
+        }
+        return net;
+    }
+
+    private static String[] states(String dummy, List<IMethodName> methods) {
+        String[] res = new String[methods.size() + 1];
+        res[0] = dummy;
+        for (int i = 0; i < methods.size(); i++) {
+            res[i + 1] = methods.get(i).getIdentifier();
+        }
+        return res;
+    }
+
+    private static Node newNode(BayesianNetwork net, String id, String[] states, Node parent, Random random) {
+        Node node = new Node(id);
+        node.setStates(states);
+        int rows = 1;
+        if (parent != null) {
+            node.setParents(new Node[] { parent });
+            rows = parent.getStates().length;
+        }
+        double[] probabilities = new double[rows * states.length];
+        for (int row = 0; row < rows; row++) {
+            double sum = 0;
+            for (int i = 0; i < states.length; i++) {
+                probabilities[row * states.length + i] = 0.01 + random.nextDouble();
+                sum += probabilities[row * states.length + i];
+            }
+            for (int i = 0; i < states.length; i++) {
+                probabilities[row * states.length + i] /= sum;
+            }
+        }
+        node.setProbabilities(probabilities);
+        net.addNode(node);
+        return node;
+    }
+
+    /**
+     * Writes a model archive with one network per type, named {@link #type(int) type(0)} to
+     * <code>type(types - 1)</code>.
+     */
+    public static File newArchive(File file, int types, int patterns, int calls, long seed) throws IOException {
+        ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            for (int i = 0; i < types; i++) {
+                ITypeName type = type(i);
+                zos.putNextEntry(new ZipEntry(Zips.path(type, ".data")));
+                ObjectOutputStream oos = new ObjectOutputStream(zos);
+                oos.writeObject(newNetwork(type, patterns, calls, seed + i));
+                oos.flush();
+                zos.closeEntry();
+            }
+        } finally {
+            zos.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.benchmarks.calls;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.recommenders.utils.names.VmMethodName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures lookups of already known method names in {@link VmMethodName}'s global index, single-threaded and under
+ * contention. The names are kept strongly reachable so that the weak index never drops them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class VmMethodNameBenchmark {
+
+    private static final int NAMES = 4096;
+
+    @State(Scope.Benchmark)
+    public static class Names {
+
+        private final String[] identifiers = new String[NAMES];
+        private final VmMethodName[] names = new VmMethodName[NAMES];
+
+        @Setup
+        public void setup() {
+            for (int i = 0; i < NAMES; i++) {
+                identifiers[i] = "Lsynthetic/Type" + i % 64 + ".method" + i + "(Ljava/lang/String;I)V";
+                names[i] = VmMethodName.get(identifiers[i]);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public VmMethodName getSingleThreaded(Names names, Cursor cursor) {
+        return VmMethodName.get(names.identifiers[cursor.next++ & NAMES - 1]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public VmMethodName getContended4(Names names, Cursor cursor) {
+        return VmMethodName.get(names.identifiers[cursor.next++ & NAMES - 1]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public VmMethodName getContendedMax(Names names, Cursor cursor) {
+        return VmMethodName.get(names.identifiers[cursor.next++ & NAMES - 1]);
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.benchmarks.models;
+
+import static org.eclipse.recommenders.benchmarks.models.SyntheticDependencies.newIndex;
+import static org.eclipse.recommenders.benchmarks.models.SyntheticDependencies.newJars;
+import static org.eclipse.recommenders.benchmarks.models.SyntheticDependencies.newJreHome;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.recommenders.models.ProjectCoordinate;
+import org.eclipse.recommenders.models.dependencies.DependencyInfo;
+import org.eclipse.recommenders.models.dependencies.DependencyType;
+import org.eclipse.recommenders.models.dependencies.impl.FingerprintStrategy;
+import org.eclipse.recommenders.models.dependencies.impl.JREReleaseFileStrategy;
+import org.eclipse.recommenders.models.dependencies.impl.MappingProvider;
+import org.eclipse.recommenders.models.dependencies.impl.MavenPomPropertiesStrategy;
+import org.eclipse.recommenders.models.dependencies.impl.SimpleIndexSearcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Optional;
+import com.google.common.io.Files;
+
+/**
+ * Measures the project coordinate resolution of jar and JRE dependencies, per dependency and in bulk as done when a
+ * workspace is imported.
+ * <p>
+ * The <code>mappingProvider*</code> benchmarks add the strategies in the order fingerprint, pom.properties, JRE release
+ * file, and either run them in that order or let the provider order them by their expected cost.
+ * <code>mappingProviderMiss</code> resolves every jar once with an empty cache; its score is per jar.
+ * <code>mappingProviderHit</code> resolves jars that are already cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DependencyStrategiesBenchmark {
+
+    private static final int JARS = 32;
+
+    @Param({ "100", "2000" })
+    public int entries;
+
+    @Param({ "1024", "16384" })
+    public int entrySize;
+
+    @Param({ "10000" })
+    public int indexSize;
+
+    @Param({ "true", "false" })
+    public boolean adaptiveOrdering;
+
+    private File dir;
+    private DependencyInfo[] jars;
+    private DependencyInfo jre;
+    private SimpleIndexSearcher index;
+    private FingerprintStrategy fingerprintStrategy;
+    private MavenPomPropertiesStrategy pomPropertiesStrategy;
+    private JREReleaseFileStrategy releaseFileStrategy;
+    private MappingProvider warmMappingProvider;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDir();
+        File jarDir = new File(dir, "jars");
+        jarDir.mkdirs();
+        List<File> files = newJars(jarDir, JARS, entries, entrySize, 42);
+        jars = new DependencyInfo[JARS];
+        for (int i = 0; i < JARS; i++) {
+            jars[i] = new DependencyInfo(files.get(i), DependencyType.JAR);
+        }
+        jre = new DependencyInfo(newJreHome(new File(dir, "jre"), "1.7.0_21"), DependencyType.JRE);
+        index = new SimpleIndexSearcher(newIndex(new File(dir, "index"), files, indexSize, 42));
+
+        fingerprintStrategy = new FingerprintStrategy(index);
+        pomPropertiesStrategy = new MavenPomPropertiesStrategy();
+        releaseFileStrategy = new JREReleaseFileStrategy();
+        warmMappingProvider = newMappingProvider();
+        resolveAll(warmMappingProvider);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private MappingProvider newMappingProvider() {
+        MappingProvider res = new MappingProvider();
+        res.setAdaptiveOrdering(adaptiveOrdering);
+        res.addStrategy(fingerprintStrategy);
+        res.addStrategy(pomPropertiesStrategy);
+        res.addStrategy(releaseFileStrategy);
+        return res;
+    }
+
+    private int resolveAll(MappingProvider provider) {
+        int found = 0;
+        for (DependencyInfo jar : jars) {
+            if (provider.searchForProjectCoordinate(jar).isPresent()) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public Optional<ProjectCoordinate> fingerprintStrategy() {
+        return fingerprintStrategy.searchForProjectCoordinate(jars[next++ % JARS]);
+    }
+
+    @Benchmark
+    public Optional<ProjectCoordinate> pomPropertiesStrategy() {
+        return pomPropertiesStrategy.searchForProjectCoordinate(jars[next++ % JARS]);
+    }
+
+    @Benchmark
+    public Optional<ProjectCoordinate> releaseFileStrategy() {
+        return releaseFileStrategy.searchForProjectCoordinate(jre);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(JARS)
+    public int mappingProviderMiss() {
+        return resolveAll(newMappingProvider());
+    }
+
+    @Benchmark
+    public Optional<ProjectCoordinate> mappingProviderHit() {
+        return warmMappingProvider.searchForProjectCoordinate(jars[next++ % JARS]);
+    }
+}
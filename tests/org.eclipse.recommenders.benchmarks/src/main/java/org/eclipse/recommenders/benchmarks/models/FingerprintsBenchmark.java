@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.benchmarks.models;
+
+import static org.eclipse.recommenders.benchmarks.models.SyntheticDependencies.newJars;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.recommenders.utils.Fingerprints;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.Files;
+
+/**
+ * Measures fingerprinting of jar files, one at a time and in bulk as done when a workspace is imported. Scores are
+ * per jar. The jars are written once and read from the page cache afterwards, so this measures CPU cost rather than
+ * disk bandwidth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FingerprintsBenchmark {
+
+    private static final int JARS = 64;
+
+    @Param({ "100", "2000" })
+    public int entries;
+
+    @Param({ "1", "4" })
+    public int parallelism;
+
+    private File dir;
+    private List<File> jars;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDir();
+        jars = newJars(dir, JARS, entries, 1024, 42);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(JARS)
+    public int sha1() {
+        int res = 0;
+        for (File jar : jars) {
+            res += Fingerprints.sha1(jar).hashCode();
+        }
+        return res;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(JARS)
+    public Map<File, String> sha1Bulk() {
+        return Fingerprints.sha1(jars, parallelism);
+    }
+}
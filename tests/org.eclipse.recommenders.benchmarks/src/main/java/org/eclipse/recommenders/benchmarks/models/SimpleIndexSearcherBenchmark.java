@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.benchmarks.models;
+
+import static org.eclipse.recommenders.benchmarks.models.SyntheticDependencies.newIndex;
+import static org.eclipse.recommenders.benchmarks.models.SyntheticDependencies.newJars;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.recommenders.models.dependencies.impl.SimpleIndexSearcher;
+import org.eclipse.recommenders.utils.Fingerprints;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Optional;
+import com.google.common.io.Files;
+
+/**
+ * Measures the cost of opening the fingerprint index and of fingerprint lookups that hit or miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimpleIndexSearcherBenchmark {
+
+    private static final String UNKNOWN_FINGERPRINT = "0000000000000000000000000000000000000000";
+
+    @Param({ "1000", "100000" })
+    public int indexSize;
+
+    private File dir;
+    private File location;
+    private SimpleIndexSearcher openIndex;
+    private String knownFingerprint;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDir();
+        File jarDir = new File(dir, "jars");
+        jarDir.mkdirs();
+        List<File> jars = newJars(jarDir, 1, 10, 1024, 42);
+        knownFingerprint = Fingerprints.sha1(jars.get(0));
+        location = newIndex(new File(dir, "index"), jars, indexSize, 42);
+        openIndex = new SimpleIndexSearcher(location);
+        openIndex.open();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        openIndex.close();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public SimpleIndexSearcher openAndClose() {
+        SimpleIndexSearcher index = new SimpleIndexSearcher(location);
+        index.open();
+        index.close();
+        return index;
+    }
+
+    @Benchmark
+    public Optional<String> searchHit() {
+        return openIndex.searchByFingerprint(knownFingerprint);
+    }
+
+    @Benchmark
+    public Optional<String> searchMiss() {
+        return openIndex.searchByFingerprint(UNKNOWN_FINGERPRINT);
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.benchmarks.models;
+
+import static org.eclipse.recommenders.utils.Constants.F_COORDINATE;
+import static org.eclipse.recommenders.utils.Constants.F_FINGERPRINTS;
+import static org.eclipse.recommenders.utils.Constants.F_SYMBOLIC_NAMES;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.apache.lucene.analysis.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Field.Index;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Version;
+import org.eclipse.recommenders.models.ProjectCoordinate;
+import org.eclipse.recommenders.utils.Fingerprints;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Generates synthetic dependency corpora: jar files with Maven pom.properties, JRE installations with a release
+ * file, and a search index that maps the jars' fingerprints to their coordinates. All methods are deterministic for a
+ * given seed.
+ */
+public class SyntheticDependencies {
+
+    public static ProjectCoordinate coordinate(int index) {
+        return new ProjectCoordinate("org.example.group" + index % 50, "artifact" + index, "1." + index % 10 + ".0");
+    }
+
+    /**
+     * Writes <code>count</code> jars, each containing <code>entries</code> entries of <code>entrySize</code> random
+     * (i.e., incompressible) bytes plus a pom.properties file describing {@link #coordinate(int)}.
+     */
+    public static List<File> newJars(File dir, int count, int entries, int entrySize, long seed) throws IOException {
+        Random random = new Random(seed);
+        byte[] content = new byte[entrySize];
+        List<File> res = new ArrayList<File>(count);
+        for (int i = 0; i < count; i++) {
+            File jar = new File(dir, "artifact" + i + ".jar");
+            JarOutputStream jos = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(jar)));
+            try {
+                for (int e = 0; e < entries; e++) {
+                    jos.putNextEntry(new ZipEntry("org/example/artifact" + i + "/Class" + e + ".class"));
+                    random.nextBytes(content);
+                    jos.write(content);
+                    jos.closeEntry();
+                }
+                ProjectCoordinate pc = coordinate(i);
+                jos.putNextEntry(new ZipEntry("META-INF/maven/" + pc.getGroupId() + "/" + pc.getArtifactId()
+                        + "/pom.properties"));
+                String properties = "groupId=" + pc.getGroupId() + "\nartifactId=" + pc.getArtifactId()
+                        + "\nversion=" + pc.getVersion() + "\n";
+                jos.write(properties.getBytes(Charsets.ISO_8859_1));
+                jos.closeEntry();
+            } finally {
+                jos.close();
+            }
+            res.add(jar);
+        }
+        return res;
+    }
+
+    public static File newJreHome(File dir, String version) throws IOException {
+        dir.mkdirs();
+        Files.write("JAVA_VERSION=\"" + version + "\"\nOS_NAME=\"Linux\"\n", new File(dir, "release"),
+                Charsets.ISO_8859_1);
+        return dir;
+    }
+
+    /**
+     * Writes a search index that contains the fingerprints of the given jars, padded with
+     * <code>additionalDocuments</code> random entries to simulate a realistically sized index.
+     */
+    public static File newIndex(File dir, List<File> jars, int additionalDocuments, long seed) throws IOException {
+        Random random = new Random(seed);
+        Directory directory = FSDirectory.open(dir);
+        IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_35,
+                new KeywordAnalyzer()));
+        try {
+            for (int i = 0; i < jars.size(); i++) {
+                writer.addDocument(newDocument(Fingerprints.sha1(jars.get(i)), coordinate(i)));
+            }
+            for (int i = 0; i < additionalDocuments; i++) {
+                String fingerprint = String.format("%040x", new BigInteger(160, random));
+                writer.addDocument(newDocument(fingerprint, coordinate(jars.size() + i)));
+            }
+        } finally {
+            writer.close();
+            directory.close();
+        }
+        return dir;
+    }
+
+    private static Document newDocument(String fingerprint, ProjectCoordinate pc) {
+        Document doc = new Document();
+        doc.add(new Field(F_FINGERPRINTS, fingerprint, Store.NO, Index.NOT_ANALYZED));
+        doc.add(new Field(F_SYMBOLIC_NAMES, pc.getArtifactId(), Store.NO, Index.NOT_ANALYZED));
+        doc.add(new Field(F_COORDINATE, pc.getGroupId() + ":" + pc.getArtifactId() + ":jar:" + pc.getVersion(),
+                Store.YES, Index.NO));
+        return doc;
+    }
+}
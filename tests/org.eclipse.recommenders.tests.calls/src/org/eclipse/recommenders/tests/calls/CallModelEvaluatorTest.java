@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.tests.calls;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.recommenders.calls.ICallModel;
+import org.eclipse.recommenders.calls.ICallModelProvider;
+import org.eclipse.recommenders.calls.evaluation.CallModelEvaluator;
+import org.eclipse.recommenders.calls.evaluation.EvaluationResult;
+import org.eclipse.recommenders.internal.utils.codestructs.DefinitionSite.Kind;
+import org.eclipse.recommenders.internal.utils.codestructs.ObjectUsage;
+import org.eclipse.recommenders.internal.utils.codestructs.ObjectUsageTable;
+import org.eclipse.recommenders.models.BasedTypeName;
+import org.eclipse.recommenders.utils.Recommendation;
+import org.eclipse.recommenders.utils.names.IMethodName;
+import org.eclipse.recommenders.utils.names.ITypeName;
+import org.eclipse.recommenders.utils.names.VmMethodName;
+import org.eclipse.recommenders.utils.names.VmTypeName;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class CallModelEvaluatorTest {
+
+    private static final ITypeName STRING = VmTypeName.get("Ljava/lang/String");
+    private static final ITypeName LIST = VmTypeName.get("Ljava/util/List");
+    private static final IMethodName CONTEXT = VmMethodName.get("LExample.run()V");
+    private static final IMethodName LENGTH = VmMethodName.get("Ljava/lang/String.length()I");
+    private static final IMethodName TRIM = VmMethodName.get("Ljava/lang/String.trim()Ljava/lang/String;");
+    private static final IMethodName ISEMPTY = VmMethodName.get("Ljava/lang/String.isEmpty()Z");
+    private static final IMethodName CHARAT = VmMethodName.get("Ljava/lang/String.charAt(I)C");
+    private static final IMethodName SIZE = VmMethodName.get("Ljava/util/List.size()I");
+
+    private ICallModel model;
+    private ICallModelProvider provider;
+
+    @Before
+    public void setup() {
+        model = mock(ICallModel.class);
+        when(model.getRecommendedCalls()).thenReturn(
+                Arrays.asList(Recommendation.newRecommendation(LENGTH, 0.9),
+                        Recommendation.newRecommendation(TRIM, 0.8)));
+        provider = mock(ICallModelProvider.class);
+        // there is a model for strings only
+        when(provider.acquireModel(any(BasedTypeName.class))).thenAnswer(new Answer<Optional<ICallModel>>() {
+
+            @Override
+            public Optional<ICallModel> answer(InvocationOnMock invocation) {
+                BasedTypeName key = (BasedTypeName) invocation.getArguments()[0];
+                return STRING.equals(key.getName()) ? Optional.of(model) : Optional.<ICallModel> absent();
+            }
+        });
+    }
+
+    private static ObjectUsage usage(ITypeName type, IMethodName... calls) {
+        ObjectUsage res = new ObjectUsage();
+        res.type = type;
+        res.contextFirst = CONTEXT;
+        res.kind = Kind.PARAMETER;
+        res.calls = Sets.newLinkedHashSet(Arrays.asList(calls));
+        return res;
+    }
+
+    private static List<ObjectUsage> corpus() {
+        List<ObjectUsage> res = Lists.newArrayList();
+        for (int i = 0; i < 10; i++) {
+            res.add(usage(STRING, LENGTH, TRIM));
+            res.add(usage(STRING, ISEMPTY, CHARAT, LENGTH, TRIM));
+            res.add(usage(LIST, SIZE));
+            res.add(usage(STRING));
+        }
+        return res;
+    }
+
+    private static ObjectUsageTable table(List<ObjectUsage> usages) {
+        ObjectUsageTable res = new ObjectUsageTable();
+        for (ObjectUsage usage : usages) {
+            res.add(usage);
+        }
+        return res;
+    }
+
+    @Test
+    public void testEvaluateTable() throws Exception {
+        CallModelEvaluator sut = new CallModelEvaluator(provider, null, 2, 2);
+
+        EvaluationResult res = sut.evaluate(table(corpus()));
+
+        // usages without calls are no queries
+        assertEquals(20, res.getQueries());
+        assertEquals(2, res.getExecutedQueries());
+        assertEquals(10, res.getQueriesWithoutModel());
+        assertEquals(0, res.getFailedQueries());
+        assertEquals(2, res.getTypes());
+        assertEquals(1, res.getTypesWithoutModel());
+        verify(provider, times(1)).releaseModel(model);
+    }
+
+    @Test
+    public void testChunkedEvaluationMatchesTableEvaluation() throws Exception {
+        CallModelEvaluator sut = new CallModelEvaluator(provider, null, 2, 2);
+        EvaluationResult expected = sut.evaluate(table(corpus()));
+
+        EvaluationResult actual = sut.evaluate(corpus().iterator(), 3);
+
+        assertEquals(expected.getQueries(), actual.getQueries());
+        assertEquals(expected.getQueriesWithoutModel(), actual.getQueriesWithoutModel());
+        assertEquals(expected.getPrecision(), actual.getPrecision(), 1e-9);
+        assertEquals(expected.getRecall(), actual.getRecall(), 1e-9);
+        // duplicates are only detected within a chunk
+        assertTrue(actual.getExecutedQueries() > expected.getExecutedQueries());
+    }
+
+    @Test
+    public void testEvaluateEmptyIterator() throws Exception {
+        CallModelEvaluator sut = new CallModelEvaluator(provider, null, 2, 2);
+
+        EvaluationResult res = sut.evaluate(Lists.<ObjectUsage> newArrayList().iterator());
+
+        assertEquals(0, res.getQueries());
+        assertEquals(0, res.getTypes());
+    }
+
+    @Test
+    public void testEvaluateReadsIteratorLazily() throws Exception {
+        final List<ObjectUsage> corpus = corpus();
+        final int[] read = new int[1];
+        final int[] readBeforeFirstQuery = new int[1];
+        // count how many usages are read before the model is queried for the first time
+        Iterator<ObjectUsage> it = new Iterator<ObjectUsage>() {
+
+            @Override
+            public boolean hasNext() {
+                return read[0] < corpus.size();
+            }
+
+            @Override
+            public ObjectUsage next() {
+                return corpus.get(read[0]++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+        when(model.getRecommendedCalls()).thenAnswer(new Answer<List<Recommendation<IMethodName>>>() {
+
+            @Override
+            public List<Recommendation<IMethodName>> answer(InvocationOnMock invocation) {
+                if (readBeforeFirstQuery[0] == 0) {
+                    readBeforeFirstQuery[0] = read[0];
+                }
+                return Lists.newArrayList();
+            }
+        });
+        CallModelEvaluator sut = new CallModelEvaluator(provider, null, 2, 1);
+
+        sut.evaluate(it, 4);
+
+        assertEquals(corpus.size(), read[0]);
+        assertEquals(4, readBeforeFirstQuery[0]);
+    }
+
+    @Test
+    public void testSplitDoesNotDependOnCorpus() throws Exception {
+        CallModelEvaluator sut = new CallModelEvaluator(provider, null, 2, 1);
+        sut.evaluate(table(Arrays.asList(usage(STRING, ISEMPTY, CHARAT, LENGTH, TRIM))));
+        // interns the calls of the same usage in a different order
+        sut.evaluate(table(Arrays.asList(usage(STRING, TRIM, LENGTH), usage(STRING, CHARAT),
+                usage(STRING, ISEMPTY, CHARAT, LENGTH, TRIM))));
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        ArgumentCaptor<Set<IMethodName>> observed = (ArgumentCaptor) ArgumentCaptor.forClass(Set.class);
+        verify(model, times(4)).setObservedCalls(observed.capture());
+        List<Set<IMethodName>> values = observed.getAllValues();
+        assertEquals(2, values.get(0).size());
+        assertEquals(values.get(0), values.get(3));
+    }
+
+    @Test
+    public void testFailedQueriesAreCounted() throws Exception {
+        when(model.getRecommendedCalls()).thenThrow(new IllegalStateException());
+        CallModelEvaluator sut = new CallModelEvaluator(provider, null, 2, 2);
+
+        EvaluationResult res = sut.evaluate(table(corpus()));
+
+        assertEquals(20, res.getFailedQueries());
+        assertEquals(0, res.getQueries());
+        assertEquals(0, res.getPrecision(), 0);
+        verify(provider, times(1)).releaseModel(model);
+    }
+
+    @Test
+    public void testFailedModelAcquisitionIsCounted() throws Exception {
+        doThrow(new IllegalStateException()).when(provider).acquireModel(any(BasedTypeName.class));
+        CallModelEvaluator sut = new CallModelEvaluator(provider, null, 2, 2);
+
+        EvaluationResult res = sut.evaluate(table(corpus()));
+
+        assertEquals(30, res.getFailedQueries());
+        assertEquals(0, res.getQueries());
+        assertEquals(2, res.getTypes());
+    }
+}
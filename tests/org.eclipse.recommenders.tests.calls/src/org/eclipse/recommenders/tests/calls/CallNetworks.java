@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.tests.calls;
+
+import static org.eclipse.recommenders.utils.Constants.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.recommenders.calls.ICallModel.DefinitionType;
+import org.eclipse.recommenders.commons.bayesnet.BayesianNetwork;
+import org.eclipse.recommenders.commons.bayesnet.Node;
+import org.eclipse.recommenders.utils.Zips;
+import org.eclipse.recommenders.utils.names.IMethodName;
+import org.eclipse.recommenders.utils.names.ITypeName;
+import org.eclipse.recommenders.utils.names.VmMethodName;
+import org.eclipse.recommenders.utils.names.VmTypeName;
+
+/**
+ * Small, hand-written call networks with the structure expected by the call models.
+ */
+public final class CallNetworks {
+
+    public static final ITypeName TYPE = VmTypeName.get("Lorg/example/Stream");
+    public static final IMethodName OPEN = VmMethodName.get("Lorg/example/Stream.open()V");
+    public static final IMethodName READ = VmMethodName.get("Lorg/example/Stream.read()I");
+    public static final IMethodName CLOSE = VmMethodName.get("Lorg/example/Stream.close()V");
+    public static final IMethodName CONTEXT = VmMethodName.get("Lorg/example/Reader.run()V");
+    public static final IMethodName OTHER_CONTEXT = VmMethodName.get("Lorg/example/Writer.run()V");
+    public static final IMethodName DEFINITION = VmMethodName.get("Lorg/example/Streams.create()Lorg/example/Stream;");
+
+    private static final String[] PATTERNS = { N_STATE_DUMMY_GRP, "reading", "writing", "rare" };
+    private static final double[] PATTERN_PRIORS = { 0.05, 0.6, 0.34, 0.01 };
+
+    /**
+     * Creates a network in which every node depends on the pattern node only, i.e., a mixture over patterns.
+     */
+    public static BayesianNetwork newMixtureNetwork() {
+        return newNetwork(false);
+    }
+
+    /**
+     * Creates a network in which the close node additionally depends on the open node. Its beliefs can only be
+     * computed exactly.
+     */
+    public static BayesianNetwork newNonMixtureNetwork() {
+        return newNetwork(true);
+    }
+
+    private static BayesianNetwork newNetwork(boolean closeDependsOnOpen) {
+        BayesianNetwork net = new BayesianNetwork();
+        Node patterns = newNode(net, N_NODEID_CALL_GROUPS, PATTERNS, PATTERN_PRIORS);
+        newNode(net, N_NODEID_CONTEXT, new String[] { N_STATE_DUMMY_CTX, CONTEXT.getIdentifier(),
+                OTHER_CONTEXT.getIdentifier() }, new double[] {
+        /* dummy */0.8, 0.1, 0.1,
+        /* reading */0.1, 0.8, 0.1,
+        /* writing */0.1, 0.1, 0.8,
+        /* rare */0.4, 0.3, 0.3 }, patterns);
+        newNode(net, N_NODEID_DEF, new String[] { N_STATE_DUMMY_DEF, DEFINITION.getIdentifier() }, new double[] {
+                0.5, 0.5, 0.3, 0.7, 0.6, 0.4, 0.5, 0.5 }, patterns);
+        String[] kinds = new String[DefinitionType.values().length];
+        double[] kindProbabilities = new double[PATTERNS.length * kinds.length];
+        for (DefinitionType kind : DefinitionType.values()) {
+            kinds[kind.ordinal()] = kind.name();
+            for (int p = 0; p < PATTERNS.length; p++) {
+                // the pattern determines the most likely kind
+                kindProbabilities[p * kinds.length + kind.ordinal()] = kind.ordinal() == p % kinds.length ? 4 : 1;
+            }
+        }
+        normalize(kindProbabilities, kinds.length);
+        newNode(net, N_NODEID_DEF_KIND, kinds, kindProbabilities, patterns);
+
+        Node open = newCallNode(net, OPEN, new double[] { 0.5, 0.9, 0.8, 0.1 }, patterns);
+        newCallNode(net, READ, new double[] { 0.5, 0.95, 0.05, 0.3 }, patterns);
+        if (closeDependsOnOpen) {
+            Node close = new Node(CLOSE.getIdentifier());
+            close.setStates(new String[] { N_STATE_TRUE, N_STATE_FALSE });
+            close.setParents(new Node[] { patterns, open });
+            close.setProbabilities(new double[] {
+            /* dummy, open */0.5, 0.5, /* dummy, not open */0.5, 0.5,
+            /* reading, open */0.9, 0.1, /* reading, not open */0.2, 0.8,
+            /* writing, open */0.7, 0.3, /* writing, not open */0.1, 0.9,
+            /* rare, open */0.6, 0.4, /* rare, not open */0.3, 0.7 });
+            net.addNode(close);
+        } else {
+            newCallNode(net, CLOSE, new double[] { 0.5, 0.85, 0.7, 0.2 }, patterns);
+        }
+        return net;
+    }
+
+    private static Node newCallNode(BayesianNetwork net, IMethodName call, double[] probabilitiesOfTrue, Node parent) {
+        double[] probabilities = new double[2 * probabilitiesOfTrue.length];
+        for (int p = 0; p < probabilitiesOfTrue.length; p++) {
+            probabilities[2 * p] = probabilitiesOfTrue[p];
+            probabilities[2 * p + 1] = 1 - probabilitiesOfTrue[p];
+        }
+        return newNode(net, call.getIdentifier(), new String[] { N_STATE_TRUE, N_STATE_FALSE }, probabilities,
+                parent);
+    }
+
+    private static Node newNode(BayesianNetwork net, String id, String[] states, double[] probabilities,
+            Node... parents) {
+        Node node = new Node(id);
+        node.setStates(states);
+        node.setParents(parents);
+        node.setProbabilities(probabilities);
+        net.addNode(node);
+        return node;
+    }
+
+    private static void normalize(double[] table, int outcomes) {
+        for (int row = 0; row < table.length; row += outcomes) {
+            double sum = 0;
+            for (int i = row; i < row + outcomes; i++) {
+                sum += table[i];
+            }
+            for (int i = row; i < row + outcomes; i++) {
+                table[i] /= sum;
+            }
+        }
+    }
+
+    /**
+     * Writes a model archive that contains the given network as the model of {@link #TYPE}.
+     */
+    public static File newArchive(File file, BayesianNetwork network) throws IOException {
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            zos.putNextEntry(new ZipEntry(Zips.path(TYPE, ".data")));
+            ObjectOutputStream oos = new ObjectOutputStream(zos);
+            oos.writeObject(network);
+            oos.flush();
+            zos.closeEntry();
+        } finally {
+            zos.close();
+        }
+        return file;
+    }
+
+    private CallNetworks() {
+    }
+}
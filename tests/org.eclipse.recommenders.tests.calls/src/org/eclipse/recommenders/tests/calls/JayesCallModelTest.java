@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.tests.calls;
+
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.eclipse.recommenders.tests.calls.CallNetworks.*;
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.recommenders.calls.ICallModel.DefinitionType;
+import org.eclipse.recommenders.calls.JayesCallModel;
+import org.eclipse.recommenders.calls.JayesCallModel.InferenceMode;
+import org.eclipse.recommenders.commons.bayesnet.BayesianNetwork;
+import org.eclipse.recommenders.utils.Recommendation;
+import org.eclipse.recommenders.utils.names.IMethodName;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Compares approximate inference against exact inference. Every query runs on a fresh network so that no result
+ * memorized by a previous query is returned.
+ */
+public class JayesCallModelTest {
+
+    private static final double MAX_ERROR = 0.05;
+    private static final int QUERIES = 5;
+
+    /**
+     * Sets the evidence of one of several queries.
+     */
+    private static void observe(JayesCallModel model, int query) {
+        switch (query) {
+        case 0:
+            break;
+        case 1:
+            model.setObservedCalls(Collections.singleton(OPEN));
+            break;
+        case 2:
+            model.setObservedOverrideContext(CONTEXT);
+            break;
+        case 3:
+            model.setObservedDefinitionType(DefinitionType.FIELD);
+            model.setObservedDefiningMethod(DEFINITION);
+            break;
+        case 4:
+            model.setObservedOverrideContext(OTHER_CONTEXT);
+            model.setObservedCalls(Sets.newHashSet(OPEN, READ));
+            break;
+        default:
+            throw new IllegalArgumentException();
+        }
+    }
+
+    private static Map<IMethodName, Double> exact(BayesianNetwork network, int query) {
+        JayesCallModel model = new JayesCallModel(TYPE, network);
+        model.setInferenceMode(InferenceMode.EXACT);
+        observe(model, query);
+        return toMap(model.getRecommendedCalls());
+    }
+
+    private static Map<IMethodName, Double> approximate(BayesianNetwork network, int query, double maxError) {
+        JayesCallModel model = new JayesCallModel(TYPE, network);
+        model.setInferenceMode(InferenceMode.APPROXIMATE);
+        model.setMaxApproximationError(maxError);
+        observe(model, query);
+        return toMap(model.getRecommendedCalls());
+    }
+
+    private static Map<IMethodName, Double> toMap(List<Recommendation<IMethodName>> recs) {
+        Map<IMethodName, Double> res = Maps.newHashMap();
+        for (Recommendation<IMethodName> rec : recs) {
+            res.put(rec.getProposal(), rec.getRelevance());
+        }
+        return res;
+    }
+
+    private static void assertWithin(Map<IMethodName, Double> expected, Map<IMethodName, Double> actual, double delta) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (IMethodName call : expected.keySet()) {
+            assertEquals(call.toString(), expected.get(call), actual.get(call), delta);
+        }
+    }
+
+    @Test
+    public void testApproximationWithoutErrorIsExact() {
+        for (int query = 0; query < QUERIES; query++) {
+            assertWithin(exact(newMixtureNetwork(), query), approximate(newMixtureNetwork(), query, 0d), 1e-9);
+        }
+    }
+
+    @Test
+    public void testApproximationErrorIsBounded() {
+        boolean differs = false;
+        for (int query = 0; query < QUERIES; query++) {
+            Map<IMethodName, Double> exact = exact(newMixtureNetwork(), query);
+            Map<IMethodName, Double> approximate = approximate(newMixtureNetwork(), query, MAX_ERROR);
+
+            assertWithin(exact, approximate, MAX_ERROR);
+            differs |= !exact.equals(approximate);
+        }
+        // otherwise, nothing was pruned and the bound was not put to the test
+        assertTrue(differs);
+    }
+
+    @Test
+    public void testApproximatePatternsAndDefinitionsAreBounded() {
+        JayesCallModel exact = new JayesCallModel(TYPE, newMixtureNetwork());
+        JayesCallModel approximate = new JayesCallModel(TYPE, newMixtureNetwork());
+        approximate.setInferenceMode(InferenceMode.APPROXIMATE);
+        approximate.setMaxApproximationError(MAX_ERROR);
+        observe(exact, 1);
+        observe(approximate, 1);
+
+        assertWithin(toMap(exact.getRecommendedDefinitions()), toMap(approximate.getRecommendedDefinitions()),
+                MAX_ERROR);
+        Map<String, Double> exactPatterns = Maps.newHashMap();
+        for (Recommendation<String> rec : exact.getRecommendedPatterns()) {
+            exactPatterns.put(rec.getProposal(), rec.getRelevance());
+        }
+        for (Recommendation<String> rec : approximate.getRecommendedPatterns()) {
+            assertEquals(rec.getProposal(), exactPatterns.get(rec.getProposal()), rec.getRelevance(), MAX_ERROR);
+        }
+    }
+
+    @Test
+    public void testAutoSwitchesToApproximationWhenExactInferenceIsTooSlow() {
+        BayesianNetwork network = newMixtureNetwork();
+        JayesCallModel model = new JayesCallModel(TYPE, network);
+        model.setInferenceMode(InferenceMode.AUTO);
+        model.setMaxApproximationError(MAX_ERROR);
+        // any exact inference exceeds this budget; the first one is exact anyway to measure it
+        model.setLatencyBudget(0, NANOSECONDS);
+        assertWithin(exact(newMixtureNetwork(), 0), toMap(model.getRecommendedCalls()), 1e-9);
+
+        boolean differs = false;
+        for (int query = 1; query < QUERIES; query++) {
+            model.reset();
+            observe(model, query);
+            Map<IMethodName, Double> exact = exact(newMixtureNetwork(), query);
+            Map<IMethodName, Double> auto = toMap(model.getRecommendedCalls());
+
+            assertWithin(exact, auto, MAX_ERROR);
+            differs |= !exact.equals(auto);
+        }
+        assertTrue(differs);
+    }
+
+    @Test
+    public void testAutoMeasuresExactInferenceAgainWhileApproximating() {
+        int query = 1;
+        while (exact(newMixtureNetwork(), query).equals(approximate(newMixtureNetwork(), query, MAX_ERROR))) {
+            query++;
+        }
+        Map<IMethodName, Double> exact = exact(newMixtureNetwork(), query);
+        JayesCallModel model = new JayesCallModel(TYPE, newMixtureNetwork());
+        model.setInferenceMode(InferenceMode.AUTO);
+        model.setMaxApproximationError(MAX_ERROR);
+        model.setLatencyBudget(0, NANOSECONDS);
+        model.getRecommendedCalls();
+        observe(model, query);
+
+        boolean measured = false;
+        for (int i = 0; i < 1000 && !measured; i++) {
+            Map<IMethodName, Double> auto = toMap(model.getRecommendedCalls());
+            assertWithin(exact, auto, MAX_ERROR);
+            measured = exact.equals(auto);
+        }
+        assertTrue(measured);
+    }
+
+    @Test
+    public void testAutoUsesExactInferenceWithinBudget() {
+        JayesCallModel model = new JayesCallModel(TYPE, newMixtureNetwork());
+        model.setInferenceMode(InferenceMode.AUTO);
+        model.setMaxApproximationError(0.5);
+        model.setLatencyBudget(1, HOURS);
+
+        for (int query = 0; query < QUERIES; query++) {
+            model.reset();
+            observe(model, query);
+
+            assertWithin(exact(newMixtureNetwork(), query), toMap(model.getRecommendedCalls()), 1e-9);
+        }
+    }
+
+    @Test
+    public void testResetDiscardsBeliefsOfPreviousEvidence() {
+        JayesCallModel model = new JayesCallModel(TYPE, newMixtureNetwork());
+        observe(model, 4);
+        model.getRecommendedCalls();
+
+        model.reset();
+
+        assertWithin(exact(newMixtureNetwork(), 0), toMap(model.getRecommendedCalls()), 1e-9);
+    }
+
+    @Test
+    public void testNonMixtureNetworkFallsBackToExactInference() {
+        for (int query = 0; query < QUERIES; query++) {
+            // a huge error would prune all but the most likely pattern
+            assertWithin(exact(newNonMixtureNetwork(), query), approximate(newNonMixtureNetwork(), query, 0.5), 1e-9);
+        }
+    }
+
+    @Test
+    public void testNonMixtureNetworkDiffersFromMixture() {
+        // makes sure the fallback test above does not pass trivially
+        Map<IMethodName, Double> mixture = exact(newMixtureNetwork(), 1);
+        Map<IMethodName, Double> nonMixture = exact(newNonMixtureNetwork(), 1);
+
+        assertFalse(Math.abs(mixture.get(CLOSE) - nonMixture.get(CLOSE)) < 1e-3);
+    }
+}
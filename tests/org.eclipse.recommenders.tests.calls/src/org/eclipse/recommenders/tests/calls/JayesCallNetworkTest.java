@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.tests.calls;
+
+import static org.eclipse.recommenders.tests.calls.CallNetworks.*;
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.recommenders.calls.ICallModel.DefinitionType;
+import org.eclipse.recommenders.calls.JayesCallModel;
+import org.eclipse.recommenders.calls.JayesCallNetwork;
+import org.eclipse.recommenders.utils.Recommendation;
+import org.eclipse.recommenders.utils.names.IMethodName;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Tests the recommended calls memorized per evidence in a shared {@link JayesCallNetwork}. Expected results are
+ * computed on a fresh network each, i.e., without any memorized results.
+ */
+public class JayesCallNetworkTest {
+
+    private static final Set<IMethodName> NO_CALLS = Collections.emptySet();
+
+    private static List<Recommendation<IMethodName>> fresh(Set<IMethodName> calls, IMethodName context) {
+        JayesCallModel model = new JayesCallNetwork(TYPE, newMixtureNetwork()).newModel();
+        model.setObservedCalls(calls);
+        if (context != null) {
+            model.setObservedOverrideContext(context);
+        }
+        return model.getRecommendedCalls();
+    }
+
+    private static void assertSameRecommendations(List<Recommendation<IMethodName>> expected,
+            List<Recommendation<IMethodName>> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getProposal(), actual.get(i).getProposal());
+            assertEquals(expected.get(i).getRelevance(), actual.get(i).getRelevance(), 1e-12);
+        }
+    }
+
+    @Test
+    public void testRepeatedQueryReturnsCachedList() {
+        JayesCallModel model = new JayesCallNetwork(TYPE, newMixtureNetwork()).newModel();
+        model.setObservedCalls(Collections.singleton(OPEN));
+
+        List<Recommendation<IMethodName>> first = model.getRecommendedCalls();
+        List<Recommendation<IMethodName>> second = model.getRecommendedCalls();
+
+        assertSame(first, second);
+    }
+
+    @Test
+    public void testModelsOnSharedNetworkShareCachedList() {
+        JayesCallNetwork network = new JayesCallNetwork(TYPE, newMixtureNetwork());
+        JayesCallModel first = network.newModel();
+        JayesCallModel second = network.newModel();
+        first.setObservedCalls(Collections.singleton(OPEN));
+        first.setObservedOverrideContext(CONTEXT);
+        // same evidence, set in a different order
+        second.setObservedOverrideContext(CONTEXT);
+        second.setObservedCalls(Collections.singleton(OPEN));
+
+        assertSame(first.getRecommendedCalls(), second.getRecommendedCalls());
+    }
+
+    @Test
+    public void testResultsAfterReset() {
+        JayesCallModel model = new JayesCallNetwork(TYPE, newMixtureNetwork()).newModel();
+        model.setObservedCalls(Collections.singleton(OPEN));
+        model.setObservedOverrideContext(CONTEXT);
+        List<Recommendation<IMethodName>> withEvidence = model.getRecommendedCalls();
+
+        model.reset();
+        model.setObservedCalls(NO_CALLS);
+        List<Recommendation<IMethodName>> afterReset = model.getRecommendedCalls();
+
+        assertNotSame(withEvidence, afterReset);
+        assertSameRecommendations(fresh(NO_CALLS, null), afterReset);
+
+        model.reset();
+        model.setObservedCalls(Collections.singleton(OPEN));
+        model.setObservedOverrideContext(CONTEXT);
+        assertSame(withEvidence, model.getRecommendedCalls());
+        assertSameRecommendations(fresh(Collections.singleton(OPEN), CONTEXT), withEvidence);
+    }
+
+    @Test
+    public void testDifferentEvidenceOnSharedNetwork() {
+        JayesCallNetwork network = new JayesCallNetwork(TYPE, newMixtureNetwork());
+        JayesCallModel first = network.newModel();
+        JayesCallModel second = network.newModel();
+        first.setObservedCalls(Collections.singleton(OPEN));
+        second.setObservedCalls(Sets.newHashSet(OPEN, READ));
+        second.setObservedOverrideContext(OTHER_CONTEXT);
+
+        // interleave queries so that each model runs after the other one has set its evidence
+        List<Recommendation<IMethodName>> firstRecs = first.getRecommendedCalls();
+        List<Recommendation<IMethodName>> secondRecs = second.getRecommendedCalls();
+        List<Recommendation<IMethodName>> firstAgain = first.getRecommendedCalls();
+
+        assertSameRecommendations(fresh(Collections.singleton(OPEN), null), firstRecs);
+        assertSameRecommendations(fresh(Sets.newHashSet(OPEN, READ), OTHER_CONTEXT), secondRecs);
+        assertSame(firstRecs, firstAgain);
+        // calls used as evidence are not recommended
+        assertEquals(2, firstRecs.size());
+        assertEquals(1, secondRecs.size());
+    }
+
+    @Test
+    public void testEvidenceOnOtherNodesChangesCacheKey() {
+        JayesCallNetwork network = new JayesCallNetwork(TYPE, newMixtureNetwork());
+        JayesCallModel model = network.newModel();
+        List<Recommendation<IMethodName>> withoutEvidence = model.getRecommendedCalls();
+
+        model.setObservedDefinitionType(DefinitionType.FIELD);
+
+        assertNotSame(withoutEvidence, model.getRecommendedCalls());
+    }
+
+    @Test
+    public void testPrecomputedResultsAreCorrect() {
+        JayesCallNetwork network = new JayesCallNetwork(TYPE, newMixtureNetwork());
+        network.precompute(2);
+        JayesCallModel model = network.newModel();
+
+        model.setObservedCalls(NO_CALLS);
+        assertSameRecommendations(fresh(NO_CALLS, null), model.getRecommendedCalls());
+        for (IMethodName context : new IMethodName[] { CONTEXT, OTHER_CONTEXT }) {
+            model.reset();
+            model.setObservedCalls(NO_CALLS);
+            model.setObservedOverrideContext(context);
+            assertSameRecommendations(fresh(NO_CALLS, context), model.getRecommendedCalls());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.tests.calls;
+
+import static org.eclipse.recommenders.tests.calls.CallNetworks.*;
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.eclipse.recommenders.calls.ICallModel;
+import org.eclipse.recommenders.calls.JayesCallModel;
+import org.eclipse.recommenders.calls.NullCallModel;
+import org.eclipse.recommenders.calls.OneZipCallModelProvider;
+import org.eclipse.recommenders.models.BasedTypeName;
+import org.eclipse.recommenders.utils.names.VmTypeName;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class OneZipCallModelProviderTest {
+
+    private static final BasedTypeName KEY = new BasedTypeName(null, TYPE);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private OneZipCallModelProvider sut;
+
+    @Before
+    public void setup() throws Exception {
+        sut = new OneZipCallModelProvider(newArchive(folder.newFile("models.zip"), newMixtureNetwork()));
+        sut.open();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        sut.close();
+    }
+
+    @Test
+    public void testUnknownType() {
+        ICallModel model = sut.acquireModel(new BasedTypeName(null, VmTypeName.get("Lorg/example/Unknown"))).get();
+
+        assertSame(NullCallModel.NULL_MODEL, model);
+        sut.releaseModel(model);
+    }
+
+    @Test
+    public void testConcurrentUsersGetDistinctModelsOnSharedNetwork() {
+        JayesCallModel first = (JayesCallModel) sut.acquireModel(KEY).get();
+        JayesCallModel second = (JayesCallModel) sut.acquireModel(KEY).get();
+
+        assertNotSame(first, second);
+        assertSame(first.getNetwork(), second.getNetwork());
+    }
+
+    @Test
+    public void testReleasedModelIsReusedWithoutEvidence() {
+        ICallModel model = sut.acquireModel(KEY).get();
+        model.setObservedCalls(Collections.singleton(OPEN));
+        sut.releaseModel(model);
+
+        ICallModel reused = sut.acquireModel(KEY).get();
+
+        assertSame(model, reused);
+        assertTrue(reused.getObservedCalls().isEmpty());
+    }
+
+    @Test
+    public void testDoubleReleaseDoesNotShareModel() {
+        ICallModel model = sut.acquireModel(KEY).get();
+        sut.releaseModel(model);
+        sut.releaseModel(model);
+
+        ICallModel first = sut.acquireModel(KEY).get();
+        ICallModel second = sut.acquireModel(KEY).get();
+
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void testReleaseOfForeignModelIsIgnored() {
+        ICallModel foreign = new JayesCallModel(TYPE, newMixtureNetwork());
+        sut.releaseModel(foreign);
+
+        ICallModel model = sut.acquireModel(KEY).get();
+
+        assertNotSame(foreign, model);
+    }
+
+    @Test
+    public void testNothingIsPrecomputedByDefault() {
+        sut.acquireModel(KEY);
+
+        sut.setPrecomputeExecutor(new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                fail();
+            }
+        });
+        sut.acquireModel(KEY);
+    }
+
+    @Test
+    public void testPrecomputationRunsOnExecutor() {
+        final List<Runnable> tasks = Lists.newArrayList();
+        sut.setPrecomputeExecutor(new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+
+        sut.acquireModel(KEY);
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+
+        // once per network, not per model
+        sut.acquireModel(KEY);
+        assertEquals(1, tasks.size());
+    }
+
+    @Test
+    public void testIdleModelsAreBounded() {
+        List<ICallModel> models = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            models.add(sut.acquireModel(KEY).get());
+        }
+        for (ICallModel model : models) {
+            sut.releaseModel(model);
+        }
+
+        Set<ICallModel> reused = Sets.newIdentityHashSet();
+        for (int i = 0; i < 100; i++) {
+            ICallModel model = sut.acquireModel(KEY).get();
+            if (models.contains(model)) {
+                reused.add(model);
+            }
+        }
+
+        assertTrue(reused.size() > 0);
+        assertTrue(reused.size() < 100);
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Olav Lenz - initial API and implementation
+ */
+package org.eclipse.recommenders.tests.models.rcp;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.internal.core.JarPackageFragmentRoot;
+import org.eclipse.recommenders.models.ProjectCoordinate;
+import org.eclipse.recommenders.models.dependencies.DependencyInfo;
+import org.eclipse.recommenders.models.dependencies.DependencyType;
+import org.eclipse.recommenders.models.dependencies.IMappingProvider;
+import org.eclipse.recommenders.models.dependencies.rcp.EclipseDependencyListener;
+import org.eclipse.recommenders.models.dependencies.rcp.EclipseDependencyListener.DependenciesChanged;
+import org.eclipse.recommenders.models.rcp.ProjectCoordinateProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+
+@SuppressWarnings("restriction")
+public class ProjectCoordinateProviderTest {
+
+    private static final ProjectCoordinate EXPECTED_PROJECT_COORDINATE = new ProjectCoordinate("example",
+            "example.project", "1.0.0");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JarPackageFragmentRoot root;
+    private IType type;
+    private IMappingProvider mappingProvider;
+    private ProjectCoordinateProvider sut;
+
+    private static IPath path(File file) {
+        IPath path = mock(IPath.class);
+        when(path.toFile()).thenReturn(file);
+        return path;
+    }
+
+    private static JarPackageFragmentRoot newRoot(File jar, String handleIdentifier) {
+        IPath path = path(jar);
+        JarPackageFragmentRoot res = mock(JarPackageFragmentRoot.class);
+        when(res.isArchive()).thenReturn(true);
+        when(res.isExternal()).thenReturn(true);
+        when(res.getPath()).thenReturn(path);
+        when(res.getHandleIdentifier()).thenReturn(handleIdentifier);
+        return res;
+    }
+
+    private static IType newType(JarPackageFragmentRoot root, String handleIdentifier) {
+        IType res = mock(IType.class);
+        when(res.getHandleIdentifier()).thenReturn(handleIdentifier);
+        when(res.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT)).thenReturn(root);
+        return res;
+    }
+
+    private static DependenciesChanged removed(JarPackageFragmentRoot root) {
+        SetMultimap<DependencyInfo, DependencyInfo> removed = HashMultimap.create();
+        removed.put(new DependencyInfo(new File("/example"), DependencyType.PROJECT),
+                EclipseDependencyListener.createDependencyInfoForJAR(root));
+        return new DependenciesChanged(1, HashMultimap.<DependencyInfo, DependencyInfo> create(), removed);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        root = newRoot(folder.newFile("example.jar"), "=example/example.jar");
+        type = newType(root, "=example/example.jar<example(Example.class[Example");
+        mappingProvider = mock(IMappingProvider.class);
+        when(mappingProvider.searchForProjectCoordinate(any(DependencyInfo.class))).thenReturn(
+                Optional.of(EXPECTED_PROJECT_COORDINATE));
+        sut = new ProjectCoordinateProvider(mappingProvider);
+    }
+
+    @Test
+    public void testKnownJarIsResolvedOnce() {
+        assertEquals(EXPECTED_PROJECT_COORDINATE, sut.resolve(root).get());
+        assertEquals(EXPECTED_PROJECT_COORDINATE, sut.resolve(root).get());
+
+        verify(mappingProvider, times(1)).searchForProjectCoordinate(any(DependencyInfo.class));
+    }
+
+    @Test
+    public void testTypeOfKnownJarIsResolvedByHandleIdentifier() {
+        assertEquals(EXPECTED_PROJECT_COORDINATE, sut.resolve(type).get());
+        assertEquals(EXPECTED_PROJECT_COORDINATE, sut.resolve(type).get());
+        IType other = newType(root, "=example/example.jar<example(Other.class[Other");
+        assertEquals(EXPECTED_PROJECT_COORDINATE, sut.resolve(other).get());
+
+        verify(type, times(1)).getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+        verify(other, never()).getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+        verify(mappingProvider, times(1)).searchForProjectCoordinate(any(DependencyInfo.class));
+    }
+
+    @Test
+    public void testEscapedDelimiterInHandleIdentifier() throws IOException {
+        JarPackageFragmentRoot escaped = newRoot(folder.newFile("lib<1>.jar"), "=example/lib\\<1>.jar");
+        IType escapedType = newType(escaped, "=example/lib\\<1>.jar<example(Example.class[Example");
+
+        sut.resolve(escaped);
+        sut.resolve(escapedType);
+
+        verify(escapedType, never()).getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+    }
+
+    @Test
+    public void testMissIsRememberedUntilInvalidated() {
+        when(mappingProvider.searchForProjectCoordinate(any(DependencyInfo.class))).thenReturn(
+                Optional.<ProjectCoordinate> absent());
+
+        assertFalse(sut.resolve(type).isPresent());
+        assertFalse(sut.resolve(type).isPresent());
+        verify(mappingProvider, times(1)).searchForProjectCoordinate(any(DependencyInfo.class));
+
+        sut.invalidateMisses();
+        sut.resolve(type);
+        verify(mappingProvider, times(2)).searchForProjectCoordinate(any(DependencyInfo.class));
+    }
+
+    @Test
+    public void testRemovedJarIsResolvedAgain() {
+        sut.resolve(type);
+
+        sut.onEvent(removed(root));
+        sut.resolve(type);
+
+        verify(mappingProvider, times(2)).searchForProjectCoordinate(any(DependencyInfo.class));
+    }
+
+    @Test
+    public void testJarRemovedWhileResolvingIsNotRemembered() {
+        when(mappingProvider.searchForProjectCoordinate(any(DependencyInfo.class))).thenAnswer(
+                new Answer<Optional<ProjectCoordinate>>() {
+
+                    @Override
+                    public Optional<ProjectCoordinate> answer(InvocationOnMock invocation) {
+                        sut.onEvent(removed(root));
+                        return Optional.of(EXPECTED_PROJECT_COORDINATE);
+                    }
+                });
+
+        assertEquals(EXPECTED_PROJECT_COORDINATE, sut.resolve(root).get());
+        sut.resolve(root);
+
+        verify(mappingProvider, times(2)).searchForProjectCoordinate(any(DependencyInfo.class));
+    }
+}
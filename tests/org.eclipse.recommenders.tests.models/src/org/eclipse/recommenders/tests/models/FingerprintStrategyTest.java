@@ -15,7 +15,10 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.eclipse.recommenders.models.ProjectCoordinate;
 import org.eclipse.recommenders.models.dependencies.DependencyInfo;
@@ -27,8 +30,10 @@ import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
 
 import com.google.common.base.Optional;
+import com.google.common.io.Files;
 
 public class FingerprintStrategyTest {
 
@@ -38,6 +43,19 @@ public class FingerprintStrategyTest {
     @Rule
     public TemporaryFolder folder = new TemporaryFolder();
 
+    private File createJar(String name, String content) throws IOException {
+        File jar = new File(folder.getRoot(), name);
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(jar));
+        try {
+            zos.putNextEntry(new ZipEntry("example/Example.class"));
+            zos.write(content.getBytes());
+            zos.closeEntry();
+        } finally {
+            zos.close();
+        }
+        return jar;
+    }
+
     @Test
     public void testInvalidDependencyType() {
         FingerprintStrategy sut = new FingerprintStrategy(null);
@@ -73,4 +91,42 @@ public class FingerprintStrategyTest {
         Assert.assertFalse(optionalProjectCoordinate.isPresent());
     }
 
+    @Test
+    public void testFingerprintIsCachedByCentralDirectory() throws IOException {
+        File jar = createJar("example.jar", "content");
+        String fingerprint = Fingerprints.sha1(jar);
+        SimpleIndexSearcher mockedIndexer = mock(SimpleIndexSearcher.class);
+        when(mockedIndexer.searchByFingerprint(Mockito.anyString())).thenReturn(Optional.<String>absent());
+        when(mockedIndexer.searchByFingerprint(fingerprint)).thenReturn(
+                Optional.fromNullable("example:example.project:jar:1.0.0"));
+        FingerprintStrategy sut = new FingerprintStrategy(mockedIndexer);
+        sut.searchForProjectCoordinate(new DependencyInfo(jar, DependencyType.JAR));
+
+        // changes the modification time in the local file header only, i.e., the central directory is unchanged
+        byte[] content = Files.toByteArray(jar);
+        content[10]++;
+        Files.write(content, jar);
+        Assert.assertFalse(fingerprint.equals(Fingerprints.sha1(jar)));
+        Optional<ProjectCoordinate> optionalProjectCoordinate = sut.searchForProjectCoordinate(new DependencyInfo(jar,
+                DependencyType.JAR));
+
+        Assert.assertEquals(EXPECTED_PROJECT_COORDINATE, optionalProjectCoordinate.get());
+    }
+
+    @Test
+    public void testFingerprintIsNotSharedByDifferentCentralDirectories() throws IOException {
+        File jar = createJar("example.jar", "content");
+        SimpleIndexSearcher mockedIndexer = mock(SimpleIndexSearcher.class);
+        when(mockedIndexer.searchByFingerprint(Mockito.anyString())).thenReturn(Optional.<String>absent());
+        when(mockedIndexer.searchByFingerprint(Fingerprints.sha1(jar))).thenReturn(
+                Optional.fromNullable("example:example.project:jar:1.0.0"));
+        FingerprintStrategy sut = new FingerprintStrategy(mockedIndexer);
+        sut.searchForProjectCoordinate(new DependencyInfo(jar, DependencyType.JAR));
+
+        File changed = createJar("changed.jar", "changed content");
+        Optional<ProjectCoordinate> optionalProjectCoordinate = sut.searchForProjectCoordinate(new DependencyInfo(
+                changed, DependencyType.JAR));
+
+        Assert.assertFalse(optionalProjectCoordinate.isPresent());
+    }
 }
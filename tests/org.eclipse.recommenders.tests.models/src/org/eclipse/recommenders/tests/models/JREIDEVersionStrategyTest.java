@@ -68,4 +68,21 @@ public class JREIDEVersionStrategyTest {
         assertEquals(EXPECTED_PROJECT_COORDINATE, projectCoordinate.get());
     }
 
+    @Test
+    public void testModernExecutionEnvironments() {
+        IProjectCoordinateResolver sut = new JREExecutionEnvironmentStrategy();
+
+        assertEquals(new ProjectCoordinate("jre", "jre", "1.8.0"),
+                sut.searchForProjectCoordinate(createInfoForExecutionEnvironment("JavaSE-1.8")).get());
+        assertEquals(new ProjectCoordinate("jre", "jre", "1.8.0"),
+                sut.searchForProjectCoordinate(createInfoForExecutionEnvironment("JavaSE/compact1-1.8")).get());
+        assertEquals(new ProjectCoordinate("jre", "jre", "17.0.0"),
+                sut.searchForProjectCoordinate(createInfoForExecutionEnvironment("JavaSE-17")).get());
+    }
+
+    private static DependencyInfo createInfoForExecutionEnvironment(final String executionEnvironment) {
+        Map<String, String> attributes = Maps.newHashMap();
+        attributes.put(DependencyInfo.EXECUTION_ENVIRONMENT, executionEnvironment);
+        return new DependencyInfo(JAVA_HOME_FOLDER, DependencyType.JRE, attributes);
+    }
 }
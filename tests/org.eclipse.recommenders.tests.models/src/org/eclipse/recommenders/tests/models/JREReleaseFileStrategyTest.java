@@ -26,7 +26,9 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Optional;
+import com.google.common.io.Files;
 
 public class JREReleaseFileStrategyTest {
 
@@ -111,4 +113,38 @@ public class JREReleaseFileStrategyTest {
         assertFalse(optionalProjectCoordinate.isPresent());
     }
 
+    @Test
+    public void testUnchangedReleaseFileIsNotReadAgain() throws IOException {
+        createJavaHomeDirectory();
+        createReleaseFile();
+        fillReleaseFileWithVersion();
+        long lastModified = releaseFile.lastModified();
+
+        DependencyInfo info = new DependencyInfo(javaHomeDirectory, DependencyType.JRE);
+        IProjectCoordinateResolver sut = new JREReleaseFileStrategy();
+        sut.searchForProjectCoordinate(info);
+
+        // same size and modification time
+        Files.write("JAVA_VERSION=\"2.0.0\"\n", releaseFile, Charsets.ISO_8859_1);
+        releaseFile.setLastModified(lastModified);
+        Optional<ProjectCoordinate> optionalProjectCoordinate = sut.searchForProjectCoordinate(info);
+
+        assertEquals(EXPECTED_PROJECT_COORDINATE, optionalProjectCoordinate.get());
+    }
+
+    @Test
+    public void testChangedReleaseFileIsReadAgain() throws IOException {
+        createJavaHomeDirectory();
+        createReleaseFile();
+        fillReleaseFileWithVersion();
+
+        DependencyInfo info = new DependencyInfo(javaHomeDirectory, DependencyType.JRE);
+        IProjectCoordinateResolver sut = new JREReleaseFileStrategy();
+        sut.searchForProjectCoordinate(info);
+
+        Files.write("JAVA_VERSION=\"1.0.10\"\n", releaseFile, Charsets.ISO_8859_1);
+        Optional<ProjectCoordinate> optionalProjectCoordinate = sut.searchForProjectCoordinate(info);
+
+        assertEquals(new ProjectCoordinate("jre", "jre", "1.0.10"), optionalProjectCoordinate.get());
+    }
 }
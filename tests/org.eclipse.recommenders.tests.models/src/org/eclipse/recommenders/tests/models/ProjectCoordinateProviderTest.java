@@ -14,19 +14,32 @@ import static com.google.common.base.Optional.fromNullable;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.eclipse.recommenders.models.ProjectCoordinate;
 import org.eclipse.recommenders.models.dependencies.DependencyInfo;
 import org.eclipse.recommenders.models.dependencies.DependencyType;
 import org.eclipse.recommenders.models.dependencies.IMappingProvider;
 import org.eclipse.recommenders.models.dependencies.IProjectCoordinateResolver;
+import org.eclipse.recommenders.models.dependencies.IRatedProjectCoordinateResolver;
+import org.eclipse.recommenders.models.dependencies.IRatedProjectCoordinateResolver.Cost;
 import org.eclipse.recommenders.models.dependencies.impl.MappingProvider;
+import org.eclipse.recommenders.models.dependencies.impl.MappingProvider.StrategyMetrics;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
+import com.google.common.io.Files;
 
 public class ProjectCoordinateProviderTest {
 
@@ -35,6 +48,9 @@ public class ProjectCoordinateProviderTest {
     private static final ProjectCoordinate ANOTHER_EXPECTED_PROJECT_COORDINATE = new ProjectCoordinate(
             "another.example", "another.example.project", "1.2.3");
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private IProjectCoordinateResolver createMockedStrategy(final ProjectCoordinate projectCoordinate,
             final DependencyType... dependencyTypes) {
         IProjectCoordinateResolver mockedStrategy = Mockito.mock(IProjectCoordinateResolver.class);
@@ -47,6 +63,29 @@ public class ProjectCoordinateProviderTest {
         return mockedStrategy;
     }
 
+    private IRatedProjectCoordinateResolver createMockedRatedStrategy(final ProjectCoordinate projectCoordinate,
+            final Cost cost, final double confidence) {
+        IRatedProjectCoordinateResolver mockedStrategy = Mockito.mock(IRatedProjectCoordinateResolver.class);
+        Mockito.when(mockedStrategy.searchForProjectCoordinate(Mockito.any(DependencyInfo.class))).thenReturn(
+                fromNullable(projectCoordinate));
+        Mockito.when(mockedStrategy.isApplicable(DependencyType.JAR)).thenReturn(true);
+        Mockito.when(mockedStrategy.getEstimatedCost()).thenReturn(cost);
+        Mockito.when(mockedStrategy.getConfidence()).thenReturn(confidence);
+        return mockedStrategy;
+    }
+
+    private File createJar(File jar, String content) throws IOException {
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(jar));
+        try {
+            zos.putNextEntry(new ZipEntry("example/Example.class"));
+            zos.write(content.getBytes());
+            zos.closeEntry();
+        } finally {
+            zos.close();
+        }
+        return jar;
+    }
+
     @Test
     public void testMappingProviderWithNoStrategy() {
         IMappingProvider sut = new MappingProvider();
@@ -185,4 +224,373 @@ public class ProjectCoordinateProviderTest {
         assertEquals(ANOTHER_EXPECTED_PROJECT_COORDINATE, actual.get());
     }
 
+    @Test
+    public void testStoredCoordinatesAreRestored() throws IOException {
+        File jar = folder.newFile("example.jar");
+        DependencyInfo dependencyInfo = new DependencyInfo(jar, DependencyType.JAR);
+        File cacheFile = new File(folder.getRoot(), "coordinates.json");
+
+        MappingProvider first = new MappingProvider();
+        first.addStrategy(createMockedStrategy(EXPECTED_PROJECT_COORDINATE));
+        first.searchForProjectCoordinate(dependencyInfo);
+        first.storeCache(cacheFile);
+
+        MappingProvider sut = new MappingProvider();
+        IProjectCoordinateResolver strategy = createMockedStrategy(ANOTHER_EXPECTED_PROJECT_COORDINATE);
+        sut.addStrategy(strategy);
+
+        assertEquals(1, sut.restoreCache(cacheFile));
+        assertEquals(EXPECTED_PROJECT_COORDINATE, sut.searchForProjectCoordinate(dependencyInfo).get());
+        assertEquals(0, sut.getMissCount());
+        Mockito.verifyZeroInteractions(strategy);
+    }
+
+    @Test
+    public void testCoordinatesOfModifiedFilesAreNotRestored() throws IOException {
+        File jar = folder.newFile("example.jar");
+        DependencyInfo dependencyInfo = new DependencyInfo(jar, DependencyType.JAR);
+        File cacheFile = new File(folder.getRoot(), "coordinates.json");
+
+        MappingProvider first = new MappingProvider();
+        first.addStrategy(createMockedStrategy(EXPECTED_PROJECT_COORDINATE));
+        first.searchForProjectCoordinate(dependencyInfo);
+        first.storeCache(cacheFile);
+        jar.setLastModified(jar.lastModified() - 10000);
+
+        MappingProvider sut = new MappingProvider();
+        sut.addStrategy(createMockedStrategy(ANOTHER_EXPECTED_PROJECT_COORDINATE));
+
+        assertEquals(0, sut.restoreCache(cacheFile));
+        assertEquals(ANOTHER_EXPECTED_PROJECT_COORDINATE, sut.searchForProjectCoordinate(dependencyInfo).get());
+    }
+
+    @Test
+    public void testManualMappingsAndDirectoriesAreNotStored() throws IOException {
+        DependencyInfo manual = new DependencyInfo(folder.newFile("manual.jar"), DependencyType.JAR);
+        DependencyInfo jre = new DependencyInfo(folder.newFolder("jre"), DependencyType.JRE);
+        File cacheFile = new File(folder.getRoot(), "coordinates.json");
+
+        MappingProvider first = new MappingProvider();
+        first.addStrategy(createMockedStrategy(EXPECTED_PROJECT_COORDINATE));
+        first.setManualMapping(manual, ANOTHER_EXPECTED_PROJECT_COORDINATE);
+        first.searchForProjectCoordinate(jre);
+        first.storeCache(cacheFile);
+
+        assertEquals(0, new MappingProvider().restoreCache(cacheFile));
+    }
+
+    @Test
+    public void testRestoreFromMissingOrCorruptFile() throws IOException {
+        File cacheFile = new File(folder.getRoot(), "coordinates.json");
+        MappingProvider sut = new MappingProvider();
+
+        assertEquals(0, sut.restoreCache(cacheFile));
+
+        Files.write("{ corrupt".getBytes(), cacheFile);
+        assertEquals(0, sut.restoreCache(cacheFile));
+    }
+
+    @Test
+    public void testCheapStrategyRunsFirst() {
+        MappingProvider sut = new MappingProvider();
+        IRatedProjectCoordinateResolver expensive = createMockedRatedStrategy(ANOTHER_EXPECTED_PROJECT_COORDINATE,
+                Cost.EXPENSIVE, 1.0);
+        sut.addStrategy(expensive);
+        sut.addStrategy(createMockedRatedStrategy(EXPECTED_PROJECT_COORDINATE, Cost.CHEAP, 1.0));
+
+        Optional<ProjectCoordinate> actual = sut.searchForProjectCoordinate(new DependencyInfo(new File(
+                "example.jar"), DependencyType.JAR));
+
+        assertEquals(EXPECTED_PROJECT_COORDINATE, actual.get());
+        Mockito.verify(expensive, Mockito.never()).searchForProjectCoordinate(Mockito.any(DependencyInfo.class));
+    }
+
+    @Test
+    public void testStrategiesRunInOrderOfAdditionWithoutAdaptiveOrdering() {
+        MappingProvider sut = new MappingProvider();
+        sut.setAdaptiveOrdering(false);
+        sut.addStrategy(createMockedRatedStrategy(ANOTHER_EXPECTED_PROJECT_COORDINATE, Cost.EXPENSIVE, 1.0));
+        sut.addStrategy(createMockedRatedStrategy(EXPECTED_PROJECT_COORDINATE, Cost.CHEAP, 1.0));
+
+        Optional<ProjectCoordinate> actual = sut.searchForProjectCoordinate(new DependencyInfo(new File(
+                "example.jar"), DependencyType.JAR));
+
+        assertEquals(ANOTHER_EXPECTED_PROJECT_COORDINATE, actual.get());
+    }
+
+    @Test
+    public void testUnconfidentResultDoesNotEndSearch() {
+        MappingProvider sut = new MappingProvider();
+        sut.addStrategy(createMockedRatedStrategy(ANOTHER_EXPECTED_PROJECT_COORDINATE, Cost.CHEAP, 0.5));
+        sut.addStrategy(createMockedRatedStrategy(EXPECTED_PROJECT_COORDINATE, Cost.EXPENSIVE, 1.0));
+
+        Optional<ProjectCoordinate> actual = sut.searchForProjectCoordinate(new DependencyInfo(new File(
+                "example.jar"), DependencyType.JAR));
+
+        assertEquals(EXPECTED_PROJECT_COORDINATE, actual.get());
+    }
+
+    @Test
+    public void testUnconfidentResultIsUsedAsFallback() {
+        MappingProvider sut = new MappingProvider();
+        sut.addStrategy(createMockedRatedStrategy(EXPECTED_PROJECT_COORDINATE, Cost.CHEAP, 0.5));
+        sut.addStrategy(createMockedRatedStrategy(null, Cost.EXPENSIVE, 1.0));
+
+        Optional<ProjectCoordinate> actual = sut.searchForProjectCoordinate(new DependencyInfo(new File(
+                "example.jar"), DependencyType.JAR));
+
+        assertEquals(EXPECTED_PROJECT_COORDINATE, actual.get());
+    }
+
+    @Test
+    public void testStrategyMetrics() {
+        MappingProvider sut = new MappingProvider();
+        IRatedProjectCoordinateResolver strategy = createMockedRatedStrategy(EXPECTED_PROJECT_COORDINATE, Cost.CHEAP,
+                1.0);
+        sut.addStrategy(strategy);
+        sut.searchForProjectCoordinate(new DependencyInfo(new File("example.jar"), DependencyType.JAR));
+        sut.searchForProjectCoordinate(new DependencyInfo(new File("example.jre"), DependencyType.JRE));
+
+        StrategyMetrics metrics = sut.getStrategyMetrics().get(strategy);
+
+        // the strategy is not applicable to the JRE
+        assertEquals(1, metrics.getCalls());
+        assertEquals(1, metrics.getHits());
+        assertEquals(0, metrics.getFailures());
+        assertEquals(1.0, metrics.getSuccessRate(), 0.0);
+    }
+
+    @Test
+    public void testFailingStrategyIsSkipped() {
+        MappingProvider sut = new MappingProvider();
+        IRatedProjectCoordinateResolver failing = createMockedRatedStrategy(null, Cost.CHEAP, 1.0);
+        Mockito.when(failing.searchForProjectCoordinate(Mockito.any(DependencyInfo.class))).thenThrow(
+                new IllegalStateException());
+        sut.addStrategy(failing);
+        sut.addStrategy(createMockedRatedStrategy(EXPECTED_PROJECT_COORDINATE, Cost.EXPENSIVE, 1.0));
+
+        Optional<ProjectCoordinate> actual = sut.searchForProjectCoordinate(new DependencyInfo(new File(
+                "example.jar"), DependencyType.JAR));
+
+        assertEquals(EXPECTED_PROJECT_COORDINATE, actual.get());
+        assertEquals(1, sut.getStrategyMetrics().get(failing).getFailures());
+    }
+
+    @Test
+    public void testSpeculativeSearchKeepsOrder() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            MappingProvider sut = new MappingProvider();
+            sut.setSpeculativeExecutor(executor);
+            sut.addStrategy(createMockedRatedStrategy(EXPECTED_PROJECT_COORDINATE, Cost.CHEAP, 1.0));
+            sut.addStrategy(createMockedRatedStrategy(ANOTHER_EXPECTED_PROJECT_COORDINATE, Cost.MODERATE, 1.0));
+
+            Optional<ProjectCoordinate> actual = sut.searchForProjectCoordinate(new DependencyInfo(new File(
+                    "example.jar"), DependencyType.JAR));
+
+            assertEquals(EXPECTED_PROJECT_COORDINATE, actual.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedSpeculativeSearchIsCounted() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            MappingProvider sut = new MappingProvider();
+            sut.setSpeculativeExecutor(executor);
+            IRatedProjectCoordinateResolver failing = createMockedRatedStrategy(null, Cost.CHEAP, 1.0);
+            Mockito.when(failing.searchForProjectCoordinate(Mockito.any(DependencyInfo.class))).thenThrow(
+                    new NoClassDefFoundError());
+            sut.addStrategy(failing);
+            sut.addStrategy(createMockedRatedStrategy(EXPECTED_PROJECT_COORDINATE, Cost.MODERATE, 1.0));
+
+            Optional<ProjectCoordinate> actual = sut.searchForProjectCoordinate(new DependencyInfo(new File(
+                    "example.jar"), DependencyType.JAR));
+
+            assertEquals(EXPECTED_PROJECT_COORDINATE, actual.get());
+            assertEquals(1, sut.getStrategyMetrics().get(failing).getCalls());
+            assertEquals(1, sut.getStrategyMetrics().get(failing).getFailures());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testModifiedFileIsResolvedAgain()throws IOException {
+        File jar = folder.newFile("example.jar");
+        DependencyInfo dependencyInfo = new DependencyInfo(jar, DependencyType.JAR);
+        IProjectCoordinateResolver strategy = createMockedStrategy(EXPECTED_PROJECT_COORDINATE);
+        MappingProvider sut = new MappingProvider();
+        sut.addStrategy(strategy);
+
+        sut.searchForProjectCoordinate(dependencyInfo);
+        sut.searchForProjectCoordinate(dependencyInfo);
+        Files.write("changed".getBytes(), jar);
+        sut.searchForProjectCoordinate(dependencyInfo);
+
+        Mockito.verify(strategy, Mockito.times(2)).searchForProjectCoordinate(dependencyInfo);
+        assertEquals(1, sut.getStaleCount());
+        assertEquals(2, sut.getCacheStats().loadCount());
+    }
+
+    @Test
+    public void testInvalidatedCoordinateIsResolvedAgain() {
+        DependencyInfo dependencyInfo = new DependencyInfo(new File("example.jar"), DependencyType.JAR);
+        IProjectCoordinateResolver strategy = createMockedStrategy(EXPECTED_PROJECT_COORDINATE);
+        MappingProvider sut = new MappingProvider();
+        sut.addStrategy(strategy);
+
+        sut.searchForProjectCoordinate(dependencyInfo);
+        sut.invalidate(dependencyInfo);
+        sut.searchForProjectCoordinate(dependencyInfo);
+
+        Mockito.verify(strategy, Mockito.times(2)).searchForProjectCoordinate(dependencyInfo);
+        assertEquals(2, sut.getMissCount());
+    }
+
+    @Test
+    public void testMissIsCachedUntilMissesAreInvalidated() {
+        DependencyInfo dependencyInfo = new DependencyInfo(new File("example.jar"), DependencyType.JAR);
+        IProjectCoordinateResolver strategy = createMockedStrategy(null);
+        MappingProvider sut = new MappingProvider();
+        sut.addStrategy(strategy);
+
+        assertFalse(sut.searchForProjectCoordinate(dependencyInfo).isPresent());
+        assertFalse(sut.searchForProjectCoordinate(dependencyInfo).isPresent());
+        Mockito.verify(strategy, Mockito.times(1)).searchForProjectCoordinate(dependencyInfo);
+
+        // e.g., the strategy's index was updated in the meantime
+        Mockito.when(strategy.searchForProjectCoordinate(dependencyInfo)).thenReturn(
+                Optional.of(EXPECTED_PROJECT_COORDINATE));
+        sut.invalidateMisses();
+
+        assertEquals(EXPECTED_PROJECT_COORDINATE, sut.searchForProjectCoordinate(dependencyInfo).get());
+        assertEquals(1, sut.getCacheSize());
+    }
+
+    @Test
+    public void testInvalidatingMissesKeepsFoundCoordinates() {
+        DependencyInfo dependencyInfo = new DependencyInfo(new File("example.jar"), DependencyType.JAR);
+        IProjectCoordinateResolver strategy = createMockedStrategy(EXPECTED_PROJECT_COORDINATE);
+        MappingProvider sut = new MappingProvider();
+        sut.addStrategy(strategy);
+
+        sut.searchForProjectCoordinate(dependencyInfo);
+        sut.invalidateMisses();
+        sut.searchForProjectCoordinate(dependencyInfo);
+
+        Mockito.verify(strategy, Mockito.times(1)).searchForProjectCoordinate(dependencyInfo);
+    }
+
+    @Test
+    public void testMissExpires() {
+        DependencyInfo dependencyInfo = new DependencyInfo(new File("example.jar"), DependencyType.JAR);
+        IProjectCoordinateResolver strategy = createMockedStrategy(null);
+        MappingProvider sut = new MappingProvider();
+        sut.addStrategy(strategy);
+        sut.setMissExpiry(0, TimeUnit.MILLISECONDS);
+
+        sut.searchForProjectCoordinate(dependencyInfo);
+        Mockito.when(strategy.searchForProjectCoordinate(dependencyInfo)).thenReturn(
+                Optional.of(EXPECTED_PROJECT_COORDINATE));
+
+        assertEquals(EXPECTED_PROJECT_COORDINATE, sut.searchForProjectCoordinate(dependencyInfo).get());
+    }
+
+    @Test
+    public void testNewStrategyInvalidatesMisses() {
+        DependencyInfo dependencyInfo = new DependencyInfo(new File("example.jar"), DependencyType.JAR);
+        MappingProvider sut = new MappingProvider();
+        sut.addStrategy(createMockedStrategy(null));
+
+        sut.searchForProjectCoordinate(dependencyInfo);
+        sut.addStrategy(createMockedStrategy(EXPECTED_PROJECT_COORDINATE));
+
+        assertEquals(EXPECTED_PROJECT_COORDINATE, sut.searchForProjectCoordinate(dependencyInfo).get());
+    }
+
+    @Test
+    public void testManualMappingSurvivesChangesAndInvalidation()throws IOException {
+        File jar = folder.newFile("example.jar");
+        DependencyInfo dependencyInfo = new DependencyInfo(jar, DependencyType.JAR);
+        MappingProvider sut = new MappingProvider();
+        sut.addStrategy(createMockedStrategy(ANOTHER_EXPECTED_PROJECT_COORDINATE));
+        sut.setManualMapping(dependencyInfo, EXPECTED_PROJECT_COORDINATE);
+
+        Files.write("changed".getBytes(), jar);
+        sut.invalidate(dependencyInfo);
+        sut.invalidateAll();
+
+        assertEquals(EXPECTED_PROJECT_COORDINATE, sut.searchForProjectCoordinate(dependencyInfo).get());
+    }
+
+    @Test
+    public void testCacheHoldsAllDependencies() {
+        MappingProvider sut = new MappingProvider();
+        sut.addStrategy(createMockedStrategy(EXPECTED_PROJECT_COORDINATE));
+        for (int i = 0; i < 1000; i++) {
+            sut.searchForProjectCoordinate(new DependencyInfo(new File("example" + i + ".jar"), DependencyType.JAR));
+        }
+
+        assertEquals(1000, sut.getCacheSize());
+    }
+
+    @Test
+    public void testTouchedJarIsNotResolvedAgain() throws IOException {
+        File jar = createJar(new File(folder.getRoot(), "example.jar"), "content");
+        DependencyInfo dependencyInfo = new DependencyInfo(jar, DependencyType.JAR);
+        IProjectCoordinateResolver strategy = createMockedStrategy(EXPECTED_PROJECT_COORDINATE);
+        MappingProvider sut = new MappingProvider();
+        sut.addStrategy(strategy);
+
+        sut.searchForProjectCoordinate(dependencyInfo);
+        jar.setLastModified(jar.lastModified() - 10000);
+        Optional<ProjectCoordinate> actual = sut.searchForProjectCoordinate(dependencyInfo);
+
+        assertEquals(EXPECTED_PROJECT_COORDINATE, actual.get());
+        Mockito.verify(strategy, Mockito.times(1)).searchForProjectCoordinate(dependencyInfo);
+        assertEquals(0, sut.getStaleCount());
+    }
+
+    @Test
+    public void testJarWithChangedEntryIsResolvedAgain() throws IOException {
+        File jar = createJar(new File(folder.getRoot(), "example.jar"), "content");
+        DependencyInfo dependencyInfo = new DependencyInfo(jar, DependencyType.JAR);
+        IProjectCoordinateResolver strategy = createMockedStrategy(EXPECTED_PROJECT_COORDINATE);
+        MappingProvider sut = new MappingProvider();
+        sut.addStrategy(strategy);
+
+        sut.searchForProjectCoordinate(dependencyInfo);
+        long length = jar.length();
+        createJar(jar, "changed");
+        jar.setLastModified(jar.lastModified() - 10000);
+        sut.searchForProjectCoordinate(dependencyInfo);
+
+        assertEquals(length, jar.length());
+        Mockito.verify(strategy, Mockito.times(2)).searchForProjectCoordinate(dependencyInfo);
+        assertEquals(1, sut.getStaleCount());
+    }
+
+    @Test
+    public void testCoordinatesOfTouchedJarsAreRestored() throws IOException {
+        File jar = createJar(new File(folder.getRoot(), "example.jar"), "content");
+        DependencyInfo dependencyInfo = new DependencyInfo(jar, DependencyType.JAR);
+        File cacheFile = new File(folder.getRoot(), "coordinates.json");
+
+        MappingProvider first = new MappingProvider();
+        first.addStrategy(createMockedStrategy(EXPECTED_PROJECT_COORDINATE));
+        first.searchForProjectCoordinate(dependencyInfo);
+        first.storeCache(cacheFile);
+        jar.setLastModified(jar.lastModified() - 10000);
+
+        MappingProvider sut = new MappingProvider();
+        IProjectCoordinateResolver strategy = createMockedStrategy(ANOTHER_EXPECTED_PROJECT_COORDINATE);
+        sut.addStrategy(strategy);
+
+        assertEquals(1, sut.restoreCache(cacheFile));
+        assertEquals(EXPECTED_PROJECT_COORDINATE, sut.searchForProjectCoordinate(dependencyInfo).get());
+        Mockito.verifyZeroInteractions(strategy);
+    }
 }
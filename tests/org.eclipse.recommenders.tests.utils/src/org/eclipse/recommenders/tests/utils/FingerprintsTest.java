@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.tests.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.recommenders.utils.Fingerprints;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+
+public class FingerprintsTest {
+
+    private static final String SHA1_EMPTY = "da39a3ee5e6b4b0d3255bfef95601890afd80709";
+    private static final String SHA1_ABC = "a9993e364706816aba3e25717850c26c9cd0d89d";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File newFile(String name, byte[] content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(content, file);
+        return file;
+    }
+
+    private static byte[] zip(int entries, String comment) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipOutputStream zos = new ZipOutputStream(out);
+        if (comment != null) {
+            zos.setComment(comment);
+        }
+        for (int i = 0; i < entries; i++) {
+            zos.putNextEntry(new ZipEntry(String.format("example/%06d", i)));
+            zos.write(("content" + i).getBytes());
+            zos.closeEntry();
+        }
+        zos.close();
+        return out.toByteArray();
+    }
+
+    private static int indexOf(byte[] array, byte[] target) {
+        outer: for (int i = 0; i <= array.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (array[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the fingerprint of everything from the first central directory header on, i.e., of the central
+     * directory and the end of central directory record(s).
+     */
+    private static String sha1CentralDirectory(byte[] zip) throws Exception {
+        int start = indexOf(zip, new byte[] { 'P', 'K', 1, 2 });
+        byte[] centralDirectory = new byte[zip.length - start];
+        System.arraycopy(zip, start, centralDirectory, 0, centralDirectory.length);
+        return sha1(centralDirectory);
+    }
+
+    private static byte[] prepend(byte[] zip) {
+        byte[] res = new byte[1000 + zip.length];
+        new Random(42).nextBytes(res);
+        System.arraycopy(zip, 0, res, 1000, zip.length);
+        return res;
+    }
+
+    private static String sha1(byte[] content) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-1").digest(content)) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testString() {
+        assertEquals(SHA1_EMPTY, Fingerprints.sha1(""));
+        assertEquals(SHA1_ABC, Fingerprints.sha1("abc"));
+    }
+
+    @Test
+    public void testStream() {
+        assertEquals(SHA1_EMPTY, Fingerprints.sha1(new ByteArrayInputStream(new byte[0])));
+        assertEquals(SHA1_ABC, Fingerprints.sha1(new ByteArrayInputStream("abc".getBytes())));
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        assertEquals(SHA1_EMPTY, Fingerprints.sha1(newFile("empty", new byte[0])));
+        assertEquals(SHA1_ABC, Fingerprints.sha1(newFile("abc", "abc".getBytes())));
+    }
+
+    @Test
+    public void testFileLargerThanBuffer() throws Exception {
+        byte[] content = new byte[200 * 1024 + 17];
+        new Random(42).nextBytes(content);
+
+        assertEquals(sha1(content), Fingerprints.sha1(newFile("large", content)));
+    }
+
+    @Test
+    public void testBulkKeepsOrderAndReportsFailures() throws Exception {
+        List<File> files = Lists.newArrayList();
+        Random random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            byte[] content = new byte[random.nextInt(100000)];
+            random.nextBytes(content);
+            files.add(newFile("file" + i, content));
+        }
+        File missing = new File(folder.getRoot(), "missing");
+        files.add(10, missing);
+        Map<File, Exception> failures = Maps.newHashMap();
+
+        Map<File, String> res = Fingerprints.sha1(files, 4, failures);
+
+        List<File> expected = Lists.newArrayList(files);
+        expected.remove(missing);
+        assertEquals(expected, Lists.newArrayList(res.keySet()));
+        for (File file : expected) {
+            assertEquals(sha1(Files.toByteArray(file)), res.get(file));
+        }
+        assertEquals(1, failures.size());
+        assertNotNull(failures.get(missing));
+    }
+
+    @Test
+    public void testBulkSequentialAndParallelAgree() throws IOException {
+        List<File> files = Lists.newArrayList();
+        for (int i = 0; i < 10; i++) {
+            files.add(newFile("file" + i, ("content" + i).getBytes()));
+        }
+
+        assertEquals(Fingerprints.sha1(files, 1), Fingerprints.sha1(files, 3));
+    }
+
+    @Test
+    public void testCentralDirectory() throws Exception {
+        byte[] zip = zip(3, null);
+
+        assertEquals(sha1CentralDirectory(zip), Fingerprints.sha1CentralDirectory(newFile("example.jar", zip)).get());
+    }
+
+    @Test
+    public void testCentralDirectoryWithComment() throws Exception {
+        byte[] zip = zip(3, "a comment that contains PK\5\6");
+
+        Optional<String> res = Fingerprints.sha1CentralDirectory(newFile("example.jar", zip));
+
+        assertEquals(sha1CentralDirectory(zip), res.get());
+        assertFalse(res.equals(Fingerprints.sha1CentralDirectory(newFile("other.jar", zip(3, null)))));
+    }
+
+    @Test
+    public void testCentralDirectoryWithPrependedData() throws Exception {
+        byte[] zip = zip(3, "comment");
+
+        Optional<String> res = Fingerprints.sha1CentralDirectory(newFile("prepended.jar", prepend(zip)));
+
+        // the offsets within the central directory are unchanged
+        assertEquals(sha1CentralDirectory(zip), res.get());
+    }
+
+    @Test
+    public void testCentralDirectoryOfZip64() throws Exception {
+        // more entries than fit into the end of central directory record
+        byte[] zip = zip(70000, null);
+        assertTrue(indexOf(zip, new byte[] { 'P', 'K', 6, 6 }) > 0);
+
+        assertEquals(sha1CentralDirectory(zip), Fingerprints.sha1CentralDirectory(newFile("zip64.jar", zip)).get());
+        assertEquals(sha1CentralDirectory(zip), Fingerprints.sha1CentralDirectory(newFile("prepended.jar",
+                prepend(zip))).get());
+    }
+
+    @Test
+    public void testCentralDirectoryOfNoZip() throws IOException {
+        assertFalse(Fingerprints.sha1CentralDirectory(newFile("empty", new byte[0])).isPresent());
+        assertFalse(Fingerprints.sha1CentralDirectory(newFile("abc", "abc".getBytes())).isPresent());
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.tests.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.recommenders.utils.InMemoryZipArchive;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+public class InMemoryZipArchiveTest {
+
+    private static final int[] SIZES = { 0, 1, 2, 100, 4096, 65536, 100000 };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(42);
+
+    private byte[] content(int size, boolean compressible) {
+        byte[] res = new byte[size];
+        if (compressible) {
+            for (int i = 0; i < size; i++) {
+                res[i] = (byte) ('a' + i % 7);
+            }
+        } else {
+            random.nextBytes(res);
+        }
+        return res;
+    }
+
+    private void putStored(ZipOutputStream zos, String path, byte[] content) throws IOException {
+        ZipEntry entry = new ZipEntry(path);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(content.length);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        entry.setCrc(crc.getValue());
+        zos.putNextEntry(entry);
+        zos.write(content);
+        zos.closeEntry();
+    }
+
+    private void putDeflated(ZipOutputStream zos, String path, byte[] content) throws IOException {
+        zos.putNextEntry(new ZipEntry(path));
+        zos.write(content);
+        zos.closeEntry();
+    }
+
+    /**
+     * Creates an archive whose last entry is deflated, i.e., the inflater reads the first byte of the central directory
+     * as its extra byte.
+     */
+    private File createZip() throws IOException {
+        File zip = folder.newFile("test.zip");
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip));
+        try {
+            zos.putNextEntry(new ZipEntry("dir/"));
+            zos.closeEntry();
+            for (int size : SIZES) {
+                putStored(zos, "stored/random" + size, content(size, false));
+                putDeflated(zos, "deflated/random" + size, content(size, false));
+                putDeflated(zos, "deflated/text" + size, content(size, true));
+            }
+            putDeflated(zos, "deflated/last", content(1000, true));
+        } finally {
+            zos.close();
+        }
+        return zip;
+    }
+
+    @Test
+    public void testRoundTripMatchesZipFile() throws IOException {
+        File file = createZip();
+        InMemoryZipArchive sut = InMemoryZipArchive.load(file);
+        ZipFile zip = new ZipFile(file);
+        try {
+            assertEquals(zip.size(), sut.size());
+            for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements();) {
+                ZipEntry entry = e.nextElement();
+                assertTrue(entry.getName(), sut.containsEntry(entry.getName()));
+                byte[] expected = ByteStreams.toByteArray(zip.getInputStream(entry));
+                InputStream in = sut.getInputStream(entry.getName()).get();
+                try {
+                    assertArrayEquals(entry.getName(), expected, ByteStreams.toByteArray(in));
+                } finally {
+                    in.close();
+                }
+            }
+        } finally {
+            zip.close();
+            sut.close();
+        }
+    }
+
+    @Test
+    public void testReadSingleBytes() throws IOException {
+        File file = createZip();
+        InMemoryZipArchive sut = InMemoryZipArchive.load(file);
+        ZipFile zip = new ZipFile(file);
+        try {
+            byte[] expected = ByteStreams.toByteArray(zip.getInputStream(zip.getEntry("deflated/last")));
+            InputStream in = sut.getInputStream("deflated/last").get();
+            for (byte b : expected) {
+                assertEquals(b & 0xFF, in.read());
+            }
+            assertEquals(-1, in.read());
+            in.close();
+        } finally {
+            zip.close();
+            sut.close();
+        }
+    }
+
+    @Test
+    public void testMissingEntry() throws IOException {
+        InMemoryZipArchive sut = InMemoryZipArchive.load(createZip());
+
+        assertFalse(sut.containsEntry("missing"));
+        assertFalse(sut.getInputStream("missing").isPresent());
+    }
+
+    @Test
+    public void testStreamsMayOutliveArchive() throws IOException {
+        File file = createZip();
+        InMemoryZipArchive sut = InMemoryZipArchive.load(file);
+        byte[] expected = ByteStreams.toByteArray(sut.getInputStream("deflated/text65536").get());
+        InputStream open = sut.getInputStream("deflated/text65536").get();
+
+        sut.close();
+
+        assertArrayEquals(expected, ByteStreams.toByteArray(open));
+        open.close();
+        // the archive's data is still there; streams just no longer share inflaters
+        InputStream in = sut.getInputStream("deflated/text65536").get();
+        assertArrayEquals(expected, ByteStreams.toByteArray(in));
+        in.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadAfterCloseFails() throws IOException {
+        InMemoryZipArchive sut = InMemoryZipArchive.load(createZip());
+        InputStream in = sut.getInputStream("deflated/text100").get();
+        in.close();
+
+        in.read();
+    }
+
+    @Test(expected = ZipException.class)
+    public void testTruncatedCentralDirectoryHeader() throws IOException {
+        byte[] data = Files.toByteArray(createZip());
+        // the name length of the last central directory header points past the central directory
+        int header = -1;
+        for (int i = 0; i < data.length - 3; i++) {
+            if (data[i] == 'P' && data[i + 1] == 'K' && data[i + 2] == 1 && data[i + 3] == 2) {
+                header = i;
+            }
+        }
+        data[header + 28] = (byte) 0xff;
+        data[header + 29] = (byte) 0xff;
+
+        new InMemoryZipArchive("test.zip", data);
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.tests.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.recommenders.internal.utils.codestructs.DefinitionSite.Kind;
+import org.eclipse.recommenders.internal.utils.codestructs.ObjectUsage;
+import org.eclipse.recommenders.internal.utils.codestructs.ObjectUsageTable;
+import org.eclipse.recommenders.utils.names.IMethodName;
+import org.eclipse.recommenders.utils.names.ITypeName;
+import org.eclipse.recommenders.utils.names.VmMethodName;
+import org.eclipse.recommenders.utils.names.VmTypeName;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class ObjectUsageTableTest {
+
+    private static final ITypeName STRING = VmTypeName.get("Ljava/lang/String");
+    private static final ITypeName LIST = VmTypeName.get("Ljava/util/List");
+    private static final IMethodName CONTEXT = VmMethodName.get("LExample.run()V");
+    private static final IMethodName LENGTH = VmMethodName.get("Ljava/lang/String.length()I");
+    private static final IMethodName TRIM = VmMethodName.get("Ljava/lang/String.trim()Ljava/lang/String;");
+    private static final IMethodName ISEMPTY = VmMethodName.get("Ljava/lang/String.isEmpty()Z");
+    private static final IMethodName SIZE = VmMethodName.get("Ljava/util/List.size()I");
+
+    private static ObjectUsage usage(ITypeName type, IMethodName... calls) {
+        ObjectUsage res = new ObjectUsage();
+        res.type = type;
+        res.contextFirst = CONTEXT;
+        res.kind = Kind.PARAMETER;
+        // keeps insertion order, i.e., the order of the calls is under the test's control
+        res.calls = Sets.newLinkedHashSet(Arrays.asList(calls));
+        return res;
+    }
+
+    @Test
+    public void testEmptyTable() {
+        ObjectUsageTable sut = new ObjectUsageTable();
+
+        assertTrue(sut.groupByType().isEmpty());
+        ObjectUsageTable deduplicated = sut.deduplicate();
+        assertEquals(0, deduplicated.size());
+        assertEquals(0, deduplicated.totalCount());
+    }
+
+    @Test
+    public void testSingleType() {
+        ObjectUsageTable sut = new ObjectUsageTable();
+        sut.add(usage(STRING, LENGTH));
+        sut.add(usage(STRING, TRIM));
+        sut.add(usage(STRING));
+
+        Map<ITypeName, int[]> groups = sut.groupByType();
+
+        assertEquals(1, groups.size());
+        assertArrayEquals(new int[] { 0, 1, 2 }, groups.get(STRING));
+    }
+
+    @Test
+    public void testGroupsKeepTableOrder() {
+        ObjectUsageTable sut = new ObjectUsageTable();
+        sut.add(usage(STRING, LENGTH));
+        sut.add(usage(LIST, SIZE));
+        sut.add(usage(null));
+        sut.add(usage(STRING, TRIM));
+
+        Map<ITypeName, int[]> groups = sut.groupByType();
+
+        assertEquals(3, groups.size());
+        assertArrayEquals(new int[] { 0, 3 }, groups.get(STRING));
+        assertArrayEquals(new int[] { 1 }, groups.get(LIST));
+        assertArrayEquals(new int[] { 2 }, groups.get(null));
+    }
+
+    @Test
+    public void testDuplicatesThatDifferInCallOrderAreMerged() {
+        ObjectUsageTable sut = new ObjectUsageTable();
+        sut.add(usage(STRING, LENGTH, TRIM, ISEMPTY));
+        sut.add(usage(STRING, ISEMPTY, LENGTH, TRIM), 2);
+        sut.add(usage(STRING, TRIM, ISEMPTY, LENGTH));
+
+        ObjectUsageTable deduplicated = sut.deduplicate();
+
+        assertEquals(1, deduplicated.size());
+        assertEquals(4, deduplicated.getCount(0));
+        assertEquals(Sets.newHashSet(LENGTH, TRIM, ISEMPTY), Sets.newHashSet(deduplicated.getCalls(0)));
+    }
+
+    @Test
+    public void testDeduplicateKeepsDistinctRowsInOrderOfFirstOccurrence() {
+        ObjectUsageTable sut = new ObjectUsageTable();
+        sut.add(usage(STRING, LENGTH));
+        sut.add(usage(LIST, SIZE));
+        sut.add(usage(STRING, LENGTH, TRIM));
+        sut.add(usage(STRING, LENGTH));
+        ObjectUsage differentKind = usage(LIST, SIZE);
+        differentKind.kind = Kind.FIELD;
+        sut.add(differentKind);
+
+        ObjectUsageTable deduplicated = sut.deduplicate();
+
+        assertEquals(4, deduplicated.size());
+        assertEquals(5, deduplicated.totalCount());
+        assertEquals(usage(STRING, LENGTH), deduplicated.toObjectUsage(0));
+        assertEquals(2, deduplicated.getCount(0));
+        assertEquals(usage(LIST, SIZE), deduplicated.toObjectUsage(1));
+        assertEquals(usage(STRING, LENGTH, TRIM), deduplicated.toObjectUsage(2));
+        assertEquals(Kind.FIELD, deduplicated.getKind(3));
+    }
+
+    @Test
+    public void testDeduplicateManyRows() {
+        ObjectUsageTable sut = new ObjectUsageTable(4);
+        for (int i = 0; i < 1000; i++) {
+            IMethodName call = VmMethodName.get("Ljava/lang/String.method" + i % 100 + "()V");
+            sut.add(usage(STRING, call));
+        }
+
+        ObjectUsageTable deduplicated = sut.deduplicate();
+
+        assertEquals(100, deduplicated.size());
+        for (int row = 0; row < deduplicated.size(); row++) {
+            assertEquals(10, deduplicated.getCount(row));
+            Set<IMethodName> expected = Sets.<IMethodName> newHashSet(VmMethodName.get("Ljava/lang/String.method"
+                    + row + "()V"));
+            assertEquals(expected, Sets.newHashSet(deduplicated.getCalls(row)));
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.tests.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.eclipse.recommenders.utils.Recommendation;
+import org.eclipse.recommenders.utils.RecommendationsPipeline;
+import org.eclipse.recommenders.utils.RecommendationsPipeline.RelevanceTransformation;
+import org.eclipse.recommenders.utils.RecommendationsPipeline.Sink;
+import org.junit.Test;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
+
+public class RecommendationsPipelineTest {
+
+    private static final Predicate<String> NOT_B = new Predicate<String>() {
+
+        @Override
+        public boolean apply(String input) {
+            return !input.equals("b");
+        }
+    };
+
+    private static final RelevanceTransformation<String> BOOST_A = new RelevanceTransformation<String>() {
+
+        @Override
+        public double apply(String proposal, double relevance) {
+            return proposal.equals("a") ? 1.0 : relevance;
+        }
+    };
+
+    private static List<Recommendation<String>> recs(Object... proposalsAndRelevances) {
+        List<Recommendation<String>> res = Lists.newArrayList();
+        for (int i = 0; i < proposalsAndRelevances.length; i += 2) {
+            res.add(Recommendation.<String, String> newRecommendation((String) proposalsAndRelevances[i],
+                    (Double) proposalsAndRelevances[i + 1]));
+        }
+        return res;
+    }
+
+    private static List<String> proposals(List<Recommendation<String>> recs) {
+        List<String> res = Lists.newArrayList();
+        for (Recommendation<String> rec : recs) {
+            res.add(rec.getProposal());
+        }
+        return res;
+    }
+
+    @Test
+    public void testEmptyPipelineSortsStably() {
+        RecommendationsPipeline<String> sut = RecommendationsPipeline.<String> newBuilder().build();
+
+        List<Recommendation<String>> res = sut.process(recs("a", 0.1, "b", 0.5, "c", 0.1, "d", 0.9, "e", 0.5));
+
+        assertEquals(Lists.newArrayList("d", "b", "e", "a", "c"), proposals(res));
+    }
+
+    @Test
+    public void testLimitAndTies() {
+        RecommendationsPipeline<String> sut = RecommendationsPipeline.<String> newBuilder().limit(3).build();
+
+        List<Recommendation<String>> res = sut.process(recs("a", 0.5, "b", 0.5, "c", 0.9, "d", 0.5));
+
+        assertEquals(Lists.newArrayList("c", "a", "b"), proposals(res));
+    }
+
+    @Test
+    public void testMinRelevanceAppliesToTransformedRelevance() {
+        RecommendationsPipeline<String> sut = RecommendationsPipeline.<String> newBuilder().transform(BOOST_A)
+                .minRelevance(0.3).build();
+
+        List<Recommendation<String>> res = sut.process(recs("a", 0.1, "b", 0.3, "c", 0.2));
+
+        assertEquals(Lists.newArrayList("a", "b"), proposals(res));
+        assertEquals(1.0, res.get(0).getRelevance(), 0);
+    }
+
+    @Test
+    public void testNaNIsDropped() {
+        RelevanceTransformation<String> undefinedForA = new RelevanceTransformation<String>() {
+
+            @Override
+            public double apply(String proposal, double relevance) {
+                return proposal.equals("a") ? Double.NaN : relevance;
+            }
+        };
+        RecommendationsPipeline<String> sut = RecommendationsPipeline.<String> newBuilder()
+                .transform(undefinedForA).minRelevance(0.1).build();
+
+        List<Recommendation<String>> res = sut.process(recs("a", 0.9, "b", 0.3));
+
+        assertEquals(Lists.newArrayList("b"), proposals(res));
+    }
+
+    @Test
+    public void testNaNIsDroppedWithoutMinRelevance() {
+        RecommendationsPipeline<String> sut = RecommendationsPipeline.<String> newBuilder().build();
+        Sink<String> sink = sut.newSink();
+
+        sink.accept("a", Double.NaN);
+        sink.accept("b", 0.3);
+
+        assertEquals(Lists.newArrayList("b"), proposals(sink.finish()));
+    }
+
+    @Test
+    public void testFilters() {
+        Predicate<Recommendation<String>> notC = new Predicate<Recommendation<String>>() {
+
+            @Override
+            public boolean apply(Recommendation<String> input) {
+                return !input.getProposal().equals("c");
+            }
+        };
+        RecommendationsPipeline<String> sut = RecommendationsPipeline.<String> newBuilder().filterProposals(NOT_B)
+                .filter(notC).limit(2).build();
+
+        List<Recommendation<String>> res = sut.process(recs("a", 0.1, "b", 0.9, "c", 0.8, "d", 0.5, "e", 0.05));
+
+        assertEquals(Lists.newArrayList("d", "a"), proposals(res));
+    }
+
+    @Test
+    public void testReusesUnchangedRecommendations() {
+        List<Recommendation<String>> recs = recs("a", 0.1, "b", 0.5);
+        RecommendationsPipeline<String> sut = RecommendationsPipeline.<String> newBuilder().transform(BOOST_A)
+                .build();
+
+        List<Recommendation<String>> res = sut.process(recs);
+
+        // the relevance of 'a' was changed, so it needs a new object
+        assertNotSame(recs.get(0), res.get(0));
+        assertSame(recs.get(1), res.get(1));
+    }
+
+    @Test
+    public void testSinkWithRawProposals() {
+        RecommendationsPipeline<String> sut = RecommendationsPipeline.<String> newBuilder().filterProposals(NOT_B)
+                .limit(2).build();
+        Sink<String> sink = sut.newSink(4);
+
+        sink.accept("a", 0.1);
+        sink.accept("b", 0.9);
+        sink.accept("c", 0.4);
+        sink.accept("d", 0.4);
+
+        List<Recommendation<String>> res = sink.finish();
+        assertEquals(Lists.newArrayList("c", "d"), proposals(res));
+        assertEquals(0.4, res.get(0).getRelevance(), 0);
+    }
+
+    @Test
+    public void testRecommendationsAsProposals() {
+        Recommendation<String> proposal = Recommendation.newRecommendation("a", 0.1);
+        RecommendationsPipeline<Recommendation<String>> sut = RecommendationsPipeline
+                .<Recommendation<String>> newBuilder().build();
+        Sink<Recommendation<String>> sink = sut.newSink();
+
+        sink.accept(proposal, 0.7);
+
+        List<Recommendation<Recommendation<String>>> res = sink.finish();
+        assertSame(proposal, res.get(0).getProposal());
+        assertEquals(0.7, res.get(0).getRelevance(), 0);
+    }
+}
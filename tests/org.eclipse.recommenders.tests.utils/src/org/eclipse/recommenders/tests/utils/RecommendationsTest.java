@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.tests.utils;
+
+import static org.eclipse.recommenders.utils.Recommendation.newRecommendation;
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.recommenders.utils.Recommendation;
+import org.eclipse.recommenders.utils.Recommendations;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests {@link Recommendations#top(Iterable, int, double)} and thereby the bounded heap behind it.
+ */
+public class RecommendationsTest {
+
+    private static List<Recommendation<String>> recs(Object... proposalsAndRelevances) {
+        List<Recommendation<String>> res = Lists.newArrayList();
+        for (int i = 0; i < proposalsAndRelevances.length; i += 2) {
+            res.add(Recommendation.<String, String> newRecommendation((String) proposalsAndRelevances[i],
+                    (Double) proposalsAndRelevances[i + 1]));
+        }
+        return res;
+    }
+
+    private static List<String> proposals(List<Recommendation<String>> recs) {
+        List<String> res = Lists.newArrayList();
+        for (Recommendation<String> rec : recs) {
+            res.add(rec.getProposal());
+        }
+        return res;
+    }
+
+    @Test
+    public void testSortsByDecreasingRelevance() {
+        List<Recommendation<String>> recs = recs("a", 0.1, "b", 0.5, "c", 0.3, "d", 0.9);
+
+        assertEquals(Lists.newArrayList("d", "b", "c", "a"), proposals(Recommendations.top(recs, 10)));
+    }
+
+    @Test
+    public void testLimit() {
+        List<Recommendation<String>> recs = recs("a", 0.1, "b", 0.5, "c", 0.3, "d", 0.9);
+
+        assertEquals(Lists.newArrayList("d", "b"), proposals(Recommendations.top(recs, 2)));
+        assertTrue(Recommendations.top(recs, 0).isEmpty());
+    }
+
+    @Test
+    public void testTiesKeepInputOrder() {
+        List<Recommendation<String>> recs = recs("a", 0.5, "b", 0.5, "c", 0.9, "d", 0.5, "e", 0.5);
+
+        assertEquals(Lists.newArrayList("c", "a", "b", "d", "e"), proposals(Recommendations.top(recs, 10)));
+        // the heap is full before the last ties arrive
+        assertEquals(Lists.newArrayList("c", "a", "b"), proposals(Recommendations.top(recs, 3)));
+    }
+
+    @Test
+    public void testMinRelevanceIsInclusive() {
+        List<Recommendation<String>> recs = recs("a", 0.1, "b", 0.5, "c", 0.3);
+
+        assertEquals(Lists.newArrayList("b", "c"), proposals(Recommendations.top(recs, 10, 0.3)));
+    }
+
+    @Test
+    public void testReturnsInputObjects() {
+        List<Recommendation<String>> recs = recs("a", 0.1, "b", 0.5);
+
+        List<Recommendation<String>> top = Recommendations.top(recs, 10);
+
+        assertSame(recs.get(1), top.get(0));
+        assertSame(recs.get(0), top.get(1));
+    }
+
+    @Test
+    public void testMatchesStableSort() {
+        Random random = new Random(42);
+        for (int round = 0; round < 100; round++) {
+            List<Recommendation<String>> recs = Lists.newArrayList();
+            int size = random.nextInt(200);
+            for (int i = 0; i < size; i++) {
+                // few distinct values to provoke many ties
+                recs.add(newRecommendation("p" + i, random.nextInt(10) / 10d));
+            }
+            int max = 1 + random.nextInt(30);
+            List<Recommendation<String>> expected = Lists.newArrayList(recs);
+            Collections.sort(expected, new Comparator<Recommendation<String>>() {
+
+                @Override
+                public int compare(Recommendation<String> o1, Recommendation<String> o2) {
+                    return Double.compare(o2.getRelevance(), o1.getRelevance());
+                }
+            });
+            expected = expected.subList(0, Math.min(max, expected.size()));
+
+            assertEquals(expected, Recommendations.top(recs, max));
+        }
+    }
+}
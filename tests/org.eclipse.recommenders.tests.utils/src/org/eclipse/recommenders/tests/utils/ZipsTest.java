@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2010, 2013 Darmstadt University of Technology.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marcel Bruch - initial API and implementation.
+ */
+package org.eclipse.recommenders.tests.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.recommenders.utils.Zips;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.Files;
+
+public class ZipsTest {
+
+    // several batches of 64 entries each
+    private static final int ENTRIES = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File createZip() throws IOException {
+        File zip = folder.newFile("test.zip");
+        Random random = new Random(42);
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip));
+        try {
+            zos.putNextEntry(new ZipEntry("a/"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("a/b/"));
+            zos.closeEntry();
+            for (int i = 0; i < ENTRIES; i++) {
+                zos.putNextEntry(new ZipEntry("a/b/c" + i % 7 + "/d" + i % 3 + "/entry" + i + ".json"));
+                byte[] content = new byte[random.nextInt(10000)];
+                random.nextBytes(content);
+                zos.write(content);
+                zos.closeEntry();
+            }
+            zos.putNextEntry(new ZipEntry("top-level.txt"));
+            zos.closeEntry();
+        } finally {
+            zos.close();
+        }
+        return zip;
+    }
+
+    /**
+     * Maps the relative path of every file and directory below the given directory to its content (or
+     * <code>null</code> for directories).
+     */
+    private static Map<String, byte[]> tree(File dir) throws IOException {
+        Map<String, byte[]> res = new TreeMap<String, byte[]>();
+        tree(dir, "", res);
+        return res;
+    }
+
+    private static void tree(File dir, String prefix, Map<String, byte[]> res) throws IOException {
+        for (File f : dir.listFiles()) {
+            String path = prefix + f.getName();
+            if (f.isDirectory()) {
+                res.put(path + "/", null);
+                tree(f, path + "/", res);
+            } else {
+                res.put(path, Files.toByteArray(f));
+            }
+        }
+    }
+
+    private static void assertSameTree(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (String path : expected.keySet()) {
+            assertArrayEquals(path, expected.get(path), actual.get(path));
+        }
+    }
+
+    @Test
+    public void testParallelUnzipCreatesSameTreeAsSequentialUnzip() throws IOException {
+        File zip = createZip();
+        File sequential = folder.newFolder("sequential");
+        File parallel = folder.newFolder("parallel");
+
+        Zips.unzip(zip, sequential);
+        Zips.unzip(zip, parallel, 4);
+
+        Map<String, byte[]> expected = tree(sequential);
+        assertEquals(ENTRIES + 1, countFiles(expected));
+        assertTrue(expected.containsKey("a/b/c6/d2/"));
+        assertSameTree(expected, tree(parallel));
+    }
+
+    @Test
+    public void testUnzipWithSingleThread() throws IOException {
+        File zip = createZip();
+        File sequential = folder.newFolder("sequential");
+        File parallel = folder.newFolder("parallel");
+
+        Zips.unzip(zip, sequential);
+        Zips.unzip(zip, parallel, 1);
+
+        assertSameTree(tree(sequential), tree(parallel));
+    }
+
+    @Test
+    public void testZipRoundTrip() throws IOException {
+        File zip = createZip();
+        File original = folder.newFolder("original");
+        Zips.unzip(zip, original, 3);
+        File rezipped = new File(folder.getRoot(), "rezipped.zip");
+        Zips.zip(original, rezipped);
+        File copy = folder.newFolder("copy");
+
+        Zips.unzip(rezipped, copy, 3);
+
+        assertSameTree(tree(original), tree(copy));
+    }
+
+    @Test
+    public void testFailedUnzipLeavesNoTruncatedFiles() throws IOException {
+        File zip = folder.newFile("broken.zip");
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip));
+        try {
+            for (int i = 0; i < ENTRIES; i++) {
+                zos.putNextEntry(new ZipEntry("entry" + i + ".txt"));
+                for (int j = 0; j < 2000; j++) {
+                    zos.write(("line " + j + " of entry " + i + "\n").getBytes());
+                }
+                zos.closeEntry();
+            }
+        } finally {
+            zos.close();
+        }
+        File expected = folder.newFolder("expected");
+        Zips.unzip(zip, expected);
+        // halves the compressed size of an entry in the central directory, i.e., its data ends prematurely
+        byte[] bytes = Files.toByteArray(zip);
+        byte[] name = "entry100.txt".getBytes();
+        int header = indexOf(bytes, name, indexOf(bytes, name, 0) + 1) - 46;
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(header + 20,
+                ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getInt(header + 20) / 2);
+        Files.write(bytes, zip);
+        File parallel = folder.newFolder("parallel");
+
+        try {
+            Zips.unzip(zip, parallel, 4);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+
+        assertFalse(new File(parallel, "entry100.txt").exists());
+        for (File file : parallel.listFiles()) {
+            assertArrayEquals(file.getName(), Files.toByteArray(new File(expected, file.getName())),
+                    Files.toByteArray(file));
+        }
+    }
+
+    private static int indexOf(byte[] array, byte[] target, int from) {
+        outer: for (int i = from; i <= array.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (array[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int countFiles(Map<String, byte[]> tree) {
+        int res = 0;
+        for (byte[] content : tree.values()) {
+            if (content != null) {
+                res++;
+            }
+        }
+        return res;
+    }
+}